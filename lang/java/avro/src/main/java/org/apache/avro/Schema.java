@@ -441,6 +441,15 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
   @Override
   public boolean equals(Object o) {
+    return equals(o, null);
+  }
+
+  /**
+   * Compares this to {@code o}. The pairs of records already being compared are
+   * passed down in {@code seen}, which the outermost record creates, so that
+   * recursive schemas compare without keeping any state between calls.
+   */
+  boolean equals(Object o, Set<SeenPair> seen) {
     if (o == this)
       return true;
     if (!(o instanceof Schema))
@@ -454,11 +463,15 @@ public abstract class Schema extends JsonProperties implements Serializable {
   @Override
   public final int hashCode() {
     if (hashCode == NO_HASHCODE)
-      hashCode = computeHash();
+      hashCode = computeHash(null);
     return hashCode;
   }
 
-  int computeHash() {
+  /**
+   * Computes the hash code of this. The records already being hashed are passed
+   * down in {@code seen}, as for {@link #equals(Object, Set)}.
+   */
+  int computeHash(Set<Schema> seen) {
     return getType().hashCode() + propsHashCode();
   }
 
@@ -651,18 +664,26 @@ public abstract class Schema extends JsonProperties implements Serializable {
 
     @Override
     public boolean equals(Object other) {
+      return equals(other, null);
+    }
+
+    private boolean equals(Object other, Set<SeenPair> seen) {
       if (other == this)
         return true;
       if (!(other instanceof Field))
         return false;
       Field that = (Field) other;
-      return (name.equals(that.name)) && (schema.equals(that.schema)) && defaultValueEquals(that.defaultValue)
+      return (name.equals(that.name)) && (schema.equals(that.schema, seen)) && defaultValueEquals(that.defaultValue)
           && (order == that.order) && propsEqual(that);
     }
 
     @Override
     public int hashCode() {
-      return name.hashCode() + schema.computeHash();
+      return hashCode(null);
+    }
+
+    private int hashCode(Set<Schema> seen) {
+      return name.hashCode() + schema.computeHash(seen);
     }
 
     private boolean defaultValueEquals(JsonNode thatDefaultValue) {
@@ -816,8 +837,8 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    int computeHash() {
-      return super.computeHash() + name.hashCode();
+    int computeHash(Set<Schema> seen) {
+      return super.computeHash(seen) + name.hashCode();
     }
 
     public void aliasesToJson(JsonGenerator gen) throws IOException {
@@ -857,9 +878,6 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
   }
 
-  private static final ThreadLocal<Set> SEEN_EQUALS = ThreadLocal.withInitial(HashSet::new);
-  private static final ThreadLocal<Map> SEEN_HASHCODE = ThreadLocal.withInitial(IdentityHashMap::new);
-
   @SuppressWarnings(value = "unchecked")
   private static class RecordSchema extends NamedSchema {
     private List<Field> fields;
@@ -921,7 +939,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    public boolean equals(Object o) {
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof RecordSchema))
@@ -933,33 +951,31 @@ public abstract class Schema extends JsonProperties implements Serializable {
         return false;
       if (!propsEqual(that))
         return false;
-      Set seen = SEEN_EQUALS.get();
-      SeenPair here = new SeenPair(this, o);
-      if (seen.contains(here))
+      if (seen == null)
+        seen = new HashSet<>();
+      if (!seen.add(new SeenPair(this, o)))
         return true; // prevent stack overflow
-      boolean first = seen.isEmpty();
-      try {
-        seen.add(here);
-        return Objects.equals(fields, that.fields);
-      } finally {
-        if (first)
-          seen.clear();
+      if (fields == null || that.fields == null)
+        return fields == that.fields;
+      if (fields.size() != that.fields.size())
+        return false;
+      for (int i = 0; i < fields.size(); i++) {
+        if (!fields.get(i).equals(that.fields.get(i), seen))
+          return false;
       }
+      return true;
     }
 
     @Override
-    int computeHash() {
-      Map seen = SEEN_HASHCODE.get();
-      if (seen.containsKey(this))
+    int computeHash(Set<Schema> seen) {
+      if (seen == null)
+        seen = Collections.newSetFromMap(new IdentityHashMap<>());
+      if (!seen.add(this))
         return 0; // prevent stack overflow
-      boolean first = seen.isEmpty();
-      try {
-        seen.put(this, this);
-        return super.computeHash() + fields.hashCode();
-      } finally {
-        if (first)
-          seen.clear();
-      }
+      int hash = 1; // as List.hashCode()
+      for (Field field : fields)
+        hash = 31 * hash + field.hashCode(seen);
+      return super.computeHash(seen) + hash;
     }
 
     @Override
@@ -1053,7 +1069,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    public boolean equals(Object o) {
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof EnumSchema))
@@ -1068,8 +1084,8 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    int computeHash() {
-      return super.computeHash() + symbols.hashCode();
+    int computeHash(Set<Schema> seen) {
+      return super.computeHash(seen) + symbols.hashCode();
     }
 
     @Override
@@ -1107,18 +1123,18 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    public boolean equals(Object o) {
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof ArraySchema))
         return false;
       ArraySchema that = (ArraySchema) o;
-      return equalCachedHash(that) && elementType.equals(that.elementType) && propsEqual(that);
+      return equalCachedHash(that) && elementType.equals(that.elementType, seen) && propsEqual(that);
     }
 
     @Override
-    int computeHash() {
-      return super.computeHash() + elementType.computeHash();
+    int computeHash(Set<Schema> seen) {
+      return super.computeHash(seen) + elementType.computeHash(seen);
     }
 
     @Override
@@ -1146,18 +1162,18 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    public boolean equals(Object o) {
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof MapSchema))
         return false;
       MapSchema that = (MapSchema) o;
-      return equalCachedHash(that) && valueType.equals(that.valueType) && propsEqual(that);
+      return equalCachedHash(that) && valueType.equals(that.valueType, seen) && propsEqual(that);
     }
 
     @Override
-    int computeHash() {
-      return super.computeHash() + valueType.computeHash();
+    int computeHash(Set<Schema> seen) {
+      return super.computeHash(seen) + valueType.computeHash(seen);
     }
 
     @Override
@@ -1205,20 +1221,30 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    public boolean equals(Object o) {
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof UnionSchema))
         return false;
       UnionSchema that = (UnionSchema) o;
-      return equalCachedHash(that) && types.equals(that.types) && propsEqual(that);
+      return equalCachedHash(that) && typesEqual(that.types, seen) && propsEqual(that);
+    }
+
+    private boolean typesEqual(List<Schema> thatTypes, Set<SeenPair> seen) {
+      if (types.size() != thatTypes.size())
+        return false;
+      for (int i = 0; i < types.size(); i++) {
+        if (!types.get(i).equals(thatTypes.get(i), seen))
+          return false;
+      }
+      return true;
     }
 
     @Override
-    int computeHash() {
-      int hash = super.computeHash();
+    int computeHash(Set<Schema> seen) {
+      int hash = super.computeHash(seen);
       for (Schema type : types)
-        hash += type.computeHash();
+        hash += type.computeHash(seen);
       return hash;
     }
 
@@ -1252,7 +1278,7 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    public boolean equals(Object o) {
+    boolean equals(Object o, Set<SeenPair> seen) {
       if (o == this)
         return true;
       if (!(o instanceof FixedSchema))
@@ -1262,8 +1288,8 @@ public abstract class Schema extends JsonProperties implements Serializable {
     }
 
     @Override
-    int computeHash() {
-      return super.computeHash() + size;
+    int computeHash(Set<Schema> seen) {
+      return super.computeHash(seen) + size;
     }
 
     @Override
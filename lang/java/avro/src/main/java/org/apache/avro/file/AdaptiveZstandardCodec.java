@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.util.ByteBufferPool;
+
+/**
+ * Compresses each block with Zstandard only if it is worth it. A sample of each
+ * large block is compressed first: blocks whose sample does not shrink, such as
+ * already compressed bytes, are stored as they are, and blocks whose sample
+ * barely shrinks are compressed at the fastest level. Each block starts with a
+ * byte that records whether it was stored or compressed.
+ */
+public class AdaptiveZstandardCodec extends Codec {
+
+  static class Option extends CodecFactory {
+    private final int compressionLevel;
+
+    Option(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new AdaptiveZstandardCodec(compressionLevel);
+    }
+  }
+
+  private static final byte STORED = 0;
+  private static final byte COMPRESSED = 1;
+
+  // blocks up to twice this size are compressed without sampling
+  private static final int SAMPLE_SIZE = 4096;
+  private static final int SAMPLE_SLICES = 4;
+  // store blocks whose sample compresses to more than this fraction of its size
+  private static final double STORE_RATIO = 0.95;
+  // use the fastest level for blocks whose sample compresses to more than this
+  private static final double FAST_RATIO = 0.8;
+  private static final int FAST_LEVEL = 1;
+
+  private final int compressionLevel;
+  private final ZstandardCodec codec;
+  private final ZstandardCodec fastCodec;
+
+  /** Create an AdaptiveZstandardCodec that compresses at a level. */
+  public AdaptiveZstandardCodec(int compressionLevel) {
+    this.compressionLevel = compressionLevel;
+    this.codec = new ZstandardCodec(compressionLevel, false);
+    this.fastCodec = compressionLevel > FAST_LEVEL ? new ZstandardCodec(FAST_LEVEL, false) : codec;
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.ADAPTIVE_ZSTANDARD_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data) throws IOException {
+    return transform(this::compress, data, data.remaining() + 1);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::compress, data, data.remaining() + 1, pool);
+  }
+
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::compress, in, out);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data) throws IOException {
+    return transform(this::decompress, data, decompressedSize(data));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::decompress, data, decompressedSize(data), pool);
+  }
+
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::decompress, in, out);
+  }
+
+  private ByteBuffer compress(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    int start = out.position();
+    int size = in.remaining();
+    ZstandardCodec c = choose(in);
+    if (c != null) {
+      out = ensureRemaining(out, 1, growth);
+      out.put(COMPRESSED);
+      try {
+        out = c.zstd(in.duplicate(), out, growth);
+        if (out.position() - start <= size) {
+          return out;
+        }
+      } catch (BufferOverflowException e) {
+        // the buffer cannot grow, but the block may fit stored
+      }
+      // it did not shrink, so store it instead
+      ((Buffer) out).position(start);
+    }
+    out = ensureRemaining(out, size + 1, growth);
+    out.put(STORED);
+    out.put(in);
+    return out;
+  }
+
+  // the codec to compress a block with, or null to store it
+  private ZstandardCodec choose(ByteBuffer in) throws IOException {
+    int size = in.remaining();
+    if (size == 0) {
+      return null;
+    }
+    if (size <= 2 * SAMPLE_SIZE) {
+      return codec;
+    }
+    // compress evenly spaced slices of the block at the fastest level
+    int slice = SAMPLE_SIZE / SAMPLE_SLICES;
+    int stride = (size - slice) / (SAMPLE_SLICES - 1);
+    byte[] sample = new byte[SAMPLE_SIZE];
+    ByteBuffer from = in.duplicate();
+    for (int i = 0; i < SAMPLE_SLICES; i++) {
+      ((Buffer) from).position(in.position() + i * stride);
+      from.get(sample, i * slice, slice);
+    }
+    double ratio = (double) fastCodec.compress(ByteBuffer.wrap(sample)).remaining() / SAMPLE_SIZE;
+    if (ratio > STORE_RATIO) {
+      return null;
+    }
+    return ratio > FAST_RATIO ? fastCodec : codec;
+  }
+
+  private ByteBuffer decompress(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    byte flag = flag(in);
+    ((Buffer) in).position(in.position() + 1);
+    if (flag == STORED) {
+      out = ensureRemaining(out, in.remaining(), growth);
+      out.put(in);
+      return out;
+    }
+    return codec.unzstd(in, out, growth);
+  }
+
+  private static int decompressedSize(ByteBuffer data) throws IOException {
+    ByteBuffer in = data.duplicate();
+    byte flag = flag(in);
+    ((Buffer) in).position(in.position() + 1);
+    return flag == STORED ? in.remaining() : ZstandardCodec.decompressedSize(in);
+  }
+
+  private static byte flag(ByteBuffer in) throws IOException {
+    if (!in.hasRemaining()) {
+      throw new IOException("Invalid adaptive zstandard block: empty");
+    }
+    byte flag = in.get(in.position());
+    if (flag != STORED && flag != COMPRESSED) {
+      throw new IOException("Invalid adaptive zstandard block flag: " + flag);
+    }
+    return flag;
+  }
+
+  @Override
+  public int hashCode() {
+    return getName().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "[" + compressionLevel + "]";
+  }
+}
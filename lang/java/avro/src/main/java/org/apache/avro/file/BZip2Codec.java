@@ -17,11 +17,10 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.apache.avro.util.ByteBufferPool;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 
@@ -29,9 +28,6 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream
 public class BZip2Codec extends Codec {
 
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
-  private final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-
-  private ByteArrayOutputStream outputBuffer;
 
   static class Option extends CodecFactory {
     @Override
@@ -47,28 +43,45 @@ public class BZip2Codec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer uncompressedData) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(uncompressedData.remaining());
+    return transform(this::bzip2, uncompressedData, uncompressedData.remaining());
+  }
 
-    try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(baos)) {
-      outputStream.write(uncompressedData.array(), computeOffset(uncompressedData), uncompressedData.remaining());
-    }
+  @Override
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBufferPool pool) throws IOException {
+    return transform(this::bzip2, uncompressedData, uncompressedData.remaining(), pool);
+  }
 
-    return ByteBuffer.wrap(baos.toByteArray());
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::bzip2, in, out);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
-        compressedData.remaining());
-    try (BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais)) {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    return transform(this::bunzip2, compressedData, decompressedSizeHint(compressedData));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBufferPool pool) throws IOException {
+    return transform(this::bunzip2, compressedData, decompressedSizeHint(compressedData), pool);
+  }
 
-      int readCount = -1;
-      while ((readCount = inputStream.read(buffer, compressedData.position(), buffer.length)) > 0) {
-        baos.write(buffer, 0, readCount);
-      }
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::bunzip2, in, out);
+  }
 
-      return ByteBuffer.wrap(baos.toByteArray());
+  private ByteBuffer bzip2(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    BufferOutputStream bytesOut = new BufferOutputStream(out, growth);
+    try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(bytesOut)) {
+      writeTo(in, outputStream);
+    }
+    return bytesOut.buffer();
+  }
+
+  private ByteBuffer bunzip2(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    try (BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(inputStream(in))) {
+      return readFully(inputStream, out, growth);
     }
   }
 
@@ -83,13 +96,4 @@ public class BZip2Codec extends Codec {
       return true;
     return obj != null && obj.getClass() == getClass();
   }
-
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
 }
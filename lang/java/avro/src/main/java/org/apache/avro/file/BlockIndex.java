@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * The positions, entry counts and uncompressed sizes of the blocks in a data
+ * file.
+ *
+ * An index is written by {@link DataFileWriter} as the payload of a block that
+ * holds no entries, followed by a locator, the payload of a last block without
+ * entries, that holds the position of the index block. Readers that skip blocks
+ * without entries just see two empty blocks. The payloads are compressed with
+ * the file's codec. The index is binary encoded as {@link #MAGIC}, the number of
+ * blocks, then for each block the distance from the previous block's position
+ * (or from zero), the number of entries and the uncompressed size, or -1 if that
+ * is not known. The locator is binary encoded as {@link #LOCATOR_MAGIC}, then
+ * the position of the index block.
+ */
+class BlockIndex {
+  static final byte[] MAGIC = new byte[] { (byte) 'I', (byte) 'd', (byte) 'x', 1 };
+  static final byte[] LOCATOR_MAGIC = new byte[] { (byte) 'I', (byte) 'd', (byte) 'x', (byte) '@' };
+  /** The most bytes the locator block, with its header, may take. */
+  static final int MAX_LOCATOR_BLOCK = 4096;
+
+  private long[] positions = new long[16];
+  private long[] firstEntries = new long[16];
+  private long[] uncompressedSizes = new long[16];
+  private int numBlocks;
+  private long numEntries;
+  private long end = -1;
+
+  /**
+   * Add a block, which must hold entries and start after all blocks already
+   * added.
+   */
+  void add(long position, long entries, long uncompressedSize) {
+    if (numBlocks == positions.length) {
+      int length = positions.length * 2;
+      positions = Arrays.copyOf(positions, length);
+      firstEntries = Arrays.copyOf(firstEntries, length);
+      uncompressedSizes = Arrays.copyOf(uncompressedSizes, length);
+    }
+    positions[numBlocks] = position;
+    firstEntries[numBlocks] = numEntries;
+    uncompressedSizes[numBlocks] = uncompressedSize;
+    numBlocks++;
+    numEntries += entries;
+  }
+
+  int getNumBlocks() {
+    return numBlocks;
+  }
+
+  long getNumEntries() {
+    return numEntries;
+  }
+
+  long getPosition(int block) {
+    return positions[block];
+  }
+
+  long getFirstEntry(int block) {
+    return firstEntries[block];
+  }
+
+  long getEntries(int block) {
+    return (block + 1 < numBlocks ? firstEntries[block + 1] : numEntries) - firstEntries[block];
+  }
+
+  long getUncompressedSize(int block) {
+    return uncompressedSizes[block];
+  }
+
+  /** The position of the block holding this index, or -1 if not known. */
+  long getEnd() {
+    return end;
+  }
+
+  void setEnd(long end) {
+    this.end = end;
+  }
+
+  /** Return the block holding an entry, which must be less than the count. */
+  int findBlock(long entry) {
+    int i = Arrays.binarySearch(firstEntries, 0, numBlocks, entry);
+    return i >= 0 ? i : -i - 2;
+  }
+
+  ByteBuffer encode() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + numBlocks * 8);
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bytes, null);
+    out.writeFixed(MAGIC);
+    out.writeLong(numBlocks);
+    long previous = 0;
+    for (int i = 0; i < numBlocks; i++) {
+      out.writeLong(positions[i] - previous);
+      out.writeLong(getEntries(i));
+      out.writeLong(uncompressedSizes[i]);
+      previous = positions[i];
+    }
+    out.flush();
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  /** Encode the locator of an index block at a position. */
+  static ByteBuffer encodeLocator(long position) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(LOCATOR_MAGIC.length + 10);
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bytes, null);
+    out.writeFixed(LOCATOR_MAGIC);
+    out.writeLong(position);
+    out.flush();
+    return ByteBuffer.wrap(bytes.toByteArray());
+  }
+
+  /**
+   * Decode the position of the index block from a locator, returning -1 if the
+   * data is not a locator.
+   */
+  static long decodeLocator(ByteBuffer data) throws IOException {
+    if (data.remaining() < LOCATOR_MAGIC.length) {
+      return -1;
+    }
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(data.duplicate(), null);
+    byte[] magic = new byte[LOCATOR_MAGIC.length];
+    in.readFixed(magic);
+    if (!Arrays.equals(LOCATOR_MAGIC, magic)) {
+      return -1;
+    }
+    long position = in.readLong();
+    return in.isEnd() ? position : -1;
+  }
+
+  /** Decode an index, returning null if the data is not an index. */
+  static BlockIndex decode(ByteBuffer data) throws IOException {
+    if (data.remaining() < MAGIC.length) {
+      return null;
+    }
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(data.array(), data.arrayOffset() + data.position(),
+        data.remaining(), null);
+    byte[] magic = new byte[MAGIC.length];
+    in.readFixed(magic);
+    if (!Arrays.equals(MAGIC, magic)) {
+      return null;
+    }
+    long numBlocks = in.readLong();
+    if (numBlocks < 0 || numBlocks > data.remaining()) {
+      throw new IOException("Invalid block index size: " + numBlocks);
+    }
+    BlockIndex index = new BlockIndex();
+    long position = 0;
+    for (long i = 0; i < numBlocks; i++) {
+      position += in.readLong();
+      long entries = in.readLong();
+      index.add(position, entries, in.readLong());
+    }
+    return index;
+  }
+}
@@ -17,8 +17,17 @@
  */
 package org.apache.avro.file;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import org.apache.avro.util.ByteBufferInputStream;
+import org.apache.avro.util.ByteBufferPool;
 
 /**
  * Interface for Avro-supported compression codecs for data files.
@@ -36,6 +45,66 @@ public abstract class Codec {
   /** Decompress the data */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
 
+  /**
+   * Compresses the input data into a buffer acquired from a pool. Unless it is
+   * the input itself, the caller releases the result to the pool once it is no
+   * longer used. By default the result of {@link #compress(ByteBuffer)} is
+   * copied into a buffer from the pool.
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBufferPool pool) throws IOException {
+    return pooled(compress(uncompressedData), uncompressedData, pool);
+  }
+
+  /**
+   * Decompress the data into a buffer acquired from a pool, as for
+   * {@link #compress(ByteBuffer, ByteBufferPool)}.
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBufferPool pool) throws IOException {
+    return pooled(decompress(compressedData), compressedData, pool);
+  }
+
+  /**
+   * Compresses the remaining bytes of in into out, starting at its position.
+   * Either buffer may be direct. The position of in is advanced to its limit,
+   * and that of out past the compressed bytes. By default the result of
+   * {@link #compress(ByteBuffer)} is copied into out.
+   *
+   * @return the number of bytes written to out
+   * @throws BufferOverflowException if out has too little room, in which case
+   *                                 neither position is changed
+   */
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return copy(compress(in), in, out);
+  }
+
+  /**
+   * Decompress the remaining bytes of in into out, as for
+   * {@link #compress(ByteBuffer, ByteBuffer)}.
+   */
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return copy(decompress(in), in, out);
+  }
+
+  private static ByteBuffer pooled(ByteBuffer result, ByteBuffer input, ByteBufferPool pool) {
+    if (result == input) {
+      return result;
+    }
+    ByteBuffer pooled = pool.acquire(result.remaining());
+    pooled.put(result.duplicate());
+    ((Buffer) pooled).flip();
+    return pooled;
+  }
+
+  private static int copy(ByteBuffer result, ByteBuffer in, ByteBuffer out) {
+    int size = result.remaining();
+    if (size > out.remaining()) {
+      throw new BufferOverflowException();
+    }
+    out.put(result.duplicate());
+    ((Buffer) in).position(in.limit());
+    return size;
+  }
+
   /**
    * Codecs must implement an equals() method. Two codecs, A and B are equal if:
    * the result of A and B decompressing content compressed by A is the same AND
@@ -61,4 +130,184 @@ public abstract class Codec {
   protected static int computeOffset(ByteBuffer data) {
     return data.arrayOffset() + data.position();
   }
+
+  // Data may also not be backed by an accessible array, e.g. when it is a block
+  // of a MappedSeekableInput, so codecs that use streams should read it with
+  // inputStream() and write it with writeTo().
+  protected static InputStream inputStream(ByteBuffer data) {
+    if (data.hasArray()) {
+      return new ByteArrayInputStream(data.array(), computeOffset(data), data.remaining());
+    }
+    return new ByteBufferInputStream(Collections.singletonList(data.duplicate()));
+  }
+
+  protected static void writeTo(ByteBuffer data, OutputStream out) throws IOException {
+    if (data.hasArray()) {
+      out.write(data.array(), computeOffset(data), data.remaining());
+      return;
+    }
+    ByteBuffer in = data.duplicate();
+    byte[] buffer = new byte[Math.min(in.remaining(), 8192)];
+    while (in.hasRemaining()) {
+      int n = Math.min(buffer.length, in.remaining());
+      in.get(buffer, 0, n);
+      out.write(buffer, 0, n);
+    }
+  }
+
+  /**
+   * How a codec makes room in the buffer it writes to. Called only when out has
+   * fewer than minRemaining bytes remaining, it either throws
+   * {@link BufferOverflowException} or returns a buffer with enough room that
+   * holds what was written to out, positioned after it.
+   */
+  interface BufferGrowth {
+    ByteBuffer grow(ByteBuffer out, int minRemaining);
+  }
+
+  /**
+   * The work of a codec: reads the remaining bytes of in and writes the result
+   * to out, returning out or the buffer that replaced it as it grew.
+   */
+  interface BufferTransform {
+    ByteBuffer transform(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException;
+  }
+
+  static final BufferGrowth FIXED = (out, minRemaining) -> {
+    throw new BufferOverflowException();
+  };
+
+  static final BufferGrowth HEAP = (out, minRemaining) -> {
+    if (out.capacity() - out.position() >= minRemaining) {
+      ((Buffer) out).limit(out.capacity());
+      return out;
+    }
+    return moveTo(ByteBuffer.allocate(newCapacity(out, minRemaining)), out);
+  };
+
+  static BufferGrowth growFrom(ByteBufferPool pool) {
+    return (out, minRemaining) -> {
+      if (out.capacity() - out.position() >= minRemaining) {
+        ((Buffer) out).limit(out.capacity());
+        return out;
+      }
+      ByteBuffer larger = moveTo(pool.acquire(newCapacity(out, minRemaining)), out);
+      pool.release(out);
+      return larger;
+    };
+  }
+
+  private static int newCapacity(ByteBuffer out, int minRemaining) {
+    long capacity = Math.max(2L * out.capacity(), (long) out.position() + minRemaining);
+    if (capacity > Integer.MAX_VALUE - 8) {
+      if ((long) out.position() + minRemaining > Integer.MAX_VALUE - 8) {
+        throw new BufferOverflowException();
+      }
+      capacity = Integer.MAX_VALUE - 8;
+    }
+    return (int) capacity;
+  }
+
+  private static ByteBuffer moveTo(ByteBuffer larger, ByteBuffer out) {
+    ((Buffer) out).flip();
+    larger.put(out);
+    return larger;
+  }
+
+  static ByteBuffer ensureRemaining(ByteBuffer out, int size, BufferGrowth growth) {
+    return out.remaining() >= size ? out : growth.grow(out, size);
+  }
+
+  // implements compress(in, out) and decompress(in, out)
+  static int transform(BufferTransform codec, ByteBuffer in, ByteBuffer out) throws IOException {
+    ByteBuffer written = codec.transform(in.duplicate(), out.duplicate(), FIXED);
+    int size = written.position() - out.position();
+    ((Buffer) in).position(in.limit());
+    ((Buffer) out).position(written.position());
+    return size;
+  }
+
+  // implements compress(data) and decompress(data), into a new heap buffer
+  static ByteBuffer transform(BufferTransform codec, ByteBuffer in, int sizeHint) throws IOException {
+    ByteBuffer out = codec.transform(in.duplicate(), ByteBuffer.allocate(sizeHint), HEAP);
+    ((Buffer) out).flip();
+    return out;
+  }
+
+  // implements compress(data, pool) and decompress(data, pool)
+  static ByteBuffer transform(BufferTransform codec, ByteBuffer in, int sizeHint, ByteBufferPool pool)
+      throws IOException {
+    ByteBuffer out = codec.transform(in.duplicate(), pool.acquire(sizeHint), growFrom(pool));
+    ((Buffer) out).flip();
+    return out;
+  }
+
+  // a guess at the size of data once decompressed
+  static int decompressedSizeHint(ByteBuffer in) {
+    return (int) Math.min(4L * in.remaining() + 64, Integer.MAX_VALUE - 8);
+  }
+
+  // read a stream to its end into out
+  static ByteBuffer readFully(InputStream in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    byte[] chunk = null;
+    while (true) {
+      if (!out.hasRemaining()) {
+        // only grow if there is more to read
+        int b = in.read();
+        if (b < 0) {
+          return out;
+        }
+        out = growth.grow(out, 1);
+        out.put((byte) b);
+        continue;
+      }
+      int n;
+      if (out.hasArray()) {
+        n = in.read(out.array(), computeOffset(out), out.remaining());
+        if (n > 0) {
+          ((Buffer) out).position(out.position() + n);
+        }
+      } else {
+        if (chunk == null) {
+          chunk = new byte[CHUNK_SIZE];
+        }
+        n = in.read(chunk, 0, Math.min(chunk.length, out.remaining()));
+        if (n > 0) {
+          out.put(chunk, 0, n);
+        }
+      }
+      if (n < 0) {
+        return out;
+      }
+    }
+  }
+
+  static final int CHUNK_SIZE = 8192;
+
+  /** An output stream that writes to a buffer, growing it as needed. */
+  static final class BufferOutputStream extends OutputStream {
+    private ByteBuffer out;
+    private final BufferGrowth growth;
+
+    BufferOutputStream(ByteBuffer out, BufferGrowth growth) {
+      this.out = out;
+      this.growth = growth;
+    }
+
+    ByteBuffer buffer() {
+      return out;
+    }
+
+    @Override
+    public void write(int b) {
+      out = ensureRemaining(out, 1, growth);
+      out.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      out = ensureRemaining(out, len, growth);
+      out.put(b, off, len);
+    }
+  }
 }
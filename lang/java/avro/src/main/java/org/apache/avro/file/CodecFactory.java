@@ -103,6 +103,51 @@ public abstract class CodecFactory {
     return new ZstandardCodec.Option(level, useChecksum);
   }
 
+  /**
+   * zstandard codec, with specific compression level and a dictionary, such as
+   * one from {@link ZstandardCodec#trainDictionary(Iterable, int)}. The
+   * dictionary is stored in the metadata of data files written with it, and used
+   * to read them.
+   *
+   * @param level      The compression level, as for {@link #zstandardCodec(int)}.
+   * @param dictionary The dictionary to compress with.
+   */
+  public static CodecFactory zstandardCodec(int level, byte[] dictionary) {
+    return new ZstandardCodec.Option(level, false, dictionary);
+  }
+
+  /**
+   * zstandard codec that only compresses blocks that shrink, with specific
+   * compression level. Blocks that do not compress, judged from a sample of
+   * them, are stored as they are, so that no time is spent compressing them.
+   *
+   * @param level The compression level, as for {@link #zstandardCodec(int)}.
+   */
+  public static CodecFactory adaptiveZstandardCodec(int level) {
+    return new AdaptiveZstandardCodec.Option(level);
+  }
+
+  /** LZ4 codec, using the fast compressor. */
+  public static CodecFactory lz4Codec() {
+    return lz4Codec(DEFAULT_LZ4_LEVEL);
+  }
+
+  /**
+   * LZ4 codec, with specific compression level.
+   *
+   * @param level Levels below 1 use the fast compressor, while levels from 1 to
+   *              17, inclusive, use the high compression (HC) compressor, which
+   *              is slower to compress but decompresses as fast.
+   */
+  public static CodecFactory lz4Codec(int level) {
+    try {
+      return new Lz4Codec.Option(level);
+    } catch (Throwable t) {
+      LOG.debug("LZ4 was not available", t);
+      return null;
+    }
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
@@ -115,6 +160,7 @@ public abstract class CodecFactory {
   public static final int DEFAULT_DEFLATE_LEVEL = Deflater.DEFAULT_COMPRESSION;
   public static final int DEFAULT_XZ_LEVEL = XZCodec.DEFAULT_COMPRESSION;
   public static final int DEFAULT_ZSTANDARD_LEVEL = 3;
+  public static final int DEFAULT_LZ4_LEVEL = 0;
 
   static {
     addCodec(DataFileConstants.NULL_CODEC, nullCodec());
@@ -123,12 +169,14 @@ public abstract class CodecFactory {
     addCodec(DataFileConstants.XZ_CODEC, xzCodec(DEFAULT_XZ_LEVEL));
     addCodec(DataFileConstants.ZSTANDARD_CODEC, zstandardCodec(DEFAULT_ZSTANDARD_LEVEL));
     addCodec(DataFileConstants.SNAPPY_CODEC, snappyCodec());
+    addCodec(DataFileConstants.LZ4_CODEC, lz4Codec());
+    addCodec(DataFileConstants.ADAPTIVE_ZSTANDARD_CODEC, adaptiveZstandardCodec(DEFAULT_ZSTANDARD_LEVEL));
   }
 
   /**
    * Maps a codec name into a CodecFactory.
    *
-   * Currently there are six codecs registered by default:
+   * Currently there are eight codecs registered by default:
    * <ul>
    * <li>{@code null}</li>
    * <li>{@code deflate}</li>
@@ -136,6 +184,8 @@ public abstract class CodecFactory {
    * <li>{@code bzip2}</li>
    * <li>{@code xz}</li>
    * <li>{@code zstandard}</li>
+   * <li>{@code lz4}</li>
+   * <li>{@code adaptive-zstandard}</li>
    * </ul>
    */
   public static CodecFactory fromString(String s) {
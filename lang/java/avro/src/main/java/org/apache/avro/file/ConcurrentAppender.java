@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.apache.avro.file.DataFileStream.DataBlock;
+import org.apache.avro.file.DataFileWriter.AppendWriteException;
+import org.apache.avro.file.DataFileWriter.NonCopyingByteArrayOutputStream;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * Appends data from many threads to a single {@link DataFileWriter}. Each
+ * thread encodes and compresses its own blocks, so appends from different
+ * threads do not contend with each other. Completed blocks are queued and
+ * written by whichever thread finds the writer free, so the entries appended
+ * by a thread appear in the file in order, but the blocks of different threads
+ * are interleaved.
+ *
+ * An entry is only written once its thread's block is full, or on
+ * {@linkplain #flush()} or {@linkplain #close()}, which collect the partial
+ * blocks of all threads, or once its thread has ended and another thread starts
+ * appending. The block of a thread that has ended is then dropped along with
+ * its buffer, so that short lived threads, such as a thread per task, do not
+ * leave buffers behind. The writer should not be used directly while this is in
+ * use.
+ */
+public class ConcurrentAppender<D> implements Closeable, Flushable {
+  private static final int MAX_QUEUED_BLOCKS_PER_PRODUCER = 2;
+  private static final int MIN_PRODUCERS_TO_PRUNE = 16;
+
+  private final DataFileWriter<?> writer;
+  private final Supplier<? extends DatumWriter<D>> datumWriters;
+  // the producer of each appending thread, until the thread has ended
+  private final Map<Thread, Producer> producers = new ConcurrentHashMap<>();
+  // the number of producers at which those of ended threads are next dropped
+  private final AtomicInteger pruneAt = new AtomicInteger(MIN_PRODUCERS_TO_PRUNE);
+  private final Queue<Sealed> completed = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger numCompleted = new AtomicInteger();
+  private final Queue<NonCopyingByteArrayOutputStream> freeBuffers = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  /**
+   * Construct an appender to a writer, which must be open.
+   *
+   * @param writer       the writer that blocks are written to
+   * @param datumWriters supplies a datum writer for each appending thread
+   */
+  public ConcurrentAppender(DataFileWriter<?> writer, Supplier<? extends DatumWriter<D>> datumWriters) {
+    if (writer.getSchema() == null) {
+      throw new IllegalStateException("writer not open");
+    }
+    this.writer = writer;
+    this.datumWriters = datumWriters;
+  }
+
+  /**
+   * Append a datum to the current thread's block, writing the block once it is
+   * full.
+   *
+   * @see AppendWriteException
+   */
+  public void append(D datum) throws IOException {
+    Producer p = producer();
+    if (p.append(datum)) {
+      // block on the writer once blocks queue faster than it writes them
+      writeCompleted(numCompleted.get() > MAX_QUEUED_BLOCKS_PER_PRODUCER * producers.size());
+    }
+  }
+
+  /** Write the blocks of all threads, including partial blocks, and flush. */
+  @Override
+  public void flush() throws IOException {
+    for (Producer p : producers.values()) {
+      p.seal();
+    }
+    prune();
+    writeLock.lock();
+    try {
+      writeCompleted(true);
+      writer.flush();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /** Write the blocks of all threads, then close the writer. */
+  @Override
+  public void close() throws IOException {
+    flush();
+    writeLock.lock();
+    try {
+      writer.close();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private Producer producer() throws IOException {
+    Thread thread = Thread.currentThread();
+    Producer p = producers.get(thread);
+    if (p == null) {
+      // a new thread, so maybe some others have ended
+      if (producers.size() >= pruneAt.get()) {
+        prune();
+      }
+      p = new Producer(datumWriters.get());
+      producers.put(thread, p);
+    }
+    return p;
+  }
+
+  // queue the blocks of threads that have ended and drop their producers, so
+  // that the producers kept, and the buffers they hold, are bounded by the
+  // number of live threads. Producers are dropped once the map has doubled in
+  // size since, so that this takes constant time per producer made.
+  private void prune() throws IOException {
+    for (Map.Entry<Thread, Producer> entry : producers.entrySet()) {
+      if (!entry.getKey().isAlive()) {
+        entry.getValue().retire();
+        producers.remove(entry.getKey(), entry.getValue());
+      }
+    }
+    pruneAt.set(Math.max(MIN_PRODUCERS_TO_PRUNE, 2 * producers.size()));
+  }
+
+  /** The number of producers kept, for tests. */
+  int numProducers() {
+    return producers.size();
+  }
+
+  private NonCopyingByteArrayOutputStream newBuffer() {
+    NonCopyingByteArrayOutputStream buffer = freeBuffers.poll();
+    if (buffer == null) {
+      int syncInterval = writer.getSyncInterval();
+      buffer = new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
+    }
+    return buffer;
+  }
+
+  // write the queued blocks unless another thread is, in which case it will
+  // write them, or wait for it and then write them
+  private void writeCompleted(boolean wait) throws IOException {
+    do {
+      if (wait) {
+        writeLock.lock();
+      } else if (!writeLock.tryLock()) {
+        return;
+      }
+      try {
+        for (Sealed sealed = completed.poll(); sealed != null; sealed = completed.poll()) {
+          numCompleted.decrementAndGet();
+          try {
+            writer.writeCompressedBlock(sealed.block, sealed.uncompressedSize);
+            sealed.block.releasePooled();
+          } finally {
+            sealed.buffer.reset();
+            freeBuffers.offer(sealed.buffer);
+          }
+        }
+      } finally {
+        writeLock.unlock();
+      }
+      // recheck for blocks queued while the lock was held, whose threads could
+      // not take the lock
+    } while (!completed.isEmpty());
+  }
+
+  private static class Sealed {
+    private final DataBlock block;
+    private final long uncompressedSize;
+    private final NonCopyingByteArrayOutputStream buffer;
+
+    Sealed(DataBlock block, long uncompressedSize, NonCopyingByteArrayOutputStream buffer) {
+      this.block = block;
+      this.uncompressedSize = uncompressedSize;
+      this.buffer = buffer;
+    }
+  }
+
+  /**
+   * The block being appended to by a thread. It is only locked by other threads
+   * when they seal it on flush, or retire it once the thread has ended.
+   */
+  private class Producer {
+    private final DatumWriter<D> dout;
+    private final Codec codec;
+    private final int syncInterval;
+    private final boolean flushOnEveryBlock;
+    private NonCopyingByteArrayOutputStream buffer;
+    private BinaryEncoder bufOut;
+    private long blockCount;
+
+    Producer(DatumWriter<D> dout) {
+      this.dout = dout;
+      dout.setSchema(writer.getSchema());
+      this.codec = writer.getCodecFactory().createInstance();
+      this.syncInterval = writer.getSyncInterval();
+      this.flushOnEveryBlock = writer.isFlushOnEveryBlock();
+      this.buffer = newBuffer();
+      this.bufOut = EncoderFactory.get().binaryEncoder(buffer, null);
+    }
+
+    // returns true if a block was completed
+    synchronized boolean append(D datum) throws IOException {
+      int usedBuffer = buffer.size() + bufOut.bytesBuffered();
+      try {
+        dout.write(datum, bufOut);
+      } catch (IOException | RuntimeException e) {
+        // discard the partial datum
+        bufOut.flush();
+        buffer.truncate(usedBuffer);
+        throw new AppendWriteException(e);
+      }
+      blockCount++;
+      if (buffer.size() + bufOut.bytesBuffered() >= syncInterval) {
+        seal();
+        return true;
+      }
+      return false;
+    }
+
+    // compress the current block and queue it to be written
+    synchronized void seal() throws IOException {
+      if (blockCount == 0) {
+        return;
+      }
+      bufOut.flush();
+      DataBlock block = new DataBlock(buffer.getByteArrayAsByteBuffer(), blockCount);
+      block.setFlushOnWrite(flushOnEveryBlock);
+      block.setPool(writer.getBufferPool());
+      long uncompressedSize = buffer.size();
+      block.compressUsing(codec);
+      completed.add(new Sealed(block, uncompressedSize, buffer));
+      numCompleted.incrementAndGet();
+      buffer = newBuffer();
+      bufOut = EncoderFactory.get().binaryEncoder(buffer, bufOut);
+      blockCount = 0;
+    }
+
+    // queue the block of a thread that has ended and free its buffer; a
+    // retired producer holds no entries, so later seals do nothing
+    synchronized void retire() throws IOException {
+      if (buffer != null) {
+        seal();
+        buffer.reset();
+        freeBuffers.offer(buffer);
+        buffer = null;
+        bufOut = null;
+      }
+    }
+  }
+}
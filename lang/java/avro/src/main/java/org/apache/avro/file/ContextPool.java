@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of the contexts that codecs compress and decompress with,
+ * which hold large native or heap state that is expensive to set up. Pools are
+ * shared by all instances of a codec, so that the readers and writers of every
+ * file, on any thread, reuse the same few contexts. A context is only held by
+ * the call that acquired it, and contexts released beyond the bound are
+ * disposed of.
+ */
+final class ContextPool<T> {
+  /** The default bound, enough for each processor to compress and decompress. */
+  static final int DEFAULT_MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+  private final Supplier<T> factory;
+  private final Consumer<T> disposer;
+  private final int maxPooled;
+  private final ArrayDeque<T> free = new ArrayDeque<>();
+
+  ContextPool(Supplier<T> factory, Consumer<T> disposer) {
+    this(factory, disposer, DEFAULT_MAX_POOLED);
+  }
+
+  ContextPool(Supplier<T> factory, Consumer<T> disposer, int maxPooled) {
+    this.factory = factory;
+    this.disposer = disposer;
+    this.maxPooled = maxPooled;
+  }
+
+  /** Return a pooled context, or a new one if none is free. */
+  T acquire() {
+    T context;
+    synchronized (free) {
+      context = free.pollFirst();
+    }
+    return context != null ? context : factory.get();
+  }
+
+  /** Return a context that is no longer used to the pool. */
+  void release(T context) {
+    synchronized (free) {
+      if (free.size() < maxPooled) {
+        // the most recently used context is reused first, while it is warm
+        free.addFirst(context);
+        return;
+      }
+    }
+    disposer.accept(context);
+  }
+}
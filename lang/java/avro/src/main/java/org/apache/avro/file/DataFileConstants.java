@@ -33,11 +33,20 @@ public class DataFileConstants {
 
   public static final String SCHEMA = "avro.schema";
   public static final String CODEC = "avro.codec";
+  /** Set when the file ends with a block index. */
+  public static final String BLOCK_INDEX = "avro.index";
+  /** The dictionary that blocks are compressed with by the zstandard-dictionary codec. */
+  public static final String ZSTANDARD_DICTIONARY = "avro.codec.zstandard.dictionary";
+  /** The level that blocks are compressed at by the zstandard-dictionary codec. */
+  public static final String ZSTANDARD_LEVEL = "avro.codec.zstandard.level";
   public static final String NULL_CODEC = "null";
   public static final String DEFLATE_CODEC = "deflate";
   public static final String SNAPPY_CODEC = "snappy";
   public static final String BZIP2_CODEC = "bzip2";
   public static final String XZ_CODEC = "xz";
   public static final String ZSTANDARD_CODEC = "zstandard";
+  public static final String LZ4_CODEC = "lz4";
+  public static final String ADAPTIVE_ZSTANDARD_CODEC = "adaptive-zstandard";
+  public static final String ZSTANDARD_DICTIONARY_CODEC = "zstandard-dictionary";
 
 }
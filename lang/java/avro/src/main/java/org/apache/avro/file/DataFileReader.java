@@ -17,12 +17,22 @@
  */
 package org.apache.avro.file;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.avro.io.DatumReader;
@@ -38,6 +48,8 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
   private SeekableInputStream sin;
   private long blockStart;
   private int[] partialMatchTable;
+  private BlockIndex blockIndex;
+  private boolean blockIndexRead;
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader) throws IOException {
@@ -88,6 +100,39 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     return dreader;
   }
 
+  /**
+   * Return a parallel stream of the entries in a file. The file is partitioned
+   * on synchronization points into about the given number of splits, as
+   * MapReduce does with {@link #sync(long)} and {@link #pastSync(long)}, and
+   * each split is decoded by its own reader, so that a single file may be read
+   * on the threads of the common {@link java.util.concurrent.ForkJoinPool}.
+   * Entries are in file order unless the stream is made unordered.
+   *
+   * <p>
+   * The input is shared by all splits and is not closed by the stream. A
+   * {@link SeekableFileInput} is read by all splits at once, with positional
+   * reads of its channel. Splits of any other input serialize their reads on it,
+   * so that only decoding runs in parallel; for such inputs, the scan is only
+   * faster when decoding, rather than reading, takes most of the time.
+   *
+   * @param in      the file to read.
+   * @param readers supplies a new datum reader for each split, since datum
+   *                readers are not thread safe.
+   * @param splits  the number of splits to partition the file into.
+   */
+  public static <D> Stream<D> parallelScan(SeekableInput in, Supplier<? extends DatumReader<D>> readers, int splits)
+      throws IOException {
+    if (splits < 1) {
+      throw new IllegalArgumentException("Invalid splits value: " + splits);
+    }
+    Header header;
+    in.seek(0);
+    try (DataFileReader<D> headerReader = new DataFileReader<>(new NonClosingInput(in), readers.get())) {
+      header = headerReader.getHeader();
+    }
+    return StreamSupport.stream(new DataFileSpliterator<>(in, header, readers, splits), true);
+  }
+
   /**
    * Construct a reader for a file. For example,if you want to read a file
    * record,you need to close the resource. You can use try-with-resource as
@@ -153,6 +198,7 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
    * not saved while writing a file, use {@link #sync(long)} instead.
    */
   public void seek(long position) throws IOException {
+    discardPrefetched();
     sin.seek(position);
     vin = DecoderFactory.get().binaryDecoder(this.sin, vin);
     datumIn = null;
@@ -160,6 +206,185 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     blockStart = position;
   }
 
+  /**
+   * Return true if this file ends with a block index, as written by a
+   * {@link DataFileWriter} with {@link DataFileWriter#setWriteBlockIndex(boolean)}
+   * set.
+   */
+  public boolean hasBlockIndex() throws IOException {
+    return getBlockIndex() != null;
+  }
+
+  /**
+   * Return the number of blocks in this file, as recorded in its block index.
+   *
+   * @throws AvroRuntimeException if the file has no block index.
+   */
+  public int getNumBlocks() throws IOException {
+    return requireBlockIndex().getNumBlocks();
+  }
+
+  /**
+   * Return the number of entries in this file, as recorded in its block index.
+   *
+   * @throws AvroRuntimeException if the file has no block index.
+   */
+  public long getNumRecords() throws IOException {
+    return requireBlockIndex().getNumEntries();
+  }
+
+  /**
+   * Move to the entry with the given number, counting from zero, so that it is
+   * returned by the next call to {@link #next()}. Uses the block index to seek to
+   * the block holding the entry, then skips over the entries before it in that
+   * block.
+   *
+   * @throws AvroRuntimeException if the file has no block index.
+   */
+  public void seekToRecord(long record) throws IOException {
+    BlockIndex index = requireBlockIndex();
+    if (record < 0 || record > index.getNumEntries()) {
+      throw new IllegalArgumentException("Invalid record: " + record + ", file has " + index.getNumEntries());
+    }
+    if (record == index.getNumEntries()) {
+      seek(index.getEnd());
+      return;
+    }
+    int block = index.findBlock(record);
+    seek(index.getPosition(block));
+    long skip = record - index.getFirstEntry(block);
+    if (skip > 0) {
+      hasNext(); // read the block
+      for (; skip > 0; skip--) {
+        GenericDatumReader.skip(getSchema(), datumIn);
+        blockRemaining--;
+      }
+    }
+  }
+
+  private BlockIndex requireBlockIndex() throws IOException {
+    BlockIndex index = getBlockIndex();
+    if (index == null) {
+      throw new AvroRuntimeException("File has no block index");
+    }
+    return index;
+  }
+
+  /** Return the block index of this file, or null if it has none. */
+  BlockIndex getBlockIndex() throws IOException {
+    if (!blockIndexRead) {
+      if (getMeta(DataFileConstants.BLOCK_INDEX) != null) {
+        long position = sin.tell();
+        try {
+          blockIndex = readBlockIndex();
+        } finally {
+          sin.seek(position);
+        }
+      }
+      blockIndexRead = true;
+    }
+    return blockIndex;
+  }
+
+  // find the locator, the last block of the file, which is small enough to be
+  // in a window of bounded size before the final sync, and read the block index
+  // at the position it holds. A file whose writer was not closed ends with a
+  // block of entries instead, and is taken to have no index.
+  private BlockIndex readBlockIndex() throws IOException {
+    final byte[] sync = getHeader().sync;
+    final long finalSync = sin.length() - SYNC_SIZE;
+    if (finalSync < MAGIC.length || !Arrays.equals(sync, readFully(finalSync, SYNC_SIZE))) {
+      return null;
+    }
+    long from = Math.max(0, finalSync - BlockIndex.MAX_LOCATOR_BLOCK);
+    byte[] bytes = readFully(from, (int) (finalSync - from));
+    for (int i = bytes.length - SYNC_SIZE; i >= 0; i--) {
+      if (matchesSync(bytes, i, sync)) {
+        ByteBuffer locator = readEmptyBlock(bytes, i + SYNC_SIZE);
+        long position = locator == null ? -1 : BlockIndex.decodeLocator(locator);
+        // the index block ends with the sync just found
+        long indexEnd = from + i;
+        if (position < MAGIC.length || position >= indexEnd || indexEnd - position > Integer.MAX_VALUE) {
+          return null;
+        }
+        ByteBuffer data = readEmptyBlock(readFully(position, (int) (indexEnd - position)), 0);
+        BlockIndex index = data == null ? null : BlockIndex.decode(data);
+        if (index != null) {
+          index.setEnd(position);
+        }
+        return index;
+      }
+    }
+    return null;
+  }
+
+  // decompress the data of a block that holds no entries and takes up the rest
+  // of the bytes from an offset, less its sync, or return null if they do not
+  // hold such a block
+  private ByteBuffer readEmptyBlock(byte[] bytes, int offset) throws IOException {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(bytes, offset, bytes.length - offset, null);
+    long entries = in.readLong();
+    long size = in.readLong();
+    if (entries != 0 || size < 0 || size > bytes.length - offset) {
+      return null;
+    }
+    byte[] data = new byte[(int) size];
+    in.readFixed(data);
+    if (!in.isEnd()) {
+      return null;
+    }
+    return resolveCodec().decompress(ByteBuffer.wrap(data));
+  }
+
+  private byte[] readFully(long position, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    sin.seek(position);
+    for (int n = 0; n < length;) {
+      int read = sin.read(bytes, n, length - n);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      n += read;
+    }
+    return bytes;
+  }
+
+  private static boolean matchesSync(byte[] bytes, int offset, byte[] sync) {
+    for (int i = 0; i < SYNC_SIZE; i++) {
+      if (bytes[offset + i] != sync[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Build a block index by reading the headers of the blocks from the current
+   * position, ending it after the last block of entries, before any trailing
+   * blocks without entries, such as an old index, or a partially written block.
+   */
+  BlockIndex scanBlockIndex() throws IOException {
+    BlockIndex index = new BlockIndex();
+    DataBlock block = null;
+    long position = rawBlockEnd();
+    long end = position;
+    try {
+      while (hasNextBlock()) {
+        block = nextRawBlock(block);
+        long next = rawBlockEnd();
+        if (block.getNumEntries() > 0) {
+          index.add(position, block.getNumEntries(), -1);
+          end = next;
+        }
+        position = next;
+      }
+    } catch (EOFException e) {
+      // a partially written block
+    }
+    index.setEnd(end);
+    return index;
+  }
+
   /**
    * Move to the next synchronization point after a position. To process a range
    * of file entires, call this with the starting position, then check
@@ -229,7 +454,27 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
 
   @Override
   protected void blockFinished() throws IOException {
-    blockStart = sin.tell() - vin.inputStream().available();
+    blockStart = isReadingAhead() ? readAheadBlockEnd : rawBlockEnd();
+  }
+
+  @Override
+  long rawBlockEnd() throws IOException {
+    return sin.tell() - vin.inputStream().available();
+  }
+
+  @Override
+  FileChannel getFileChannel() {
+    return sin.in instanceof FileInputStream ? ((FileInputStream) sin.in).getChannel() : null;
+  }
+
+  @Override
+  ByteBuffer mapRawBlock(int size) throws IOException {
+    if (!(sin.in instanceof MappedSeekableInput)) {
+      return null;
+    }
+    ByteBuffer data = ((MappedSeekableInput) sin.in).getBuffer(rawBlockEnd(), size);
+    vin.skipFixed(size);
+    return data;
   }
 
   /** Return the last synchronization point before our current position. */
@@ -243,9 +488,47 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     return ((blockStart >= position + SYNC_SIZE) || (blockStart >= sin.length()));
   }
 
+  /**
+   * Return the current position in the input. While blocks are read ahead, see
+   * {@link #setDecompressionExecutor(java.util.concurrent.Executor, int)}, this
+   * is the end of the block being read rather than of the blocks read past it.
+   */
   @Override
   public long tell() throws IOException {
-    return sin.tell();
+    return isReadingAhead() && hasReadAhead() ? readAheadBlockEnd : sin.tell();
+  }
+
+  /** A {@link SeekableInput} that leaves the input it wraps open. */
+  private static class NonClosingInput implements SeekableInput {
+    private final SeekableInput in;
+
+    NonClosingInput(SeekableInput in) {
+      this.in = in;
+    }
+
+    @Override
+    public void seek(long p) throws IOException {
+      in.seek(p);
+    }
+
+    @Override
+    public long tell() throws IOException {
+      return in.tell();
+    }
+
+    @Override
+    public long length() throws IOException {
+      return in.length();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return in.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
   }
 
   static class SeekableInputStream extends InputStream implements SeekableInput {
@@ -299,10 +582,10 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
       long length = in.length();
       long remaining = length - position;
       if (remaining > skip) {
-        in.seek(skip);
+        in.seek(position + skip);
         return in.tell() - position;
       } else {
-        in.seek(remaining);
+        in.seek(length);
         return in.tell() - position;
       }
     }
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.file.DataFileStream.Header;
+import org.apache.avro.io.DatumReader;
+
+/**
+ * A {@link Spliterator} over the entries in a byte range of a data file. Like
+ * a MapReduce split, a range holds the entries of the blocks that start after
+ * the first synchronization point at or past its start, up to and including the
+ * block that contains its end. Ranges are split on byte boundaries into
+ * whole multiples of a minimum length, so that a file is split into as many
+ * ranges as asked for, each of which may be read on its own thread.
+ *
+ * @see DataFileReader#parallelScan(SeekableInput, Supplier, int)
+ */
+class DataFileSpliterator<D> implements Spliterator<D> {
+  private final SharedInput input;
+  private final Header header;
+  private final Supplier<? extends DatumReader<D>> readers;
+  private final long minSplitLength;
+  private long start;
+  private final long end;
+  private DataFileReader<D> reader;
+  private boolean finished;
+
+  DataFileSpliterator(SeekableInput in, Header header, Supplier<? extends DatumReader<D>> readers, int splits)
+      throws IOException {
+    this(new SharedInput(in), header, readers, Math.max(1, in.length() / Math.max(1, splits)), 0, in.length());
+  }
+
+  private DataFileSpliterator(SharedInput input, Header header, Supplier<? extends DatumReader<D>> readers,
+      long minSplitLength, long start, long end) {
+    this.input = input;
+    this.header = header;
+    this.readers = readers;
+    this.minSplitLength = minSplitLength;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super D> action) {
+    if (finished) {
+      return false;
+    }
+    try {
+      if (reader == null) {
+        reader = new DataFileReader<>(new RangeInput(input), readers.get(), header);
+        reader.sync(start);
+      }
+      if (!reader.pastSync(end) && reader.hasNext()) {
+        action.accept(reader.next(null));
+        return true;
+      }
+      finished = true;
+      reader.close();
+      reader = null;
+      return false;
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  @Override
+  public Spliterator<D> trySplit() {
+    long parts = (end - start) / minSplitLength;
+    if (reader != null || finished || parts < 2) {
+      return null;
+    }
+    long middle = start + (parts / 2) * minSplitLength;
+    DataFileSpliterator<D> prefix = new DataFileSpliterator<>(input, header, readers, minSplitLength, start, middle);
+    this.start = middle;
+    return prefix;
+  }
+
+  /** Returns the length in bytes of the range, not a count of entries. */
+  @Override
+  public long estimateSize() {
+    return end - start;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  /**
+   * The {@link SeekableInput} shared by the readers of all ranges. A file, such
+   * as a {@link SeekableFileInput}, is read with positional reads of its
+   * channel, which may run concurrently. Any other input is positioned and read
+   * while holding its lock, so that it need not be thread safe.
+   */
+  private static class SharedInput {
+    private final SeekableInput in;
+    private final FileChannel channel;
+    private final long length;
+
+    SharedInput(SeekableInput in) throws IOException {
+      this.in = in;
+      this.channel = in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : null;
+      this.length = in.length();
+    }
+
+    int read(long position, byte[] b, int off, int len) throws IOException {
+      if (channel != null) {
+        return channel.read(ByteBuffer.wrap(b, off, len), position);
+      }
+      synchronized (in) {
+        in.seek(position);
+        return in.read(b, off, len);
+      }
+    }
+  }
+
+  /** A view of a {@link SharedInput} with its own position. */
+  private static class RangeInput implements SeekableInput {
+    private final SharedInput input;
+    private long position;
+
+    RangeInput(SharedInput input) {
+      this.input = input;
+    }
+
+    @Override
+    public void seek(long p) throws IOException {
+      position = p;
+    }
+
+    @Override
+    public long tell() throws IOException {
+      return position;
+    }
+
+    @Override
+    public long length() throws IOException {
+      return input.length;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (position >= input.length) {
+        return -1;
+      }
+      int n = input.read(position, b, off, len);
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    /** The shared input is owned by the caller and is left open. */
+    @Override
+    public void close() throws IOException {
+    }
+  }
+}
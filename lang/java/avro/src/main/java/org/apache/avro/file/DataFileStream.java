@@ -20,17 +20,27 @@ package org.apache.avro.file;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.Closeable;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
@@ -39,6 +49,7 @@ import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
+import org.apache.avro.util.ByteBufferPool;
 
 /**
  * Streaming access to files written by {@link DataFileWriter}. Use
@@ -80,6 +91,18 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
 
+  private ByteBufferPool bufferPool;
+
+  private Executor decompressionExecutor;
+  private int readAheadBlocks;
+  // blocks read ahead of the current one, in file order
+  private final Deque<PrefetchedBlock> prefetched = new ArrayDeque<>();
+  private final Deque<DataBlock> freeBlocks = new ArrayDeque<>();
+  // codecs are not thread safe, so each decompression task borrows its own
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
+  /** Input position after the current block, when reading ahead. */
+  long readAheadBlockEnd;
+
   /**
    * Construct a reader for an input stream. For file-based input, use
    * {@link DataFileReader}. This will buffer, wrapping with a
@@ -139,13 +162,87 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     reader.setSchema(header.schema);
   }
 
+  /**
+   * Configures this stream to decompress blocks ahead of the reader using the
+   * given executor. While the data of the current block is decoded, up to
+   * readAheadBlocks following blocks are read and decompressed in the
+   * background, so at most readAheadBlocks + 1 blocks are held in memory. Blocks
+   * are still returned in file order.
+   *
+   * This only affects {@linkplain #hasNext()}, {@linkplain #next()} and
+   * {@linkplain #nextBlock()}. Should be called before data is read. Only
+   * decompression runs on the executor; the raw blocks are still read from the
+   * input by the calling thread, as it asks for blocks. Positions reported by a
+   * {@link DataFileReader}, such as {@linkplain DataFileReader#previousSync()}
+   * and {@linkplain DataFileReader#tell()}, are those of the block being read,
+   * not of the blocks read ahead of it.
+   *
+   * @param executor        the executor that decompresses blocks, or null to
+   *                        decompress on the calling thread
+   * @param readAheadBlocks the maximum number of blocks to read ahead of the
+   *                        current block
+   * @return this stream
+   */
+  public DataFileStream<D> setDecompressionExecutor(Executor executor, int readAheadBlocks) {
+    if (readAheadBlocks < 1) {
+      throw new IllegalArgumentException("Invalid readAheadBlocks value: " + readAheadBlocks);
+    }
+    if (!prefetched.isEmpty()) {
+      throw new IllegalStateException("Blocks have already been read ahead");
+    }
+    this.decompressionExecutor = executor;
+    this.readAheadBlocks = readAheadBlocks;
+    return this;
+  }
+
+  /**
+   * Configures this stream to decompress blocks into buffers from the given
+   * pool, and to return them to it once the next block is read, rather than
+   * allocate a buffer for each block. The buffer returned by
+   * {@linkplain #nextBlock()} is then only valid until the following block is
+   * read.
+   *
+   * @param pool the pool, or null to allocate buffers
+   * @return this stream
+   */
+  public DataFileStream<D> setBufferPool(ByteBufferPool pool) {
+    this.bufferPool = pool;
+    return this;
+  }
+
+  /** True if blocks are decompressed ahead of the reader. */
+  // true if blocks past the one being read have been read from the input
+  boolean hasReadAhead() {
+    return !prefetched.isEmpty();
+  }
+
+  boolean isReadingAhead() {
+    return decompressionExecutor != null;
+  }
+
   Codec resolveCodec() {
-    String codecStr = getMetaString(DataFileConstants.CODEC);
-    if (codecStr != null) {
-      return CodecFactory.fromString(codecStr).createInstance();
-    } else {
-      return CodecFactory.nullCodec().createInstance();
+    return resolveCodecFactory(header.meta).createInstance();
+  }
+
+  // the codec named by the metadata of a file, with the dictionary and level
+  // it records
+  static CodecFactory resolveCodecFactory(Map<String, byte[]> meta) {
+    byte[] codecBytes = meta.get(DataFileConstants.CODEC);
+    if (codecBytes == null) {
+      return CodecFactory.nullCodec();
+    }
+    String codecStr = new String(codecBytes, StandardCharsets.UTF_8);
+    if (DataFileConstants.ZSTANDARD_DICTIONARY_CODEC.equals(codecStr)) {
+      byte[] dictionary = meta.get(DataFileConstants.ZSTANDARD_DICTIONARY);
+      if (dictionary == null) {
+        throw new AvroRuntimeException("Missing " + DataFileConstants.ZSTANDARD_DICTIONARY + " for codec " + codecStr);
+      }
+      byte[] levelBytes = meta.get(DataFileConstants.ZSTANDARD_LEVEL);
+      int level = levelBytes == null ? CodecFactory.DEFAULT_ZSTANDARD_LEVEL
+          : Integer.parseInt(new String(levelBytes, StandardCharsets.UTF_8));
+      return CodecFactory.zstandardCodec(level, dictionary);
     }
+    return CodecFactory.fromString(codecStr);
   }
 
   /**
@@ -208,12 +305,19 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
             throw new IOException("Block read partially, the data may be corrupt");
           }
         }
-        if (hasNextBlock()) {
-          block = nextRawBlock(block);
-          block.decompressUsing(codec);
-          blockBuffer = block.getAsByteBuffer();
-          datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
-              blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+        // blocks without entries, such as a block index, are skipped
+        if (decompressionExecutor != null) {
+          while (nextPrefetchedBlock() && blockRemaining == 0) {
+          }
+        } else {
+          while (blockRemaining == 0 && hasNextBlock()) {
+            block = nextRawBlock(block);
+            if (blockRemaining != 0) {
+              block.decompressUsing(codec);
+              blockBuffer = block.getAsByteBuffer();
+              datumIn = blockDecoder(blockBuffer, datumIn);
+            }
+          }
         }
       }
       return blockRemaining != 0;
@@ -254,6 +358,12 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return result;
   }
 
+  // blocks that are not backed by an array, such as those of a
+  // MappedSeekableInput read with the null codec, are decoded in place
+  private static BinaryDecoder blockDecoder(ByteBuffer data, BinaryDecoder reuse) {
+    return DecoderFactory.get().binaryDecoder(data.duplicate(), reuse);
+  }
+
   /** Expert: Return the next block in the file, as binary-encoded data. */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
@@ -300,18 +410,167 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
   }
 
+  // take the next block from the read ahead queue, first topping the queue up so
+  // that the following blocks are decompressed while this one is decoded,
+  // returning false at the end of the input
+  private boolean nextPrefetchedBlock() throws IOException {
+    if (block != null) {
+      freeBlocks.add(block);
+      block = null;
+    }
+    while (prefetched.size() <= readAheadBlocks && prefetchBlock()) {
+    }
+    PrefetchedBlock next = prefetched.poll();
+    if (next == null) {
+      blockRemaining = 0;
+      return false;
+    }
+    try {
+      block = next.task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for block decompression");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new AvroRuntimeException(cause);
+    }
+    blockCount = blockRemaining = block.getNumEntries();
+    blockSize = next.blockSize;
+    readAheadBlockEnd = next.blockEnd;
+    if (blockRemaining != 0) {
+      blockBuffer = block.getAsByteBuffer();
+      datumIn = blockDecoder(blockBuffer, datumIn);
+    }
+    return true;
+  }
+
+  // read the next raw block and queue its decompression, returning false at the
+  // end of the input or after a read error, which is queued in place of the
+  // block so that it is reported in file order
+  private boolean prefetchBlock() {
+    if (!prefetched.isEmpty() && prefetched.peekLast().failed) {
+      return false;
+    }
+    try {
+      if (!hasNextBlock()) {
+        return false;
+      }
+      final DataBlock raw = nextRawBlock(freeBlocks.poll());
+      FutureTask<DataBlock> task = new FutureTask<>(() -> {
+        Codec c = idleCodecs.poll();
+        if (c == null) {
+          c = resolveCodec();
+        }
+        try {
+          if (raw.getNumEntries() != 0) {
+            raw.decompressUsing(c);
+          }
+        } finally {
+          idleCodecs.offer(c);
+        }
+        return raw;
+      });
+      try {
+        decompressionExecutor.execute(task);
+      } catch (RejectedExecutionException e) {
+        task.run();
+      }
+      prefetched.add(new PrefetchedBlock(task, blockSize, rawBlockEnd(), false));
+      return true;
+    } catch (IOException | RuntimeException e) {
+      FutureTask<DataBlock> failure = new FutureTask<>(() -> {
+        throw e;
+      });
+      failure.run();
+      prefetched.add(new PrefetchedBlock(failure, 0, 0, true));
+      return false;
+    }
+  }
+
+  /**
+   * Discard blocks that have been read ahead, e.g. after the input has been
+   * repositioned.
+   */
+  void discardPrefetched() {
+    for (PrefetchedBlock p : prefetched) {
+      p.task.cancel(false);
+    }
+    prefetched.clear();
+  }
+
+  /**
+   * The position of the input after the last raw block read, used to report
+   * positions of blocks that were read ahead.
+   */
+  long rawBlockEnd() throws IOException {
+    return -1;
+  }
+
+  /**
+   * Return the data of the next raw block without copying it, advancing past it,
+   * or null if the input does not support this.
+   */
+  ByteBuffer mapRawBlock(int size) throws IOException {
+    return null;
+  }
+
+  /**
+   * The channel of the file being read, which raw blocks may be copied from
+   * without reading them, or null if the input is not a file.
+   */
+  FileChannel getFileChannel() {
+    return null;
+  }
+
+  /**
+   * Skip the next raw block. When the input is a file, its data starts at
+   * {@link #rawBlockEnd()} as of before this is called.
+   */
+  void skipRawBlock() throws IOException {
+    if (!hasNextBlock()) {
+      throw new NoSuchElementException();
+    }
+    vin.skipFixed((int) blockSize);
+    vin.readFixed(syncBuffer);
+    availableBlock = false;
+    if (!Arrays.equals(syncBuffer, header.sync))
+      throw new IOException("Invalid sync!");
+  }
+
   DataBlock nextRawBlock(DataBlock reuse) throws IOException {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
-      reuse = new DataBlock(blockRemaining, (int) blockSize);
+    if (reuse != null) {
+      reuse.releasePooled();
+    }
+    ByteBuffer mapped = mapRawBlock((int) blockSize);
+    if (mapped != null) {
+      if (reuse == null) {
+        reuse = new DataBlock(mapped, blockRemaining);
+      } else {
+        reuse.setData(mapped);
+        reuse.numEntries = blockRemaining;
+      }
     } else {
-      reuse.numEntries = blockRemaining;
-      reuse.blockSize = (int) blockSize;
+      if (reuse == null || reuse.raw == null || reuse.raw.length < (int) blockSize) {
+        reuse = new DataBlock(blockRemaining, (int) blockSize);
+      } else {
+        reuse.data = reuse.raw;
+        reuse.buffer = null;
+        reuse.offset = 0;
+        reuse.numEntries = blockRemaining;
+        reuse.blockSize = (int) blockSize;
+      }
+      // throws if it can't read the size requested
+      vin.readFixed(reuse.data, 0, reuse.blockSize);
     }
-    // throws if it can't read the size requested
-    vin.readFixed(reuse.data, 0, reuse.blockSize);
+    reuse.setPool(bufferPool);
     vin.readFixed(syncBuffer);
     availableBlock = false;
     if (!Arrays.equals(syncBuffer, header.sync))
@@ -328,11 +587,33 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   /** Close this reader. */
   @Override
   public void close() throws IOException {
+    discardPrefetched();
     vin.inputStream().close();
   }
 
+  private static class PrefetchedBlock {
+    private final FutureTask<DataBlock> task;
+    private final long blockSize;
+    private final long blockEnd;
+    private final boolean failed;
+
+    PrefetchedBlock(FutureTask<DataBlock> task, long blockSize, long blockEnd, boolean failed) {
+      this.task = task;
+      this.blockSize = blockSize;
+      this.blockEnd = blockEnd;
+      this.failed = failed;
+    }
+  }
+
   static class DataBlock {
     private byte[] data;
+    // the data when it is not backed by an accessible array
+    private ByteBuffer buffer;
+    // the array that raw blocks are read into, reused for each block
+    private byte[] raw;
+    // when set, the pool that (de)compressed data is held in
+    private ByteBufferPool pool;
+    private ByteBuffer pooled;
     private long numEntries;
     private int blockSize;
     private int offset = 0;
@@ -340,17 +621,27 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
 
     private DataBlock(long numEntries, int blockSize) {
       this.data = new byte[blockSize];
+      this.raw = data;
       this.numEntries = numEntries;
       this.blockSize = blockSize;
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
-      this.data = block.array();
-      this.blockSize = block.remaining();
-      this.offset = block.arrayOffset() + block.position();
+      setData(block);
       this.numEntries = numEntries;
     }
 
+    private void setData(ByteBuffer block) {
+      if (block.hasArray()) {
+        this.data = block.array();
+        this.offset = block.arrayOffset() + block.position();
+        this.buffer = null;
+      } else {
+        this.buffer = block;
+      }
+      this.blockSize = block.remaining();
+    }
+
     byte[] getData() {
       return data;
     }
@@ -372,25 +663,58 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     ByteBuffer getAsByteBuffer() {
+      if (buffer != null) {
+        return buffer.duplicate();
+      }
       return ByteBuffer.wrap(data, offset, blockSize);
     }
 
+    void setPool(ByteBufferPool pool) {
+      this.pool = pool;
+    }
+
+    /** Return the data to the pool, if it is held in a buffer from the pool. */
+    void releasePooled() {
+      if (pooled != null) {
+        pool.release(pooled);
+        pooled = null;
+      }
+    }
+
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      if (pool == null) {
+        setData(c.decompress(getAsByteBuffer()));
+        return;
+      }
+      ByteBuffer input = getAsByteBuffer();
+      setPooledData(input, c.decompress(input, pool));
     }
 
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      if (pool == null) {
+        setData(c.compress(getAsByteBuffer()));
+        return;
+      }
+      ByteBuffer input = getAsByteBuffer();
+      setPooledData(input, c.compress(input, pool));
+    }
+
+    private void setPooledData(ByteBuffer input, ByteBuffer result) {
+      if (result != input) {
+        releasePooled();
+        pooled = result;
+      }
+      setData(result);
     }
 
     void writeBlockTo(BinaryEncoder e, byte[] sync) throws IOException {
       e.writeLong(this.numEntries);
       e.writeLong(this.blockSize);
-      e.writeFixed(this.data, offset, this.blockSize);
+      if (buffer != null) {
+        e.writeFixed(buffer.duplicate());
+      } else {
+        e.writeFixed(this.data, offset, this.blockSize);
+      }
       e.writeFixed(sync);
       if (flushOnWrite) {
         e.flush();
@@ -22,18 +22,37 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -42,6 +61,7 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.ByteBufferPool;
 import org.apache.commons.compress.utils.IOUtils;
 
 /**
@@ -62,6 +82,8 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private BufferedFileOutputStream out;
   private BinaryEncoder vout;
+  // of underlyingStream, when it is a file
+  private FileChannel channel;
 
   private final Map<String, byte[]> meta = new HashMap<>();
 
@@ -75,9 +97,33 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
 
   private boolean flushOnEveryBlock = true;
 
+  private boolean writeBlockIndex;
+  private BlockIndex blockIndex;
+  private long startPosition; // position in the file of the start of out
+
+  private ByteBufferPool bufferPool;
+
+  private Executor compressionExecutor;
+  private int maxInFlightBlocks;
+  // blocks handed to compressionExecutor, in the order they must be written
+  private final Deque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+  private final Deque<NonCopyingByteArrayOutputStream> freeBuffers = new ArrayDeque<>();
+  // codecs are not thread safe, so each compression task borrows its own
+  private final Queue<Codec> idleCodecs = new ConcurrentLinkedQueue<>();
+
+  private ScheduledExecutorService commitExecutor;
+  private long maxCommitLatencyNanos;
+  private long maxCommitBytes;
+  // futures of the appends since the last group commit
+  private List<CompletableFuture<Long>> uncommitted = new ArrayList<>();
+  private boolean commitRequested; // an immediate group commit is scheduled
+  private long committedPosition; // position of out after the last group commit
+  private int commitsSyncing; // group commits syncing to disk outside the lock
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -99,8 +145,17 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
+    byte[] dictionary = codec instanceof ZstandardCodec ? ((ZstandardCodec) codec).getDictionary() : null;
+    if (dictionary != null) {
+      setMetaInternal(DataFileConstants.ZSTANDARD_DICTIONARY, dictionary);
+      setMetaInternal(DataFileConstants.ZSTANDARD_LEVEL, Integer.toString(((ZstandardCodec) codec).getLevel()));
+    } else {
+      meta.remove(DataFileConstants.ZSTANDARD_DICTIONARY);
+      meta.remove(DataFileConstants.ZSTANDARD_LEVEL);
+    }
     return this;
   }
 
@@ -129,6 +184,121 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this;
   }
 
+  /**
+   * Configures this writer to compress blocks using the given executor. Once a
+   * block is full it is handed to the executor and appends continue into a fresh
+   * buffer, so that up to maxInFlightBlocks blocks may be compressed in parallel
+   * with each other and with the encoding of new data. Compressed blocks are
+   * still written in order, each followed by the sync marker, so the resulting
+   * file is identical to one written without an executor.
+   *
+   * {@linkplain #sync()}, {@linkplain #flush()} and {@linkplain #close()} wait
+   * until all pending blocks have been written. An exception thrown while
+   * compressing a block is reported by the next call that writes blocks.
+   *
+   * May not be reset after writes have begun.
+   *
+   * @param executor          the executor that compresses blocks, or null to
+   *                          compress on the calling thread
+   * @param maxInFlightBlocks the maximum number of blocks that have been handed
+   *                          to the executor but not yet written
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setCompressionExecutor(Executor executor, int maxInFlightBlocks) {
+    assertNotOpen();
+    if (maxInFlightBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxInFlightBlocks value: " + maxInFlightBlocks);
+    }
+    this.compressionExecutor = executor;
+    this.maxInFlightBlocks = maxInFlightBlocks;
+    return this;
+  }
+
+  /**
+   * Configures this writer to compress blocks into buffers from the given pool,
+   * and to return them to it once they are written, rather than allocate a
+   * buffer for each block. May not be reset after writes have begun.
+   *
+   * @param pool the pool, or null to allocate buffers
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setBufferPool(ByteBufferPool pool) {
+    assertNotOpen();
+    this.bufferPool = pool;
+    return this;
+  }
+
+  /**
+   * Configures this writer to make appends durable in groups. Each
+   * {@linkplain #appendDurable(Object)} returns a future that completes once the
+   * datum has been written and synced to disk, as by {@linkplain #fSync()}, by a
+   * group commit run on the given executor. A group commit ends the current
+   * block and syncs all data appended before it. It runs at most maxLatency
+   * after the first append it commits, or as soon as maxBytes have been written
+   * since the last commit. Appends continue while a commit waits for the disk.
+   *
+   * Group commits lock this writer while ending the block, so while they are
+   * enabled only appendDurable, {@linkplain #sync()}, {@linkplain #flush()},
+   * {@linkplain #fSync()} and {@linkplain #close()}, which do the same, should be
+   * used. {@linkplain #close()} commits any remaining appends.
+   *
+   * May not be reset after writes have begun.
+   *
+   * @param executor   runs group commits
+   * @param maxLatency the maximum time an append waits for a commit to start
+   * @param unit       the unit of maxLatency
+   * @param maxBytes   the number of bytes written after which a commit starts
+   *                   without waiting for maxLatency
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setGroupCommit(ScheduledExecutorService executor, long maxLatency, TimeUnit unit,
+      long maxBytes) {
+    assertNotOpen();
+    if (maxLatency < 0) {
+      throw new IllegalArgumentException("Invalid maxLatency value: " + maxLatency);
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Invalid maxBytes value: " + maxBytes);
+    }
+    this.commitExecutor = executor;
+    this.maxCommitLatencyNanos = unit.toNanos(maxLatency);
+    this.maxCommitBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Set whether this writer should end the file with an index of its blocks.
+   * The index records the position, the number of entries and the uncompressed
+   * size of each block, so that {@link DataFileReader#seekToRecord(long)} can
+   * find an entry without reading the blocks before it. It is written by
+   * {@linkplain #close()} as two blocks that hold no entries, the index and a
+   * small block that locates it, as described in the specification. May not be
+   * reset after writes have begun.
+   * <p/>
+   * <b>Compatibility:</b> this changes the file format. Only readers that skip
+   * blocks without entries, as this version does, can read files with an index.
+   * Older Java readers fail with "Block read partially" at the index, and some
+   * readers in other languages stop at or misread it. Only enable this when all
+   * readers of the file are known to skip such blocks.
+   * <p/>
+   *
+   * When appending to a file, an index is written if and only if the file was
+   * created with one.
+   *
+   * @param writeBlockIndex true to write a block index
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setWriteBlockIndex(boolean writeBlockIndex) {
+    assertNotOpen();
+    this.writeBlockIndex = writeBlockIndex;
+    return this;
+  }
+
+  /** @return true if this writer ends the file with a block index. */
+  public boolean isWriteBlockIndex() {
+    return writeBlockIndex;
+  }
+
   /** Open a new file for data matching a schema with a random sync. */
   public DataFileWriter<D> create(Schema schema, File file) throws IOException {
     SyncableFileOutputStream sfos = new SyncableFileOutputStream(file);
@@ -151,6 +321,12 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
     this.schema = schema;
     setMetaInternal(DataFileConstants.SCHEMA, schema.toString());
+    if (writeBlockIndex) {
+      setMetaInternal(DataFileConstants.BLOCK_INDEX, "true");
+      this.blockIndex = new BlockIndex();
+    } else {
+      meta.remove(DataFileConstants.BLOCK_INDEX);
+    }
     if (sync == null) {
       this.sync = generateSync();
     } else if (sync.length == 16) {
@@ -198,11 +374,22 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this.flushOnEveryBlock;
   }
 
-  /** Open a writer appending to an existing file. */
+  /**
+   * Open a writer appending to an existing file. If the file ends with a block
+   * index, the index is removed and a new one is written when this writer is
+   * closed.
+   */
   public DataFileWriter<D> appendTo(File file) throws IOException {
     try (SeekableInput input = new SeekableFileInput(file)) {
+      long end = readForAppend(input);
+      if (end < input.length()) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+          raf.setLength(end);
+        }
+      }
       OutputStream output = new SyncableFileOutputStream(file, true);
-      return appendTo(input, output);
+      init(output);
+      return this;
     }
     // output does not need to be closed here. It will be closed by invoking close()
     // of this writer.
@@ -211,43 +398,68 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   /**
    * Open a writer appending to an existing file. <strong>Since 1.9.0 this method
    * does not close in.</strong>
+   *
+   * A file that ends with a block index cannot be appended to this way, since
+   * the index cannot be removed through out. Use {@link #appendTo(File)}
+   * instead.
    * 
    * @param in  reading the existing file.
    * @param out positioned at the end of the existing file.
    */
   public DataFileWriter<D> appendTo(SeekableInput in, OutputStream out) throws IOException {
+    long end = readForAppend(in);
+    if (end < in.length()) {
+      throw new IOException("Cannot append through a stream to a file that ends with a block index");
+    }
+    init(out);
+
+    return this;
+  }
+
+  // read the header, and the block index if there is one, of a file to append
+  // to, returning the position to append at
+  private long readForAppend(SeekableInput in) throws IOException {
     assertNotOpen();
     DataFileReader<D> reader = new DataFileReader<>(in, new GenericDatumReader<>());
     this.schema = reader.getSchema();
     this.sync = reader.getHeader().sync;
     this.meta.putAll(reader.getHeader().meta);
-    byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
-    if (codecBytes != null) {
-      String strCodec = new String(codecBytes, StandardCharsets.UTF_8);
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
-    } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
-    }
-
-    init(out);
+    this.codecFactory = DataFileStream.resolveCodecFactory(meta);
+    this.codec = codecFactory.createInstance();
 
-    return this;
+    this.writeBlockIndex = meta.containsKey(DataFileConstants.BLOCK_INDEX);
+    this.startPosition = in.length();
+    if (writeBlockIndex) {
+      this.blockIndex = reader.getBlockIndex();
+      if (blockIndex == null) {
+        // the file was not closed, so rebuild the index from its blocks
+        this.blockIndex = reader.scanBlockIndex();
+      }
+      this.startPosition = blockIndex.getEnd();
+    }
+    return startPosition;
   }
 
   private void init(OutputStream outs) throws IOException {
     this.underlyingStream = outs;
+    this.channel = (outs instanceof FileOutputStream) ? ((FileOutputStream) outs).getChannel() : null;
     this.out = new BufferedFileOutputStream(outs);
     EncoderFactory efactory = new EncoderFactory();
     this.vout = efactory.binaryEncoder(out, null);
     dout.setSchema(schema);
-    buffer = new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
+    buffer = newBuffer();
     this.bufOut = efactory.binaryEncoder(buffer, null);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
 
+  private NonCopyingByteArrayOutputStream newBuffer() {
+    return new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
+  }
+
   private static byte[] generateSync() {
     try {
       MessageDigest digester = MessageDigest.getInstance("MD5");
@@ -325,9 +537,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   // Otherwise the file will be corrupt with a partial record.
   private void resetBufferTo(int size) throws IOException {
     bufOut.flush();
-    byte[] data = buffer.toByteArray();
-    buffer.reset();
-    buffer.write(data, 0, size);
+    buffer.truncate(size);
   }
 
   /**
@@ -342,6 +552,155 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     writeIfBlockFull();
   }
 
+  /**
+   * Append a datum to the file, returning a future that completes with the
+   * position of the synchronization point that follows it once it has been
+   * synced to disk by a group commit.
+   *
+   * @see #setGroupCommit(ScheduledExecutorService, long, TimeUnit, long)
+   * @see AppendWriteException
+   */
+  public synchronized CompletableFuture<Long> appendDurable(D datum) throws IOException {
+    if (commitExecutor == null) {
+      throw new AvroRuntimeException("group commit not enabled");
+    }
+    append(datum);
+    CompletableFuture<Long> committed = new CompletableFuture<>();
+    uncommitted.add(committed);
+    if (!commitRequested && out.tell() + vout.bytesBuffered() + bufferInUse() - committedPosition >= maxCommitBytes) {
+      commitRequested = true;
+      scheduleGroupCommit(0);
+    } else if (uncommitted.size() == 1) {
+      scheduleGroupCommit(maxCommitLatencyNanos);
+    }
+    return committed;
+  }
+
+  private void scheduleGroupCommit(long delayNanos) {
+    try {
+      commitExecutor.schedule(this::groupCommit, delayNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      groupCommit();
+    }
+  }
+
+  // end the current block and sync everything appended before it, completing
+  // the futures of those appends once it is on disk
+  private void groupCommit() {
+    final List<CompletableFuture<Long>> batch;
+    final long position;
+    synchronized (this) {
+      if (uncommitted.isEmpty()) {
+        return;
+      }
+      batch = uncommitted;
+      uncommitted = new ArrayList<>();
+      commitRequested = false;
+      try {
+        position = sync();
+        vout.flush();
+      } catch (IOException | RuntimeException e) {
+        batch.forEach(f -> f.completeExceptionally(e));
+        return;
+      }
+      committedPosition = position;
+      commitsSyncing++;
+    }
+    try {
+      if (underlyingStream instanceof Syncable) {
+        ((Syncable) underlyingStream).sync();
+      }
+      batch.forEach(f -> f.complete(position));
+    } catch (IOException | RuntimeException e) {
+      batch.forEach(f -> f.completeExceptionally(e));
+    } finally {
+      synchronized (this) {
+        commitsSyncing--;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Expert: Append pre-encoded data to the file, as by
+   * {@linkplain #appendEncoded(ByteBuffer)} but without encoding each datum
+   * through the block's encoder. With the null codec, runs of data that fill a
+   * whole block are written directly from the buffers passed, without being
+   * copied into the block first. No validation is performed to check that the
+   * encodings conform to the file's schema.
+   */
+  public void appendEncodedBatch(ByteBuffer[] data) throws IOException {
+    assertOpen();
+    bufOut.flush();
+    boolean gather = codec instanceof NullCodec && compressionExecutor == null;
+    for (int i = 0; i < data.length;) {
+      if (gather && blockCount == 0) {
+        int end = i;
+        long size = 0;
+        while (end < data.length && size < syncInterval) {
+          size += data[end++].remaining();
+        }
+        if (size >= syncInterval) {
+          writeGatheredBlock(data, i, end, size);
+          i = end;
+          continue;
+        }
+      }
+      buffer.write(data[i++]);
+      blockCount++;
+      if (buffer.size() >= syncInterval) {
+        writeBlock();
+      }
+    }
+  }
+
+  /**
+   * Expert: Append a block of count pre-encoded data to the file. The current
+   * block is ended first, and the data is written as a block of its own
+   * regardless of its size. With the null codec the data is not copied. No
+   * validation is performed to check that the data holds count encodings that
+   * conform to the file's schema.
+   */
+  public void appendEncodedBlock(ByteBuffer data, long count) throws IOException {
+    assertOpen();
+    if (count < 1) {
+      throw new IllegalArgumentException("Invalid count: " + count);
+    }
+    writeBlock();
+    writePendingBlocks();
+    DataBlock block = new DataBlock(data.duplicate(), count);
+    block.setFlushOnWrite(flushOnEveryBlock);
+    block.setPool(bufferPool);
+    block.compressUsing(codec);
+    writeBlockTo(block, data.remaining());
+    block.releasePooled();
+  }
+
+  // write an uncompressed block of the data from..to, that is size bytes long
+  private void writeGatheredBlock(ByteBuffer[] data, int from, int to, long size) throws IOException {
+    if (blockIndex != null) {
+      blockIndex.add(startPosition + out.tell() + vout.bytesBuffered(), to - from, size);
+    }
+    vout.writeLong(to - from);
+    vout.writeLong(size);
+    if (channel != null) {
+      ByteBuffer[] block = new ByteBuffer[to - from];
+      for (int i = from; i < to; i++) {
+        block[i - from] = data[i].duplicate();
+      }
+      vout.flush();
+      out.write(channel, block);
+    } else {
+      for (int i = from; i < to; i++) {
+        vout.writeFixed(data[i]);
+      }
+    }
+    vout.writeFixed(sync);
+    if (flushOnEveryBlock) {
+      vout.flush();
+    }
+  }
+
   private int bufferInUse() {
     return (buffer.size() + bufOut.bytesBuffered());
   }
@@ -379,33 +738,57 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writePendingBlocks();
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
+      FileChannel source = (channel != null) ? otherFile.getFileChannel() : null;
       // copy raw bytes
       while (otherFile.hasNextBlock()) {
+        if (source != null) {
+          // between files, let the OS copy blocks without reading them
+          long position = otherFile.rawBlockEnd();
+          long entries = otherFile.getBlockCount();
+          long size = otherFile.getBlockSize();
+          otherFile.skipRawBlock();
+          if (entries > 0) { // skip any block index
+            transferBlockFrom(source, position, entries, size);
+          }
+          continue;
+        }
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        if (nextBlockRaw.getNumEntries() > 0) { // skip any block index
+          writeBlockTo(nextBlockRaw, -1);
+        }
       }
     } else {
       while (otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.decompressUsing(otherCodec);
-        nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        if (nextBlockRaw.getNumEntries() > 0) { // skip any block index
+          nextBlockRaw.decompressUsing(otherCodec);
+          long uncompressedSize = nextBlockRaw.getBlockSize();
+          nextBlockRaw.compressUsing(codec);
+          writeBlockTo(nextBlockRaw, uncompressedSize);
+        }
       }
     }
   }
 
   private void writeBlock() throws IOException {
     if (blockCount > 0) {
+      if (compressionExecutor != null) {
+        submitBlock();
+        return;
+      }
       try {
         bufOut.flush();
         ByteBuffer uncompressed = buffer.getByteArrayAsByteBuffer();
         DataBlock block = new DataBlock(uncompressed, blockCount);
         block.setFlushOnWrite(flushOnEveryBlock);
+        block.setPool(bufferPool);
         block.compressUsing(codec);
-        block.writeBlockTo(vout, sync);
+        writeBlockTo(block, uncompressed.remaining());
+        block.releasePooled();
       } finally {
         buffer.reset();
         blockCount = 0;
@@ -413,6 +796,147 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
+  // hand the current block to compressionExecutor and continue appending into
+  // a recycled buffer, writing out the oldest blocks once too many are pending
+  private void submitBlock() throws IOException {
+    bufOut.flush();
+    final NonCopyingByteArrayOutputStream sealed = buffer;
+    final DataBlock block = new DataBlock(sealed.getByteArrayAsByteBuffer(), blockCount);
+    block.setFlushOnWrite(flushOnEveryBlock);
+    block.setPool(bufferPool);
+    FutureTask<DataBlock> task = new FutureTask<>(() -> {
+      Codec c = idleCodecs.poll();
+      if (c == null) {
+        c = codecFactory.createInstance();
+      }
+      try {
+        block.compressUsing(c);
+      } finally {
+        idleCodecs.offer(c);
+      }
+      return block;
+    });
+    try {
+      compressionExecutor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.run();
+    }
+    pendingBlocks.add(new PendingBlock(task, sealed));
+
+    NonCopyingByteArrayOutputStream next = freeBuffers.poll();
+    buffer = (next != null) ? next : newBuffer();
+    bufOut = EncoderFactory.get().binaryEncoder(buffer, bufOut);
+    blockCount = 0;
+
+    while (pendingBlocks.size() > maxInFlightBlocks) {
+      writePendingBlock();
+    }
+  }
+
+  private void writePendingBlocks() throws IOException {
+    while (!pendingBlocks.isEmpty()) {
+      writePendingBlock();
+    }
+  }
+
+  private void writePendingBlock() throws IOException {
+    PendingBlock pending = pendingBlocks.peek();
+    DataBlock block;
+    try {
+      block = pending.task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for block compression");
+    } catch (ExecutionException e) {
+      pendingBlocks.remove();
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new AvroRuntimeException(cause);
+    }
+    pendingBlocks.remove();
+    try {
+      writeBlockTo(block, pending.buffer.size());
+      block.releasePooled();
+    } finally {
+      pending.buffer.reset();
+      freeBuffers.add(pending.buffer);
+    }
+  }
+
+  private void writeBlockTo(DataBlock block, long uncompressedSize) throws IOException {
+    if (blockIndex != null) {
+      blockIndex.add(startPosition + out.tell() + vout.bytesBuffered(), block.getNumEntries(), uncompressedSize);
+    }
+    ByteBuffer data = block.getAsByteBuffer();
+    if (channel == null || !data.isDirect()) {
+      block.writeBlockTo(vout, sync);
+      return;
+    }
+    // e.g. a block of a MappedSeekableInput, which is written from where it is
+    vout.writeLong(block.getNumEntries());
+    vout.writeLong(block.getBlockSize());
+    vout.flush();
+    out.write(channel, new ByteBuffer[] { data });
+    vout.writeFixed(sync);
+    if (block.isFlushOnWrite()) {
+      vout.flush();
+    }
+  }
+
+  // write a block of another file from its channel
+  private void transferBlockFrom(FileChannel source, long position, long entries, long size) throws IOException {
+    if (blockIndex != null) {
+      blockIndex.add(startPosition + out.tell() + vout.bytesBuffered(), entries, -1);
+    }
+    vout.writeLong(entries);
+    vout.writeLong(size);
+    vout.flush();
+    out.transferFrom(source, position, size, channel);
+    vout.writeFixed(sync);
+    vout.flush();
+  }
+
+  // write a block that was encoded and compressed elsewhere, after the blocks
+  // already appended
+  void writeCompressedBlock(DataBlock block, long uncompressedSize) throws IOException {
+    assertOpen();
+    writeBlock();
+    writePendingBlocks();
+    writeBlockTo(block, uncompressedSize);
+  }
+
+  Schema getSchema() {
+    return schema;
+  }
+
+  int getSyncInterval() {
+    return syncInterval;
+  }
+
+  CodecFactory getCodecFactory() {
+    return codecFactory;
+  }
+
+  ByteBufferPool getBufferPool() {
+    return bufferPool;
+  }
+
+  // the index, then the small block that locates it, so that readers find the
+  // index from the end of the file
+  private void writeBlockIndex() throws IOException {
+    long position = startPosition + out.tell() + vout.bytesBuffered();
+    writeEmptyBlock(blockIndex.encode());
+    writeEmptyBlock(BlockIndex.encodeLocator(position));
+  }
+
+  private void writeEmptyBlock(ByteBuffer data) throws IOException {
+    DataBlock block = new DataBlock(data, 0);
+    block.compressUsing(codec);
+    block.writeBlockTo(vout, sync);
+  }
+
   /**
    * Return the current position as a value that may be passed to
    * {@link DataFileReader#seek(long)}. Forces the end of the current block,
@@ -423,9 +947,10 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * false, then this method may not flush the block. In this case, the
    * {@linkplain #flush()} must be called to flush the stream.
    */
-  public long sync() throws IOException {
+  public synchronized long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writePendingBlocks();
     return out.tell();
   }
 
@@ -433,7 +958,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * Calls {@linkplain #sync()} and then flushes the current state of the file.
    */
   @Override
-  public void flush() throws IOException {
+  public synchronized void flush() throws IOException {
     sync();
     vout.flush();
   }
@@ -446,7 +971,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    *
    * @throws IOException
    */
-  public void fSync() throws IOException {
+  public synchronized void fSync() throws IOException {
     flush();
     if (underlyingStream instanceof Syncable) {
       ((Syncable) underlyingStream).sync();
@@ -455,9 +980,23 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   /** Flush and close the file. */
   @Override
-  public void close() throws IOException {
+  public synchronized void close() throws IOException {
     if (isOpen) {
+      if (commitExecutor != null) {
+        groupCommit();
+        try {
+          while (commitsSyncing > 0) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for group commits");
+        }
+      }
       flush();
+      if (blockIndex != null) {
+        writeBlockIndex();
+      }
       out.close();
       isOpen = false;
     }
@@ -487,6 +1026,34 @@ public class DataFileWriter<D> implements Closeable, Flushable {
       return position + count;
     }
 
+    // write directly to the channel of the underlying file
+    void write(FileChannel channel, ByteBuffer[] data) throws IOException {
+      flush();
+      long remaining = 0;
+      for (ByteBuffer buffer : data) {
+        remaining += buffer.remaining();
+      }
+      while (remaining > 0) {
+        long written = channel.write(data);
+        remaining -= written;
+        position += written;
+      }
+    }
+
+    // write part of another file directly to the channel of the underlying file
+    void transferFrom(FileChannel source, long sourcePosition, long length, FileChannel channel)
+        throws IOException {
+      flush();
+      for (long n = 0; n < length;) {
+        long transferred = source.transferTo(sourcePosition + n, length - n, channel);
+        if (transferred <= 0) {
+          throw new EOFException();
+        }
+        n += transferred;
+        position += transferred;
+      }
+    }
+
     @Override
     public synchronized void flush() throws IOException {
       try {
@@ -500,7 +1067,17 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
-  private static class NonCopyingByteArrayOutputStream extends ByteArrayOutputStream {
+  private static class PendingBlock {
+    private final FutureTask<DataBlock> task;
+    private final NonCopyingByteArrayOutputStream buffer;
+
+    PendingBlock(FutureTask<DataBlock> task, NonCopyingByteArrayOutputStream buffer) {
+      this.task = task;
+      this.buffer = buffer;
+    }
+  }
+
+  static class NonCopyingByteArrayOutputStream extends ByteArrayOutputStream {
     NonCopyingByteArrayOutputStream(int initialSize) {
       super(initialSize);
     }
@@ -508,6 +1085,23 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     ByteBuffer getByteArrayAsByteBuffer() {
       return ByteBuffer.wrap(buf, 0, count);
     }
+
+    void truncate(int size) {
+      count = size;
+    }
+
+    void write(ByteBuffer data) {
+      if (data.hasArray()) {
+        write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        return;
+      }
+      int length = data.remaining();
+      if (buf.length - count < length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+      }
+      data.duplicate().get(buf, count, length);
+      count += length;
+    }
   }
 
 }
@@ -17,14 +17,17 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
+import java.util.zip.ZipException;
+
+import org.apache.avro.util.ByteBufferPool;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -33,6 +36,9 @@ import java.util.zip.InflaterOutputStream;
  * (zlib). zlib adds an extra 2-byte header at the front, and a 4-byte checksum
  * at the end. The code here, by passing "true" as the "nowrap" option to
  * {@link Inflater} and {@link Deflater}, is using RFC1951.
+ *
+ * Inflaters and deflaters, whose native state is costly to set up, are pooled
+ * and shared by all instances.
  */
 public class DeflateCodec extends Codec {
 
@@ -49,9 +55,11 @@ public class DeflateCodec extends Codec {
     }
   }
 
-  private ByteArrayOutputStream outputBuffer;
-  private Deflater deflater;
-  private Inflater inflater;
+  private static final ContextPool<Inflater> INFLATERS = new ContextPool<>(() -> new Inflater(true), Inflater::end);
+  private static final Map<Integer, ContextPool<Deflater>> DEFLATERS = new ConcurrentHashMap<>();
+
+  private byte[] inputChunk;
+  private byte[] outputChunk;
   // currently only do 'nowrap' -- RFC 1951, not zlib
   private boolean nowrap = true;
   private int compressionLevel;
@@ -67,47 +75,156 @@ public class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return transform(this::deflate, data, data.remaining());
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::deflate, data, data.remaining(), pool);
+  }
+
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::deflate, in, out);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return transform(this::inflate, data, decompressedSizeHint(data));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::inflate, data, decompressedSizeHint(data), pool);
+  }
+
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::inflate, in, out);
+  }
+
+  private ByteBuffer deflate(ByteBuffer in, ByteBuffer out, BufferGrowth growth) {
+    ContextPool<Deflater> deflaters = DEFLATERS.computeIfAbsent(compressionLevel,
+        level -> new ContextPool<>(() -> new Deflater(level, true), Deflater::end));
+    Deflater deflater = deflaters.acquire();
+    try {
+      return deflate(deflater, in, out, growth);
+    } finally {
+      deflater.reset();
+      deflaters.release(deflater);
+    }
+  }
+
+  private ByteBuffer deflate(Deflater deflater, ByteBuffer in, ByteBuffer out, BufferGrowth growth) {
+    if (in.hasArray()) {
+      deflater.setInput(in.array(), computeOffset(in), in.remaining());
+    } else {
+      // the deflater only reads arrays, so feed it a chunk at a time
+      byte[] chunk = getInputChunk();
+      while (in.hasRemaining()) {
+        int n = Math.min(chunk.length, in.remaining());
+        in.get(chunk, 0, n);
+        deflater.setInput(chunk, 0, n);
+        while (!deflater.needsInput()) {
+          out = deflateTo(deflater, out, growth);
+        }
+      }
+    }
+    deflater.finish();
+    while (!deflater.finished()) {
+      out = deflateTo(deflater, out, growth);
+    }
+    return out;
+  }
+
+  private ByteBuffer deflateTo(Deflater deflater, ByteBuffer out, BufferGrowth growth) {
+    out = ensureRemaining(out, 1, growth);
+    if (out.hasArray()) {
+      int n = deflater.deflate(out.array(), computeOffset(out), out.remaining());
+      ((Buffer) out).position(out.position() + n);
+    } else {
+      byte[] chunk = getOutputChunk();
+      int n = deflater.deflate(chunk, 0, Math.min(chunk.length, out.remaining()));
+      out.put(chunk, 0, n);
+    }
+    return out;
+  }
+
+  private ByteBuffer inflate(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    Inflater inflater = INFLATERS.acquire();
+    try {
+      return inflate(inflater, in, out, growth);
+    } finally {
+      inflater.reset();
+      INFLATERS.release(inflater);
     }
-    return ByteBuffer.wrap(baos.toByteArray());
   }
 
-  // get and initialize the inflater for use.
-  private Inflater getInflater() {
-    if (null == inflater) {
-      inflater = new Inflater(nowrap);
+  private ByteBuffer inflate(Inflater inflater, ByteBuffer in, ByteBuffer out, BufferGrowth growth)
+      throws IOException {
+    try {
+      while (!inflater.finished()) {
+        if (inflater.needsInput()) {
+          if (!in.hasRemaining()) {
+            break; // truncated, which InflaterOutputStream also ignored
+          }
+          if (in.hasArray()) {
+            inflater.setInput(in.array(), computeOffset(in), in.remaining());
+            ((Buffer) in).position(in.limit());
+          } else {
+            byte[] chunk = getInputChunk();
+            int n = Math.min(chunk.length, in.remaining());
+            in.get(chunk, 0, n);
+            inflater.setInput(chunk, 0, n);
+          }
+        } else if (inflater.needsDictionary()) {
+          throw new ZipException("Preset dictionary required");
+        } else {
+          out = inflateTo(inflater, out, growth);
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid deflate data");
+    }
+    return out;
+  }
+
+  private ByteBuffer inflateTo(Inflater inflater, ByteBuffer out, BufferGrowth growth)
+      throws DataFormatException {
+    if (!out.hasRemaining()) {
+      // only grow if there is more output, not just the end of the data
+      byte[] chunk = getOutputChunk();
+      int n = inflater.inflate(chunk, 0, 1);
+      if (n > 0) {
+        out = growth.grow(out, 1);
+        out.put(chunk[0]);
+      }
+      return out;
+    }
+    if (out.hasArray()) {
+      int n = inflater.inflate(out.array(), computeOffset(out), out.remaining());
+      ((Buffer) out).position(out.position() + n);
+    } else {
+      byte[] chunk = getOutputChunk();
+      int n = inflater.inflate(chunk, 0, Math.min(chunk.length, out.remaining()));
+      out.put(chunk, 0, n);
     }
-    inflater.reset();
-    return inflater;
+    return out;
   }
 
-  // get and initialize the deflater for use.
-  private Deflater getDeflater() {
-    if (null == deflater) {
-      deflater = new Deflater(compressionLevel, nowrap);
+  // chunks to copy direct buffers through, as (in|de)flaters only use arrays
+  private byte[] getInputChunk() {
+    if (inputChunk == null) {
+      inputChunk = new byte[CHUNK_SIZE];
     }
-    deflater.reset();
-    return deflater;
+    return inputChunk;
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
+  private byte[] getOutputChunk() {
+    if (outputChunk == null) {
+      outputChunk = new byte[CHUNK_SIZE];
     }
-    outputBuffer.reset();
-    return outputBuffer;
+    return outputChunk;
   }
 
   @Override
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.avro.util.ByteBufferPool;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements LZ4 compression and decompression. Each block is a raw LZ4 block
+ * preceded by its uncompressed length, as a four-byte big-endian integer.
+ */
+public class Lz4Codec extends Codec {
+
+  static class Option extends CodecFactory {
+    static {
+      // if lz4 isn't available, this will throw an exception which we
+      // can catch so we can avoid registering this codec
+      LZ4Factory.fastestInstance();
+    }
+
+    private final int compressionLevel;
+
+    Option(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new Lz4Codec(compressionLevel);
+    }
+  }
+
+  private final int compressionLevel;
+  private final LZ4Compressor compressor;
+  private final LZ4SafeDecompressor decompressor;
+
+  /**
+   * Create an Lz4Codec instance, using the fast compressor for levels below 1
+   * and the high compression compressor otherwise.
+   */
+  public Lz4Codec(int compressionLevel) {
+    this.compressionLevel = Math.max(compressionLevel, 0);
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = this.compressionLevel == 0 ? factory.fastCompressor()
+        : factory.highCompressor(this.compressionLevel);
+    this.decompressor = factory.safeDecompressor();
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.LZ4_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data) throws IOException {
+    return transform(this::lz4, data, maxCompressedLength(data));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::lz4, data, maxCompressedLength(data), pool);
+  }
+
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::lz4, in, out);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data) throws IOException {
+    return transform(this::unlz4, data, uncompressedLength(data));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::unlz4, data, uncompressedLength(data), pool);
+  }
+
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::unlz4, in, out);
+  }
+
+  private ByteBuffer lz4(ByteBuffer in, ByteBuffer out, BufferGrowth growth) {
+    int max = maxCompressedLength(in);
+    if (out.remaining() < max) {
+      try {
+        out = growth.grow(out, max);
+      } catch (BufferOverflowException e) {
+        // the result may yet fit
+      }
+    }
+    if (out.remaining() < 4) {
+      throw new BufferOverflowException();
+    }
+    int size;
+    try {
+      size = compressor.compress(in, in.position(), in.remaining(), out, out.position() + 4, out.remaining() - 4);
+    } catch (LZ4Exception e) {
+      throw new BufferOverflowException();
+    }
+    out.putInt(in.remaining());
+    ((Buffer) out).position(out.position() + size);
+    return out;
+  }
+
+  private ByteBuffer unlz4(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    int length = uncompressedLength(in);
+    out = ensureRemaining(out, length, growth);
+    int size;
+    try {
+      size = decompressor.decompress(in, in.position() + 4, in.remaining() - 4, out, out.position(), length);
+    } catch (LZ4Exception e) {
+      throw new IOException("Invalid LZ4 block", e);
+    }
+    if (size != length) {
+      throw new IOException("Invalid LZ4 block: expected " + length + " bytes but got " + size);
+    }
+    ((Buffer) out).position(out.position() + size);
+    return out;
+  }
+
+  private int maxCompressedLength(ByteBuffer in) {
+    return compressor.maxCompressedLength(in.remaining()) + 4;
+  }
+
+  private static int uncompressedLength(ByteBuffer in) throws IOException {
+    if (in.remaining() < 4) {
+      throw new IOException("Invalid LZ4 block: too short");
+    }
+    int length = in.getInt(in.position());
+    if (length < 0) {
+      throw new IOException("Invalid LZ4 block: negative length " + length);
+    }
+    return length;
+  }
+
+  @Override
+  public int hashCode() {
+    return getName().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    return obj != null && obj.getClass() == getClass();
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "-" + compressionLevel;
+  }
+}
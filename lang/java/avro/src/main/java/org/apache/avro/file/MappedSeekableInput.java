@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link SeekableInput} that memory maps a file. Files larger than a single
+ * mapping can address are mapped in overlapping chunks.
+ *
+ * {@link DataFileReader} reads the blocks of a mapped file as slices of the
+ * mapping instead of copying them, passing them to the file's codec as direct
+ * {@link ByteBuffer}s. Custom codecs used with this input must not assume that
+ * the data they are passed is backed by an array.
+ *
+ * The mapping remains valid until it is garbage collected, even after this
+ * input is closed.
+ */
+public class MappedSeekableInput implements SeekableInput {
+  static final long CHUNK_SIZE = 1L << 30;
+  static final long CHUNK_OVERLAP = 1L << 26;
+
+  private final FileChannel channel;
+  private final long length;
+  private final long chunkSize;
+  private final MappedByteBuffer[] chunks;
+  private long position;
+
+  /** Map a file. */
+  public MappedSeekableInput(File file) throws IOException {
+    this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+  }
+
+  /**
+   * Map the current contents of a channel, which must be readable. The channel is
+   * closed when this input is closed.
+   */
+  public MappedSeekableInput(FileChannel channel) throws IOException {
+    this(channel, CHUNK_SIZE, CHUNK_OVERLAP);
+  }
+
+  MappedSeekableInput(FileChannel channel, long chunkSize, long chunkOverlap) throws IOException {
+    this.channel = channel;
+    this.length = channel.size();
+    this.chunkSize = chunkSize;
+    int count = (int) Math.max(1, (length + chunkSize - 1) / chunkSize);
+    this.chunks = new MappedByteBuffer[count];
+    try {
+      for (int i = 0; i < count; i++) {
+        long start = i * chunkSize;
+        long size = Math.min(chunkSize + chunkOverlap, length - start);
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0 || p > length) {
+      throw new IOException("Illegal seek: " + p);
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (position >= length) {
+      return -1;
+    }
+    int n = (int) Math.min(len, length - position);
+    getBuffer(position, n).get(b, off, n);
+    position += n;
+    return n;
+  }
+
+  /**
+   * Return the bytes at a position, throwing {@link EOFException} if they extend
+   * past the end of the file. The result is a read-only slice of the mapping when
+   * they lie within a single chunk, which is the case for all but the largest
+   * blocks, and a copy otherwise. Does not change the position of this input.
+   */
+  public ByteBuffer getBuffer(long position, int size) throws IOException {
+    if (position < 0 || size < 0) {
+      throw new IOException("Invalid range: " + position + "+" + size);
+    }
+    if (position + size > length) {
+      throw new EOFException();
+    }
+    if (size == 0) {
+      return ByteBuffer.allocate(0);
+    }
+    int i = (int) (position / chunkSize);
+    ByteBuffer chunk = chunks[i].asReadOnlyBuffer();
+    int offset = (int) (position - i * chunkSize);
+    if (offset + size <= chunk.capacity()) {
+      ((Buffer) chunk).position(offset);
+      ((Buffer) chunk).limit(offset + size);
+      return chunk.slice();
+    }
+    ByteBuffer copy = ByteBuffer.allocate(size);
+    for (long p = position; copy.hasRemaining();) {
+      i = (int) (p / chunkSize);
+      offset = (int) (p - i * chunkSize);
+      chunk = chunks[i].asReadOnlyBuffer();
+      ((Buffer) chunk).position(offset);
+      ((Buffer) chunk).limit(Math.min(chunk.capacity(), offset + copy.remaining()));
+      p += chunk.remaining();
+      copy.put(chunk);
+    }
+    ((Buffer) copy).flip();
+    return copy;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -20,6 +20,8 @@ package org.apache.avro.file;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.apache.avro.util.ByteBufferPool;
+
 /** Implements "null" (pass through) codec. */
 final class NullCodec extends Codec {
 
@@ -50,6 +52,16 @@ final class NullCodec extends Codec {
     return data;
   }
 
+  @Override
+  public ByteBuffer compress(ByteBuffer buffer, ByteBufferPool pool) throws IOException {
+    return buffer;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return data;
+  }
+
   @Override
   public boolean equals(Object other) {
     if (this == other)
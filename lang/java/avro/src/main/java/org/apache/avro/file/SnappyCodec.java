@@ -19,9 +19,11 @@ package org.apache.avro.file;
 
 import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
+import org.apache.avro.util.ByteBufferPool;
 import org.xerial.snappy.Snappy;
 
 /** * Implements Snappy compression and decompression. */
@@ -51,33 +53,131 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
-    int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining()) + 4);
-    int size = Snappy.compress(in.array(), offset, in.remaining(), out.array(), 0);
-    crc32.reset();
-    crc32.update(in.array(), offset, in.remaining());
-    out.putInt(size, (int) crc32.getValue());
+    return transform(this::compress, in, maxCompressedLength(in));
+  }
 
-    ((Buffer) out).limit(size + 4);
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBufferPool pool) throws IOException {
+    return transform(this::compress, in, maxCompressedLength(in), pool);
+  }
 
-    return out;
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::compress, in, out);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer in) throws IOException {
-    int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4));
-    int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out.array(), 0);
-    ((Buffer) out).limit(size);
+    return transform(this::decompress, in, uncompressedLength(in));
+  }
 
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBufferPool pool) throws IOException {
+    return transform(this::decompress, in, uncompressedLength(in), pool);
+  }
+
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::decompress, in, out);
+  }
+
+  private ByteBuffer compress(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    int max = maxCompressedLength(in);
+    ByteBuffer target = out;
+    if (out.remaining() < max) {
+      try {
+        out = target = growth.grow(out, max);
+      } catch (BufferOverflowException e) {
+        // snappy needs room for the worst case, but the result may yet fit
+        target = ByteBuffer.allocate(max);
+      }
+    }
     crc32.reset();
-    crc32.update(out.array(), 0, size);
-    if (in.getInt(((Buffer) in).limit() - 4) != (int) crc32.getValue())
+    crc32.update(in.duplicate());
+
+    int size;
+    if (in.isDirect() && target.isDirect()) {
+      size = Snappy.compress(in, target.duplicate());
+    } else {
+      // snappy needs both buffers to be direct or arrays
+      in = arrayBacked(in);
+      if (target.hasArray()) {
+        size = Snappy.compress(in.array(), computeOffset(in), in.remaining(), target.array(), computeOffset(target));
+      } else {
+        byte[] compressed = new byte[max];
+        size = Snappy.compress(in.array(), computeOffset(in), in.remaining(), compressed, 0);
+        target.duplicate().put(compressed, 0, size);
+      }
+    }
+    ((Buffer) target).position(target.position() + size);
+    target.putInt((int) crc32.getValue());
+
+    if (target != out) {
+      ((Buffer) target).flip();
+      out = ensureRemaining(out, target.remaining(), growth);
+      out.put(target);
+    }
+    return out;
+  }
+
+  private ByteBuffer decompress(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    int length = uncompressedLength(in);
+    out = ensureRemaining(out, length, growth);
+    ByteBuffer compressed = in.duplicate();
+    ((Buffer) compressed).limit(in.limit() - 4);
+
+    int size;
+    if (compressed.isDirect() && out.isDirect()) {
+      size = Snappy.uncompress(compressed, out.duplicate());
+    } else {
+      compressed = arrayBacked(compressed);
+      if (out.hasArray()) {
+        size = Snappy.uncompress(compressed.array(), computeOffset(compressed), compressed.remaining(), out.array(),
+            computeOffset(out));
+      } else {
+        byte[] uncompressed = new byte[length];
+        size = Snappy.uncompress(compressed.array(), computeOffset(compressed), compressed.remaining(), uncompressed,
+            0);
+        out.duplicate().put(uncompressed, 0, size);
+      }
+    }
+
+    ByteBuffer uncompressed = out.duplicate();
+    ((Buffer) uncompressed).limit(uncompressed.position() + size);
+    crc32.reset();
+    crc32.update(uncompressed);
+    if (in.getInt(in.limit() - 4) != (int) crc32.getValue())
       throw new IOException("Checksum failure");
 
+    ((Buffer) out).position(out.position() + size);
     return out;
   }
 
+  private static int maxCompressedLength(ByteBuffer in) {
+    return Snappy.maxCompressedLength(in.remaining()) + 4;
+  }
+
+  private static int uncompressedLength(ByteBuffer in) throws IOException {
+    if (in.isDirect()) {
+      ByteBuffer compressed = in.duplicate();
+      ((Buffer) compressed).limit(in.limit() - 4);
+      return Snappy.uncompressedLength(compressed);
+    }
+    in = arrayBacked(in);
+    return Snappy.uncompressedLength(in.array(), computeOffset(in), in.remaining() - 4);
+  }
+
+  // Snappy works on arrays or direct buffers, so copy data that is neither
+  private static ByteBuffer arrayBacked(ByteBuffer data) {
+    if (data.hasArray()) {
+      return data;
+    }
+    ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+    copy.put(data.duplicate());
+    ((Buffer) copy).flip();
+    return copy;
+  }
+
   @Override
   public int hashCode() {
     return getName().hashCode();
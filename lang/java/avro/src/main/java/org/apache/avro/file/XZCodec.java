@@ -17,18 +17,22 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
-import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
-import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
-import org.apache.commons.compress.utils.IOUtils;
+import org.apache.avro.util.ByteBufferPool;
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.SingleXZInputStream;
+import org.tukaani.xz.XZOutputStream;
 
-/** * Implements xz compression and decompression. */
+/**
+ * Implements xz compression and decompression. The large arrays that xz
+ * allocates for each block, of several megabytes at the higher levels, are
+ * reused through a shared cache.
+ */
 public class XZCodec extends Codec {
   public final static int DEFAULT_COMPRESSION = 6;
 
@@ -45,7 +49,6 @@ public class XZCodec extends Codec {
     }
   }
 
-  private ByteArrayOutputStream outputBuffer;
   private int compressionLevel;
 
   public XZCodec(int compressionLevel) {
@@ -59,31 +62,47 @@ public class XZCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = new XZCompressorOutputStream(baos, compressionLevel)) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return transform(this::xz, data, data.remaining());
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::xz, data, data.remaining(), pool);
+  }
+
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::xz, in, out);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    InputStream bytesIn = new ByteArrayInputStream(data.array(), computeOffset(data), data.remaining());
+    return transform(this::unxz, data, decompressedSizeHint(data));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::unxz, data, decompressedSizeHint(data), pool);
+  }
+
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::unxz, in, out);
+  }
 
-    try (InputStream ios = new XZCompressorInputStream(bytesIn)) {
-      IOUtils.copy(ios, baos);
+  private ByteBuffer xz(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    BufferOutputStream bytesOut = new BufferOutputStream(out, growth);
+    try (OutputStream outputStream = new XZOutputStream(bytesOut, new LZMA2Options(compressionLevel),
+        BasicArrayCache.getInstance())) {
+      writeTo(in, outputStream);
     }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return bytesOut.buffer();
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
+  private ByteBuffer unxz(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    try (InputStream ios = new SingleXZInputStream(inputStream(in), BasicArrayCache.getInstance())) {
+      return readFully(ios, out, growth);
     }
-    outputBuffer.reset();
-    return outputBuffer;
   }
 
   @Override
@@ -17,79 +17,240 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-import org.apache.commons.compress.utils.IOUtils;
+import org.apache.avro.util.ByteBufferPool;
 
+/**
+ * Compresses blocks with Zstandard, optionally with a dictionary. Small blocks
+ * of similar data compress much better with a dictionary trained from samples
+ * of them, see {@link #trainDictionary(Iterable, int)}. Data files written
+ * with a dictionary name the "zstandard-dictionary" codec, which readers that
+ * do not know it reject, and store the dictionary and compression level in their
+ * metadata, so that they can be read and appended to without it.
+ */
 public class ZstandardCodec extends Codec {
 
   static class Option extends CodecFactory {
     private final int compressionLevel;
     private final boolean useChecksum;
+    private final byte[] dictionary;
 
     Option(int compressionLevel, boolean useChecksum) {
+      this(compressionLevel, useChecksum, null);
+    }
+
+    Option(int compressionLevel, boolean useChecksum, byte[] dictionary) {
       this.compressionLevel = compressionLevel;
       this.useChecksum = useChecksum;
+      this.dictionary = dictionary;
     }
 
     @Override
     protected Codec createInstance() {
-      return new ZstandardCodec(compressionLevel, useChecksum);
+      return new ZstandardCodec(compressionLevel, useChecksum, dictionary);
     }
   }
 
   private final int compressionLevel;
   private final boolean useChecksum;
-  private ByteArrayOutputStream outputBuffer;
+  private final byte[] dictionary;
+  private volatile ZstandardLoader.Dictionary digested;
 
   /**
    * Create a ZstandardCodec instance with the given compressionLevel and checksum
    * option
    **/
   public ZstandardCodec(int compressionLevel, boolean useChecksum) {
+    this(compressionLevel, useChecksum, null);
+  }
+
+  /**
+   * Create a ZstandardCodec instance that compresses with a dictionary, or with
+   * none if it is null.
+   */
+  public ZstandardCodec(int compressionLevel, boolean useChecksum, byte[] dictionary) {
     this.compressionLevel = compressionLevel;
     this.useChecksum = useChecksum;
+    this.dictionary = dictionary == null ? null : dictionary.clone();
+  }
+
+  /**
+   * Train a dictionary of up to a number of bytes from samples of the data to be
+   * compressed, such as the blocks of an existing file, as returned by
+   * {@link DataFileStream#nextBlock()}. Many samples of about the size of the
+   * blocks that will be written work best, and a dictionary of 16KB to 112KB is
+   * usually enough.
+   *
+   * @throws IOException if there are too few samples to train from
+   */
+  public static byte[] trainDictionary(Iterable<ByteBuffer> samples, int dictionarySize) throws IOException {
+    List<byte[]> arrays = new ArrayList<>();
+    for (ByteBuffer sample : samples) {
+      byte[] array = new byte[sample.remaining()];
+      sample.duplicate().get(array);
+      arrays.add(array);
+    }
+    return ZstandardLoader.train(arrays.toArray(new byte[0][]), dictionarySize);
+  }
+
+  /** The dictionary data is compressed with, or null if there is none. */
+  public byte[] getDictionary() {
+    return dictionary == null ? null : dictionary.clone();
+  }
+
+  private ZstandardLoader.Dictionary digested() {
+    ZstandardLoader.Dictionary d = digested;
+    if (d == null && dictionary != null) {
+      // racing threads may both digest it, which is harmless
+      d = new ZstandardLoader.Dictionary(dictionary, compressionLevel);
+      digested = d;
+    }
+    return d;
+  }
+
+  int getLevel() {
+    return compressionLevel;
   }
 
   @Override
   public String getName() {
-    return DataFileConstants.ZSTANDARD_CODEC;
+    return dictionary == null ? DataFileConstants.ZSTANDARD_CODEC : DataFileConstants.ZSTANDARD_DICTIONARY_CODEC;
   }
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum)) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return transform(this::zstd, data, ZstandardLoader.compressBound(data.remaining()));
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBufferPool pool) throws IOException {
+    return transform(this::zstd, data, ZstandardLoader.compressBound(data.remaining()), pool);
+  }
+
+  @Override
+  public int compress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::zstd, in, out);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(compressedData.remaining());
-    InputStream bytesIn = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
-        compressedData.remaining());
-    try (InputStream ios = ZstandardLoader.input(bytesIn)) {
-      IOUtils.copy(ios, baos);
+    return transform(this::unzstd, compressedData, decompressedSize(compressedData));
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBufferPool pool) throws IOException {
+    return transform(this::unzstd, compressedData, decompressedSize(compressedData), pool);
+  }
+
+  @Override
+  public int decompress(ByteBuffer in, ByteBuffer out) throws IOException {
+    return transform(this::unzstd, in, out);
+  }
+
+  ByteBuffer zstd(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    ZstandardLoader.Dictionary d = digested();
+    if (oneShot(in, out)) {
+      int bound = ZstandardLoader.compressBound(in.remaining());
+      if (out.remaining() < bound) {
+        try {
+          out = growth.grow(out, bound);
+        } catch (BufferOverflowException e) {
+          // it may yet fit
+        }
+      }
+      int size = ZstandardLoader.compress(in, out, compressionLevel, useChecksum, d);
+      if (size >= 0) {
+        ((Buffer) out).position(out.position() + size);
+        return out;
+      }
+      if (out.remaining() >= bound) {
+        throw new IOException("Zstandard compression failed");
+      }
+      throw new BufferOverflowException();
+    }
+    // the native calls need both buffers to be direct or arrays, otherwise stream
+    BufferOutputStream bytesOut = new BufferOutputStream(out, growth);
+    try (OutputStream outputStream = ZstandardLoader.output(bytesOut, compressionLevel, useChecksum, d)) {
+      writeTo(in, outputStream);
     }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return bytesOut.buffer();
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (outputBuffer == null) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
+  ByteBuffer unzstd(ByteBuffer in, ByteBuffer out, BufferGrowth growth) throws IOException {
+    ZstandardLoader.Dictionary d = digested();
+    long size = frameContentSize(in);
+    if (size >= 0 && size <= Integer.MAX_VALUE - 8 && oneShot(in, out)) {
+      out = ensureRemaining(out, (int) size, growth);
+      int n = ZstandardLoader.decompress(in, out, d);
+      if (n >= 0) {
+        ((Buffer) out).position(out.position() + n);
+        return out;
+      }
+      // several frames, so stream them
     }
-    outputBuffer.reset();
-    return outputBuffer;
+    try (InputStream ios = ZstandardLoader.input(inputStream(in), d)) {
+      return readFully(ios, out, growth);
+    }
+  }
+
+  // whether the native calls can take the buffers, which must both be direct or
+  // arrays
+  private static boolean oneShot(ByteBuffer in, ByteBuffer out) {
+    return in.isDirect() == out.isDirect() && (in.isDirect() || in.hasArray() && out.hasArray());
   }
 
+  static int decompressedSize(ByteBuffer compressedData) {
+    long size = frameContentSize(compressedData);
+    if (size < 0 || size > Integer.MAX_VALUE - 8) {
+      return decompressedSizeHint(compressedData);
+    }
+    return Math.max((int) size, 1);
+  }
+
+  /**
+   * The uncompressed size recorded in the header of the first frame of data, or
+   * -1 if it is not recorded or the data does not start with a frame.
+   */
+  private static long frameContentSize(ByteBuffer data) {
+    ByteBuffer in = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (in.remaining() < 6 || in.getInt() != FRAME_MAGIC) {
+      return -1;
+    }
+    int descriptor = in.get() & 0xff;
+    boolean singleSegment = (descriptor & 0x20) != 0;
+    int sizeFlag = descriptor >>> 6;
+    int sizeLength = sizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << sizeFlag;
+    int dictionaryIdLength = (1 << (descriptor & 3)) >> 1;
+    int skip = (singleSegment ? 0 : 1) + dictionaryIdLength;
+    if (sizeLength == 0 || in.remaining() < skip + sizeLength) {
+      return -1;
+    }
+    ((Buffer) in).position(in.position() + skip);
+    switch (sizeLength) {
+    case 1:
+      return in.get() & 0xff;
+    case 2:
+      return (in.getShort() & 0xffff) + 256;
+    case 4:
+      return in.getInt() & 0xffffffffL;
+    default:
+      long size = in.getLong();
+      return size < 0 ? -1 : size;
+    }
+  }
+
+  private static final int FRAME_MAGIC = 0xFD2FB528;
+
   @Override
   public int hashCode() {
     return getName().hashCode();
@@ -97,11 +258,15 @@ public class ZstandardCodec extends Codec {
 
   @Override
   public boolean equals(Object obj) {
-    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+    return (this == obj) || (obj != null && obj.getClass() == this.getClass()
+        && Arrays.equals(dictionary, ((ZstandardCodec) obj).dictionary));
   }
 
   @Override
   public String toString() {
+    if (dictionary != null) {
+      return getName() + "[" + compressionLevel + ", dictionary " + ZstandardLoader.dictionaryId(dictionary) + "]";
+    }
     return getName() + "[" + compressionLevel + "]";
   }
 }
@@ -20,8 +20,15 @@ package org.apache.avro.file;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
 import com.github.luben.zstd.ZstdInputStream;
 import com.github.luben.zstd.ZstdOutputStream;
 
@@ -30,15 +37,130 @@ import com.github.luben.zstd.ZstdOutputStream;
  * or decompress methods rather than when we instantiate it */
 final class ZstandardLoader {
 
-  static InputStream input(InputStream compressed) throws IOException {
-    return new ZstdInputStream(compressed);
+  // contexts without a dictionary, shared by every codec
+  private static final ContextPool<ZstdCompressCtx> COMPRESS_CONTEXTS = new ContextPool<>(ZstdCompressCtx::new,
+      ZstdCompressCtx::close);
+  private static final ContextPool<ZstdDecompressCtx> DECOMPRESS_CONTEXTS = new ContextPool<>(
+      ZstdDecompressCtx::new, ZstdDecompressCtx::close);
+
+  static InputStream input(InputStream compressed, Dictionary dictionary) throws IOException {
+    ZstdInputStream zstdInputStream = new ZstdInputStream(compressed);
+    if (dictionary != null) {
+      zstdInputStream.setDict(dictionary.decompress);
+    }
+    return zstdInputStream;
   }
 
-  static OutputStream output(OutputStream compressed, int level, boolean checksum) throws IOException {
-    int bounded = Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
-    ZstdOutputStream zstdOutputStream = new ZstdOutputStream(compressed, bounded);
+  static OutputStream output(OutputStream compressed, int level, boolean checksum, Dictionary dictionary)
+      throws IOException {
+    ZstdOutputStream zstdOutputStream = new ZstdOutputStream(compressed, bounded(level));
     zstdOutputStream.setCloseFrameOnFlush(false);
     zstdOutputStream.setChecksum(checksum);
+    if (dictionary != null) {
+      zstdOutputStream.setDict(dictionary.compress);
+    }
     return zstdOutputStream;
   }
+
+  /**
+   * A dictionary, digested once for compression at a level and decompression,
+   * with contexts that have it loaded.
+   */
+  static final class Dictionary {
+    private final ZstdDictCompress compress;
+    private final ZstdDictDecompress decompress;
+    private final ContextPool<ZstdCompressCtx> compressContexts;
+    private final ContextPool<ZstdDecompressCtx> decompressContexts;
+
+    Dictionary(byte[] dictionary, int level) {
+      this.compress = new ZstdDictCompress(dictionary, bounded(level));
+      this.decompress = new ZstdDictDecompress(dictionary);
+      this.compressContexts = new ContextPool<>(() -> new ZstdCompressCtx().loadDict(compress),
+          ZstdCompressCtx::close);
+      this.decompressContexts = new ContextPool<>(() -> new ZstdDecompressCtx().loadDict(decompress),
+          ZstdDecompressCtx::close);
+    }
+  }
+
+  /**
+   * Train a dictionary of up to a number of bytes from samples, returning the
+   * dictionary.
+   */
+  static byte[] train(byte[][] samples, int dictionarySize) throws IOException {
+    byte[] dictionary = new byte[dictionarySize];
+    long size = Zstd.trainFromBuffer(samples, dictionary);
+    if (Zstd.isError(size)) {
+      throw new IOException("Zstandard dictionary training failed: " + Zstd.getErrorName(size));
+    }
+    return size == dictionarySize ? dictionary : Arrays.copyOf(dictionary, (int) size);
+  }
+
+  /** The id of a dictionary, or 0 if it has none. */
+  static long dictionaryId(byte[] dictionary) {
+    return Zstd.getDictIdFromDict(dictionary);
+  }
+
+  static int compressBound(int size) {
+    return (int) Math.min(Zstd.compressBound(size), Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Compress the remaining bytes of src into the remaining room of dst, both
+   * either direct or backed by arrays, returning the compressed size or -1 if
+   * dst is too small. Positions are not changed.
+   */
+  static int compress(ByteBuffer src, ByteBuffer dst, int level, boolean checksum, Dictionary dictionary)
+      throws IOException {
+    ContextPool<ZstdCompressCtx> contexts = dictionary != null ? dictionary.compressContexts : COMPRESS_CONTEXTS;
+    ZstdCompressCtx context = contexts.acquire();
+    try {
+      if (dictionary == null) {
+        context.setLevel(bounded(level));
+      }
+      context.setChecksum(checksum);
+      if (src.isDirect()) {
+        return context.compressDirectByteBuffer(dst, dst.position(), dst.remaining(), src, src.position(),
+            src.remaining());
+      }
+      return context.compressByteArray(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(), src.array(),
+          src.arrayOffset() + src.position(), src.remaining());
+    } catch (ZstdException e) {
+      return tooSmall(e);
+    } finally {
+      contexts.release(context);
+    }
+  }
+
+  /**
+   * Decompress the remaining bytes of src into dst, as for
+   * {@link #compress(ByteBuffer, ByteBuffer, int, boolean, Dictionary)}.
+   */
+  static int decompress(ByteBuffer src, ByteBuffer dst, Dictionary dictionary) throws IOException {
+    ContextPool<ZstdDecompressCtx> contexts = dictionary != null ? dictionary.decompressContexts
+        : DECOMPRESS_CONTEXTS;
+    ZstdDecompressCtx context = contexts.acquire();
+    try {
+      if (src.isDirect()) {
+        return context.decompressDirectByteBuffer(dst, dst.position(), dst.remaining(), src, src.position(),
+            src.remaining());
+      }
+      return context.decompressByteArray(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining(),
+          src.array(), src.arrayOffset() + src.position(), src.remaining());
+    } catch (ZstdException e) {
+      return tooSmall(e);
+    } finally {
+      contexts.release(context);
+    }
+  }
+
+  private static int tooSmall(ZstdException e) throws IOException {
+    if (e.getErrorCode() == Zstd.errDstSizeTooSmall()) {
+      return -1;
+    }
+    throw new IOException("Zstandard error: " + e.getMessage(), e);
+  }
+
+  private static int bounded(int level) {
+    return Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+  }
 }
@@ -53,6 +53,7 @@ import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.FastReaderBuilder;
+import org.apache.avro.io.FastWriterBuilder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.internal.Accessor;
 
@@ -200,6 +201,26 @@ public class GenericData {
     return this.fastReaderBuilder;
   }
 
+  public static final String FAST_WRITER_PROP = "org.apache.avro.fastwrite";
+  private boolean fastWriterEnabled = "true".equalsIgnoreCase(System.getProperty(FAST_WRITER_PROP));
+  private FastWriterBuilder fastWriterBuilder = null;
+
+  public GenericData setFastWriterEnabled(boolean flag) {
+    this.fastWriterEnabled = flag;
+    return this;
+  }
+
+  public boolean isFastWriterEnabled() {
+    return fastWriterEnabled && FastWriterBuilder.isSupportedData(this);
+  }
+
+  public FastWriterBuilder getFastWriterBuilder() {
+    if (fastWriterBuilder == null) {
+      fastWriterBuilder = new FastWriterBuilder(this);
+    }
+    return this.fastWriterBuilder;
+  }
+
   /**
    * Default implementation of {@link GenericRecord}. Note that this
    * implementation does not fill in default values for fields if they are not
@@ -376,6 +397,16 @@ public class GenericData {
       return (T) elements[i];
     }
 
+    /**
+     * Grows this array, if needed, so that it holds at least the given number of
+     * elements without growing again.
+     */
+    public void ensureCapacity(int capacity) {
+      if (capacity > elements.length) {
+        elements = Arrays.copyOf(elements, capacity);
+      }
+    }
+
     @Override
     public void add(int location, T o) {
       if (location > size || location < 0) {
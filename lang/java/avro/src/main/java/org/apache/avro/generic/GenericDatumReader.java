@@ -37,7 +37,7 @@ import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.ResolvingDecoder;
 import org.apache.avro.util.Utf8;
-import org.apache.avro.util.WeakIdentityHashMap;
+import org.apache.avro.util.internal.Pool;
 
 /** {@link DatumReader} for generic Java objects. */
 public class GenericDatumReader<D> implements DatumReader<D> {
@@ -47,6 +47,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private DatumReader<D> fastDatumReader = null;
 
   private ResolvingDecoder creatorResolver = null;
+  private volatile Shared shared = null;
   private final Thread creator;
 
   public GenericDatumReader() {
@@ -91,6 +92,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       expected = actual;
     }
     creatorResolver = null;
+    shared = null;
     fastDatumReader = null;
   }
 
@@ -103,39 +105,61 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   public void setExpected(Schema reader) {
     this.expected = reader;
     creatorResolver = null;
+    shared = null;
   }
 
-  private static final ThreadLocal<Map<Schema, Map<Schema, ResolvingDecoder>>> RESOLVER_CACHE = ThreadLocal
-      .withInitial(WeakIdentityHashMap::new);
-
   /**
    * Gets a resolving decoder for use by this GenericDatumReader. Unstable API.
-   * Currently uses a thread local cache to prevent constructing the resolvers too
-   * often, because that is very expensive.
+   * The expensive part of a resolving decoder, its resolver, comes from a cache
+   * shared by all threads. Threads other than the one that created this reader
+   * take their decoders from a pool of decoders around it.
    */
   protected final ResolvingDecoder getResolver(Schema actual, Schema expected) throws IOException {
     Thread currThread = Thread.currentThread();
-    ResolvingDecoder resolver;
     if (currThread == creator && creatorResolver != null) {
       return creatorResolver;
     }
 
-    Map<Schema, ResolvingDecoder> cache = RESOLVER_CACHE.get().get(actual);
-    if (cache == null) {
-      cache = new WeakIdentityHashMap<>();
-      RESOLVER_CACHE.get().put(actual, cache);
-    }
-    resolver = cache.get(expected);
-    if (resolver == null) {
-      resolver = DecoderFactory.get().resolvingDecoder(Schema.applyAliases(actual, expected), expected, null);
-      cache.put(expected, resolver);
+    ResolvingDecoder decoder;
+    if (actual == this.actual && expected == this.expected) {
+      decoder = shared().acquire();
+    } else {
+      decoder = DecoderFactory.get().resolvingDecoder(ResolvingDecoder.resolveShared(actual, expected), null);
     }
 
     if (currThread == creator) {
-      creatorResolver = resolver;
+      creatorResolver = decoder;
     }
 
-    return resolver;
+    return decoder;
+  }
+
+  private Shared shared() throws IOException {
+    Shared s = shared;
+    if (s == null) {
+      // racing threads may both resolve, and get the same cached resolver
+      s = new Shared(ResolvingDecoder.resolveShared(actual, expected));
+      shared = s;
+    }
+    return s;
+  }
+
+  /**
+   * The resolver of this reader's schemas, and the decoders around it that
+   * threads other than the creator take and return on each read.
+   */
+  private static final class Shared {
+    private final Object resolver;
+    private final Pool<ResolvingDecoder> decoders = new Pool<>(() -> null);
+
+    Shared(Object resolver) {
+      this.resolver = resolver;
+    }
+
+    ResolvingDecoder acquire() throws IOException {
+      ResolvingDecoder decoder = decoders.acquire();
+      return decoder != null ? decoder : DecoderFactory.get().resolvingDecoder(resolver, null);
+    }
   }
 
   @Override
@@ -148,10 +172,15 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       return fastDatumReader.read(reuse, in);
     }
 
-    ResolvingDecoder resolver = getResolver(actual, expected);
+    Shared pool = Thread.currentThread() == creator ? null : shared();
+    ResolvingDecoder resolver = pool == null ? getResolver(actual, expected) : pool.acquire();
     resolver.configure(in);
     D result = (D) read(reuse, expected, resolver);
     resolver.drain();
+    if (pool != null) {
+      // a decoder that failed part way is dropped rather than returned
+      pool.decoders.release(resolver);
+    }
     return result;
   }
 
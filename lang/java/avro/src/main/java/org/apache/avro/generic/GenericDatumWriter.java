@@ -40,6 +40,7 @@ import org.apache.avro.io.Encoder;
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private DatumWriter<D> fastDatumWriter = null;
 
   public GenericDatumWriter() {
     this(GenericData.get());
@@ -66,13 +67,30 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   public void setSchema(Schema root) {
     this.root = root;
+    fastDatumWriter = null;
   }
 
   public void write(D datum, Encoder out) throws IOException {
     Objects.requireNonNull(out, "Encoder cannot be null");
+    if (data.isFastWriterEnabled() && isFastWriterSupported()) {
+      if (this.fastDatumWriter == null) {
+        this.fastDatumWriter = data.getFastWriterBuilder().createDatumWriter(root);
+      }
+      fastDatumWriter.write(datum, out);
+      return;
+    }
     write(root, datum, out);
   }
 
+  /**
+   * Returns whether writing may be handed to the writers built by
+   * {@link GenericData#getFastWriterBuilder()}. Those don't call the protected
+   * methods of this class, so subclasses that override them aren't supported.
+   */
+  protected boolean isFastWriterSupported() {
+    return getClass() == GenericDatumWriter.class;
+  }
+
   /** Called to write data. */
   protected void write(Schema schema, Object datum, Encoder out) throws IOException {
     LogicalType logicalType = schema.getLogicalType();
@@ -18,11 +18,14 @@
 package org.apache.avro.io;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.util.internal.Pool;
 
 /** Utilities for binary-encoded data. */
 public class BinaryData {
@@ -49,7 +52,7 @@ public class BinaryData {
     }
   } // no public ctor
 
-  private static final ThreadLocal<Decoders> DECODERS = ThreadLocal.withInitial(Decoders::new);
+  private static final Pool<Decoders> DECODERS = new Pool<>(Decoders::new);
 
   /**
    * Compare binary encoded data. If equal, return zero. If greater-than, return
@@ -66,7 +69,7 @@ public class BinaryData {
    * {@link org.apache.avro.generic.GenericData#compare(Object, Object, Schema)}.
    */
   public static int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2, Schema schema) {
-    Decoders decoders = DECODERS.get();
+    Decoders decoders = DECODERS.acquire();
     decoders.set(b1, s1, l1, b2, s2, l2);
     try {
       return compare(decoders, schema);
@@ -74,6 +77,7 @@ public class BinaryData {
       throw new AvroRuntimeException(e);
     } finally {
       decoders.clear();
+      DECODERS.release(decoders);
     }
   }
 
@@ -204,19 +208,22 @@ public class BinaryData {
     }
   }
 
-  private static final ThreadLocal<HashData> HASH_DATA = ThreadLocal.withInitial(HashData::new);
+  private static final Pool<HashData> HASH_DATA = new Pool<>(HashData::new);
 
   /**
    * Hash binary encoded data. Consistent with
    * {@link org.apache.avro.generic.GenericData#hashCode(Object, Schema)}.
    */
   public static int hashCode(byte[] bytes, int start, int length, Schema schema) {
-    HashData data = HASH_DATA.get();
+    HashData data = HASH_DATA.acquire();
     data.set(bytes, start, length);
     try {
       return hashCode(data, schema);
     } catch (IOException e) {
       throw new AvroRuntimeException(e);
+    } finally {
+      data.decoder.clearBuf();
+      HASH_DATA.release(data);
     }
   }
 
@@ -427,4 +434,74 @@ public class BinaryData {
     return 8;
   }
 
+  // runs shorter than this are encoded an item at a time, as creating a view
+  // buffer costs more than it saves
+  private static final int BULK_VIEW_THRESHOLD = 16;
+
+  /**
+   * Encode len ints of an array, from off, to the byte array at the given
+   * position. Users should ensure that there are at least 5 * len bytes left in
+   * the buffer before calling this method.
+   *
+   * @return The number of bytes written to the buffer.
+   */
+  public static int encodeInts(int[] a, int off, int len, byte[] buf, int pos) {
+    int start = pos;
+    for (int end = off + len; off < end; off++) {
+      pos += encodeInt(a[off], buf, pos);
+    }
+    return pos - start;
+  }
+
+  /**
+   * Encode len longs of an array, from off, to the byte array at the given
+   * position. Users should ensure that there are at least 10 * len bytes left in
+   * the buffer before calling this method.
+   *
+   * @return The number of bytes written to the buffer.
+   */
+  public static int encodeLongs(long[] a, int off, int len, byte[] buf, int pos) {
+    int start = pos;
+    for (int end = off + len; off < end; off++) {
+      pos += encodeLong(a[off], buf, pos);
+    }
+    return pos - start;
+  }
+
+  /**
+   * Encode len floats of an array, from off, to the byte array at the given
+   * position. Users should ensure that there are at least 4 * len bytes left in
+   * the buffer before calling this method.
+   *
+   * @return The number of bytes written to the buffer, 4 * len.
+   */
+  public static int encodeFloats(float[] a, int off, int len, byte[] buf, int pos) {
+    if (len < BULK_VIEW_THRESHOLD) {
+      for (int i = 0; i < len; i++) {
+        encodeFloat(a[off + i], buf, pos + 4 * i);
+      }
+    } else {
+      // floats are encoded as little-endian IEEE 754, like a view buffer
+      ByteBuffer.wrap(buf, pos, 4 * len).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(a, off, len);
+    }
+    return 4 * len;
+  }
+
+  /**
+   * Encode len doubles of an array, from off, to the byte array at the given
+   * position. Users should ensure that there are at least 8 * len bytes left in
+   * the buffer before calling this method.
+   *
+   * @return The number of bytes written to the buffer, 8 * len.
+   */
+  public static int encodeDoubles(double[] a, int off, int len, byte[] buf, int pos) {
+    if (len < BULK_VIEW_THRESHOLD) {
+      for (int i = 0; i < len; i++) {
+        encodeDouble(a[off + i], buf, pos + 8 * i);
+      }
+    } else {
+      ByteBuffer.wrap(buf, pos, 8 * len).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(a, off, len);
+    }
+    return 8 * len;
+  }
 }
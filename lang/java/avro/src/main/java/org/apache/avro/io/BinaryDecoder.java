@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 import org.apache.avro.AvroRuntimeException;
@@ -275,6 +276,160 @@ public class BinaryDecoder extends Decoder {
     return Double.longBitsToDouble((((long) n1) & 0xffffffffL) | (((long) n2) << 32));
   }
 
+  // runs shorter than this are decoded an item at a time, as creating a view
+  // buffer costs more than it saves
+  private static final int BULK_VIEW_THRESHOLD = 16;
+
+  // the high bit of each byte in a word, which is set on every byte of a
+  // varint but its last
+  static final long CONTINUATION_BITS = 0x8080808080808080L;
+
+  /**
+   * Returns the length of the varint that starts a little-endian word of eight
+   * encoded bytes, or zero if it is longer than eight bytes.
+   */
+  static int varintLength(long word) {
+    long stops = ~word & CONTINUATION_BITS;
+    return stops == 0 ? 0 : (Long.numberOfTrailingZeros(stops) >>> 3) + 1;
+  }
+
+  /**
+   * Returns the still zig-zag encoded value of a varint of {@code len} bytes,
+   * from one to eight, that starts a little-endian word. Its seven-bit groups
+   * are packed together in three steps rather than one byte at a time.
+   */
+  static long varintBits(long word, int len) {
+    long x = word & (-1L >>> (64 - 8 * len)) & ~CONTINUATION_BITS;
+    x = ((x & 0x7f007f007f007f00L) >>> 1) | (x & 0x007f007f007f007fL);
+    x = ((x & 0x3fff00003fff0000L) >>> 2) | (x & 0x00003fff00003fffL);
+    return ((x & 0x0fffffff00000000L) >>> 4) | (x & 0x000000000fffffffL);
+  }
+
+  // a little-endian view of buf, for reading eight bytes at a time
+  private ByteBuffer words;
+
+  private ByteBuffer words() {
+    if (words == null || words.array() != buf) {
+      words = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return words;
+  }
+
+  @Override
+  public void readInts(int[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      // no int is longer than five bytes, so this many can be decoded from
+      // the buffer, eight bytes at a time, without checking its bounds
+      int n = Math.min(end - off, (limit - pos - 3) / 5);
+      if (n <= 0) {
+        a[off++] = readInt(); // refills the buffer
+      } else {
+        ByteBuffer w = words();
+        int p = pos;
+        for (int stop = off + n; off < stop;) {
+          long word = w.getLong(p);
+          if ((word & CONTINUATION_BITS) == 0 && stop - off >= 8) {
+            // eight ints of one byte each
+            for (int i = 0; i < 8; i++, word >>>= 8) {
+              int v = (int) word & 0x7f;
+              a[off++] = (v >>> 1) ^ -(v & 1);
+            }
+            p += 8;
+            continue;
+          }
+          int l = varintLength(word);
+          if (l == 0 || l > 5) {
+            throw new InvalidNumberEncodingException("Invalid int encoding");
+          }
+          int v = (int) varintBits(word, l);
+          p += l;
+          a[off++] = (v >>> 1) ^ -(v & 1); // back to two's-complement
+        }
+        pos = p;
+      }
+    }
+  }
+
+  @Override
+  public void readLongs(long[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (limit - pos) / 10);
+      if (n == 0) {
+        a[off++] = readLong(); // refills the buffer
+      } else {
+        byte[] b = buf;
+        ByteBuffer w = words();
+        int p = pos;
+        for (int stop = off + n; off < stop;) {
+          long word = w.getLong(p);
+          if ((word & CONTINUATION_BITS) == 0 && stop - off >= 8) {
+            // eight longs of one byte each
+            for (int i = 0; i < 8; i++, word >>>= 8) {
+              long v = word & 0x7f;
+              a[off++] = (v >>> 1) ^ -(v & 1);
+            }
+            p += 8;
+            continue;
+          }
+          int l = varintLength(word);
+          long v;
+          if (l != 0) {
+            v = varintBits(word, l);
+            p += l;
+          } else {
+            // nine or ten bytes
+            v = varintBits(word, 8);
+            int x = b[p + 8];
+            v |= (x & 0x7fL) << 56;
+            p += 9;
+            if (x < 0) {
+              x = b[p++];
+              v |= (x & 0x7fL) << 63;
+              if (x < 0) {
+                throw new InvalidNumberEncodingException("Invalid long encoding");
+              }
+            }
+          }
+          a[off++] = (v >>> 1) ^ -(v & 1); // back to two's-complement
+        }
+        pos = p;
+      }
+    }
+  }
+
+  @Override
+  public void readFloats(float[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (limit - pos) / 4);
+      if (n < BULK_VIEW_THRESHOLD) {
+        a[off++] = readFloat(); // refills the buffer once it is used up
+      } else {
+        // floats are encoded as little-endian IEEE 754, like a view buffer
+        ByteBuffer.wrap(buf, pos, 4 * n).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(a, off, n);
+        pos += 4 * n;
+        off += n;
+      }
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      int n = Math.min(end - off, (limit - pos) / 8);
+      if (n < BULK_VIEW_THRESHOLD) {
+        a[off++] = readDouble(); // refills the buffer once it is used up
+      } else {
+        ByteBuffer.wrap(buf, pos, 8 * n).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(a, off, n);
+        pos += 8 * n;
+        off += n;
+      }
+    }
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     long length = readLong();
@@ -339,6 +494,27 @@ public class BinaryDecoder extends Decoder {
     return readInt();
   }
 
+  /**
+   * Skips {@code count} ints or longs. Within the buffer, a varint is skipped by
+   * finding its last byte, without decoding it.
+   */
+  void skipVarints(long count) throws IOException {
+    for (; count > 0; count--) {
+      if (limit - pos < 10) {
+        readLong();
+        continue;
+      }
+      int p = pos;
+      int end = p + 10;
+      while (buf[p++] < 0) {
+        if (p == end) {
+          throw new InvalidNumberEncodingException("Invalid long encoding");
+        }
+      }
+      pos = p;
+    }
+  }
+
   protected void doSkipBytes(long length) throws IOException {
     int remaining = limit - pos;
     if (length <= remaining) {
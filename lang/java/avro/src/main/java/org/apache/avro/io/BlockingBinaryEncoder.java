@@ -282,6 +282,68 @@ public class BlockingBinaryEncoder extends BufferedBinaryEncoder {
     doWriteBytes(bytes, start, len);
   }
 
+  @Override
+  public void writeInts(int[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      int n = startItems(end - off, 5);
+      // the start of the last item is where a block may be split
+      pos += BinaryData.encodeInts(a, off, n - 1, buf, pos);
+      blockStack[stackTop].lastFullItem = pos;
+      pos += BinaryData.encodeInt(a[off + n - 1], buf, pos);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      int n = startItems(end - off, 10);
+      pos += BinaryData.encodeLongs(a, off, n - 1, buf, pos);
+      blockStack[stackTop].lastFullItem = pos;
+      pos += BinaryData.encodeLong(a[off + n - 1], buf, pos);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      int n = startItems(end - off, 4);
+      blockStack[stackTop].lastFullItem = pos + 4 * (n - 1);
+      pos += BinaryData.encodeFloats(a, off, n, buf, pos);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      int n = startItems(end - off, 8);
+      blockStack[stackTop].lastFullItem = pos + 8 * (n - 1);
+      pos += BinaryData.encodeDoubles(a, off, n, buf, pos);
+      off += n;
+    }
+  }
+
+  /**
+   * Starts up to max items of at most size bytes each, as many as fit in the
+   * buffer but at least one, and returns how many were started. The caller sets
+   * {@link BlockedValue#lastFullItem} to the start of the last as it writes them.
+   */
+  private int startItems(int max, int size) throws IOException {
+    startItem();
+    ensureBounds(size);
+    BlockedValue t = blockStack[stackTop];
+    if (t.state == BlockedValue.State.OVERFLOW) {
+      // an overflow block holds a single item
+      return 1;
+    }
+    int n = Math.min(max, (buf.length - pos) / size);
+    t.items += n - 1;
+    t.itemsLeftToWrite -= n - 1;
+    return n;
+  }
+
   @Override
   public void writeFixed(ByteBuffer bytes) throws IOException {
     int pos = bytes.position();
@@ -149,6 +149,47 @@ public class BufferedBinaryEncoder extends BinaryEncoder {
     pos += BinaryData.encodeDouble(d, buf, pos);
   }
 
+  @Override
+  public void writeInts(int[] a, int off, int len) throws IOException {
+    // write as many items as fit in the buffer at a time
+    for (int end = off + len; off < end;) {
+      ensureBounds(5);
+      int n = Math.min(end - off, (buf.length - pos) / 5);
+      pos += BinaryData.encodeInts(a, off, n, buf, pos);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(10);
+      int n = Math.min(end - off, (buf.length - pos) / 10);
+      pos += BinaryData.encodeLongs(a, off, n, buf, pos);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(4);
+      int n = Math.min(end - off, (buf.length - pos) / 4);
+      pos += BinaryData.encodeFloats(a, off, n, buf, pos);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(8);
+      int n = Math.min(end - off, (buf.length - pos) / 8);
+      pos += BinaryData.encodeDoubles(a, off, n, buf, pos);
+      off += n;
+    }
+  }
+
   @Override
   public void writeFixed(byte[] bytes, int start, int len) throws IOException {
     if (len > bulkLimit) {
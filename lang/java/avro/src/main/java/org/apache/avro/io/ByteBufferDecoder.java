@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.InvalidNumberEncodingException;
+import org.apache.avro.util.ByteBufferInputStream;
+
+/**
+ * A {@link BinaryDecoder} that reads in place from a sequence of heap or direct
+ * {@link ByteBuffer}s, such as those of a network framework or a mapped file,
+ * rather than from a byte array.
+ * <p/>
+ * Each buffer is read from its position to its limit. The positions and limits
+ * of the buffers passed in are not changed.
+ *
+ * @see DecoderFactory#binaryDecoder(List, BinaryDecoder)
+ */
+class ByteBufferDecoder extends BinaryDecoder {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  // runs shorter than this are decoded an item at a time, as creating a view
+  // buffer costs more than it saves
+  private static final int BULK_VIEW_THRESHOLD = 16;
+
+  private final List<ByteBuffer> buffers = new ArrayList<>();
+  private int index;
+  private ByteBuffer current;
+
+  ByteBufferDecoder(List<ByteBuffer> buffers) {
+    super();
+    configure(buffers);
+  }
+
+  ByteBufferDecoder configure(List<ByteBuffer> buffers) {
+    this.buffers.clear();
+    for (ByteBuffer buffer : buffers) {
+      // floats and doubles are little-endian
+      this.buffers.add(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN));
+    }
+    this.index = 0;
+    this.current = this.buffers.isEmpty() ? EMPTY : this.buffers.get(0);
+    return this;
+  }
+
+  /** Returns the buffer to read from, moving past those that are used up. */
+  private ByteBuffer current() throws EOFException {
+    while (!current.hasRemaining()) {
+      if (index + 1 >= buffers.size()) {
+        throw new EOFException();
+      }
+      current = buffers.get(++index);
+    }
+    return current;
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    return current().get() == 1;
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    ByteBuffer b = current();
+    if (b.remaining() < 5) {
+      // may span buffers
+      int n = 0;
+      int shift = 0;
+      int x;
+      do {
+        if (shift > 28) {
+          throw new InvalidNumberEncodingException("Invalid int encoding");
+        }
+        x = current().get();
+        n |= (x & 0x7f) << shift;
+        shift += 7;
+      } while (x < 0);
+      return (n >>> 1) ^ -(n & 1); // back to two's-complement
+    }
+    int p = b.position();
+    int n = 0;
+    int shift = 0;
+    int x;
+    do {
+      if (shift > 28) {
+        throw new InvalidNumberEncodingException("Invalid int encoding");
+      }
+      x = b.get(p++);
+      n |= (x & 0x7f) << shift;
+      shift += 7;
+    } while (x < 0);
+    ((Buffer) b).position(p);
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    ByteBuffer b = current();
+    if (b.remaining() < 10) {
+      // may span buffers
+      long n = 0;
+      int shift = 0;
+      int x;
+      do {
+        if (shift > 63) {
+          throw new InvalidNumberEncodingException("Invalid long encoding");
+        }
+        x = current().get();
+        n |= (x & 0x7fL) << shift;
+        shift += 7;
+      } while (x < 0);
+      return (n >>> 1) ^ -(n & 1); // back to two's-complement
+    }
+    int p = b.position();
+    long n = 0;
+    int shift = 0;
+    int x;
+    do {
+      if (shift > 63) {
+        throw new InvalidNumberEncodingException("Invalid long encoding");
+      }
+      x = b.get(p++);
+      n |= (x & 0x7fL) << shift;
+      shift += 7;
+    } while (x < 0);
+    ((Buffer) b).position(p);
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    ByteBuffer b = current();
+    if (b.remaining() >= 4) {
+      return b.getFloat();
+    }
+    return Float.intBitsToFloat((int) readSpanning(4));
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    ByteBuffer b = current();
+    if (b.remaining() >= 8) {
+      return b.getDouble();
+    }
+    return Double.longBitsToDouble(readSpanning(8));
+  }
+
+  // reads a little-endian value that spans buffers
+  private long readSpanning(int size) throws IOException {
+    long n = 0;
+    for (int i = 0; i < size; i++) {
+      n |= (current().get() & 0xffL) << (8 * i);
+    }
+    return n;
+  }
+
+  @Override
+  public void readInts(int[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      ByteBuffer b = current();
+      // as in BinaryDecoder, decode eight bytes at a time while no int can
+      // run past the end of the buffer
+      int n = Math.min(end - off, (b.remaining() - 3) / 5);
+      if (n <= 0) {
+        a[off++] = readInt();
+        continue;
+      }
+      int p = b.position();
+      for (int stop = off + n; off < stop;) {
+        long word = b.getLong(p);
+        if ((word & CONTINUATION_BITS) == 0 && stop - off >= 8) {
+          for (int i = 0; i < 8; i++, word >>>= 8) {
+            int v = (int) word & 0x7f;
+            a[off++] = (v >>> 1) ^ -(v & 1);
+          }
+          p += 8;
+          continue;
+        }
+        int l = varintLength(word);
+        if (l == 0 || l > 5) {
+          throw new InvalidNumberEncodingException("Invalid int encoding");
+        }
+        int v = (int) varintBits(word, l);
+        p += l;
+        a[off++] = (v >>> 1) ^ -(v & 1);
+      }
+      ((Buffer) b).position(p);
+    }
+  }
+
+  @Override
+  public void readLongs(long[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      ByteBuffer b = current();
+      int n = Math.min(end - off, b.remaining() / 10);
+      if (n == 0) {
+        a[off++] = readLong();
+        continue;
+      }
+      int p = b.position();
+      for (int stop = off + n; off < stop;) {
+        long word = b.getLong(p);
+        if ((word & CONTINUATION_BITS) == 0 && stop - off >= 8) {
+          for (int i = 0; i < 8; i++, word >>>= 8) {
+            long v = word & 0x7f;
+            a[off++] = (v >>> 1) ^ -(v & 1);
+          }
+          p += 8;
+          continue;
+        }
+        int l = varintLength(word);
+        long v;
+        if (l != 0) {
+          v = varintBits(word, l);
+          p += l;
+        } else {
+          v = varintBits(word, 8);
+          int x = b.get(p + 8);
+          v |= (x & 0x7fL) << 56;
+          p += 9;
+          if (x < 0) {
+            x = b.get(p++);
+            v |= (x & 0x7fL) << 63;
+            if (x < 0) {
+              throw new InvalidNumberEncodingException("Invalid long encoding");
+            }
+          }
+        }
+        a[off++] = (v >>> 1) ^ -(v & 1);
+      }
+      ((Buffer) b).position(p);
+    }
+  }
+
+  @Override
+  public void readFloats(float[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      ByteBuffer b = current();
+      int n = Math.min(end - off, b.remaining() / 4);
+      if (n < BULK_VIEW_THRESHOLD) {
+        a[off++] = readFloat();
+      } else {
+        b.asFloatBuffer().get(a, off, n);
+        ((Buffer) b).position(b.position() + 4 * n);
+        off += n;
+      }
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] a, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      ByteBuffer b = current();
+      int n = Math.min(end - off, b.remaining() / 8);
+      if (n < BULK_VIEW_THRESHOLD) {
+        a[off++] = readDouble();
+      } else {
+        b.asDoubleBuffer().get(a, off, n);
+        ((Buffer) b).position(b.position() + 8 * n);
+        off += n;
+      }
+    }
+  }
+
+  @Override
+  protected void doSkipBytes(long length) throws IOException {
+    while (length > 0) {
+      ByteBuffer b = current();
+      int n = (int) Math.min(length, b.remaining());
+      ((Buffer) b).position(b.position() + n);
+      length -= n;
+    }
+  }
+
+  @Override
+  protected void doReadBytes(byte[] bytes, int start, int length) throws IOException {
+    if (length < 0)
+      throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+    while (length > 0) {
+      ByteBuffer b = current();
+      int n = Math.min(length, b.remaining());
+      b.get(bytes, start, n);
+      start += n;
+      length -= n;
+    }
+  }
+
+  /**
+   * Returns a stream of the bytes that have not been decoded yet. Reading from
+   * it advances this decoder.
+   */
+  @Override
+  public InputStream inputStream() {
+    return new ByteBufferInputStream(new ArrayList<>(buffers.subList(index, buffers.size())));
+  }
+
+  @Override
+  public boolean isEnd() throws IOException {
+    for (int i = index; i < buffers.size(); i++) {
+      if (buffers.get(i).hasRemaining()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * An {@link Encoder} for Avro's binary encoding that writes straight into a
+ * heap or direct {@link ByteBuffer}, from its position, rather than to an
+ * OutputStream.
+ * <p/>
+ * When the buffer has no room for a value, a {@link BufferProvider} is asked
+ * for the buffer to continue with. The default, {@link #GROW}, copies what has
+ * been written to a larger buffer. Others may hand off the full buffer, for
+ * example to a network channel, and continue in a fresh one. The buffer being
+ * written to is returned by {@link #getBuffer()}.
+ * <p/>
+ * To construct, use
+ * {@link EncoderFactory#byteBufferEncoder(ByteBuffer, BufferProvider, BinaryEncoder)}
+ * <p/>
+ * ByteBufferEncoder is not thread-safe
+ *
+ * @see BinaryEncoder
+ * @see EncoderFactory
+ */
+public class ByteBufferEncoder extends BinaryEncoder {
+
+  /** Supplies the buffer to continue writing to when one is full. */
+  public interface BufferProvider {
+    /**
+     * Returns the buffer to continue writing to, from its position, once the
+     * current buffer has too little room for a value.
+     *
+     * @param full     the buffer written so far, with its position just after the
+     *                 last byte written
+     * @param required the number of bytes the returned buffer must have remaining
+     */
+    ByteBuffer next(ByteBuffer full, int required) throws IOException;
+  }
+
+  /**
+   * Copies the bytes written so far to a new buffer of the same kind, heap or
+   * direct, that is at least twice the size.
+   */
+  public static final BufferProvider GROW = (full, required) -> {
+    long capacity = Math.max(2L * full.capacity(), (long) full.position() + required);
+    if (capacity > Integer.MAX_VALUE) {
+      throw new IOException("Cannot grow a buffer beyond " + Integer.MAX_VALUE + " bytes");
+    }
+    ByteBuffer grown = full.isDirect() ? ByteBuffer.allocateDirect((int) capacity)
+        : ByteBuffer.allocate((int) capacity);
+    ((Buffer) full).flip();
+    grown.put(full);
+    return grown;
+  };
+
+  // runs shorter than this are encoded an item at a time, as creating a view
+  // buffer costs more than it saves
+  private static final int BULK_VIEW_THRESHOLD = 16;
+
+  private ByteBuffer buffer;
+  private BufferProvider provider;
+  // varints for buffers without an accessible array are encoded here first
+  private final byte[] scratch = new byte[10];
+
+  ByteBufferEncoder(ByteBuffer buffer, BufferProvider provider) {
+    configure(buffer, provider);
+  }
+
+  ByteBufferEncoder configure(ByteBuffer buffer, BufferProvider provider) {
+    Objects.requireNonNull(buffer, "ByteBuffer cannot be null");
+    Objects.requireNonNull(provider, "BufferProvider cannot be null");
+    this.buffer = buffer;
+    this.provider = provider;
+    return this;
+  }
+
+  /**
+   * Returns the buffer being written to. This is the buffer this encoder was
+   * configured with until it is replaced by the {@link BufferProvider}. Its
+   * position is just after the last byte written.
+   */
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /** Nothing is buffered, so this does nothing. */
+  @Override
+  public void flush() throws IOException {
+  }
+
+  private void ensureBounds(int num) throws IOException {
+    if (buffer.remaining() < num) {
+      ByteBuffer next = provider.next(buffer, num);
+      if (next.remaining() < num) {
+        throw new IOException("Buffer provider returned " + next.remaining() + " bytes of room, " + num + " are needed");
+      }
+      buffer = next;
+    }
+  }
+
+  @Override
+  public void writeBoolean(boolean b) throws IOException {
+    ensureBounds(1);
+    buffer.put(b ? (byte) 1 : (byte) 0);
+  }
+
+  @Override
+  public void writeInt(int n) throws IOException {
+    ensureBounds(5);
+    if (buffer.hasArray()) {
+      int pos = buffer.position();
+      ((Buffer) buffer).position(pos + BinaryData.encodeInt(n, buffer.array(), buffer.arrayOffset() + pos));
+    } else {
+      buffer.put(scratch, 0, BinaryData.encodeInt(n, scratch, 0));
+    }
+  }
+
+  @Override
+  public void writeLong(long n) throws IOException {
+    ensureBounds(10);
+    if (buffer.hasArray()) {
+      int pos = buffer.position();
+      ((Buffer) buffer).position(pos + BinaryData.encodeLong(n, buffer.array(), buffer.arrayOffset() + pos));
+    } else {
+      buffer.put(scratch, 0, BinaryData.encodeLong(n, scratch, 0));
+    }
+  }
+
+  @Override
+  public void writeFloat(float f) throws IOException {
+    ensureBounds(4);
+    // the buffer's own byte order is left as the caller set it
+    int bits = Float.floatToRawIntBits(f);
+    buffer.putInt(buffer.order() == ByteOrder.LITTLE_ENDIAN ? bits : Integer.reverseBytes(bits));
+  }
+
+  @Override
+  public void writeDouble(double d) throws IOException {
+    ensureBounds(8);
+    long bits = Double.doubleToRawLongBits(d);
+    buffer.putLong(buffer.order() == ByteOrder.LITTLE_ENDIAN ? bits : Long.reverseBytes(bits));
+  }
+
+  @Override
+  public void writeInts(int[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(5);
+      if (!buffer.hasArray()) {
+        writeInt(a[off++]);
+        continue;
+      }
+      int n = Math.min(end - off, buffer.remaining() / 5);
+      int pos = buffer.position();
+      ((Buffer) buffer).position(pos + BinaryData.encodeInts(a, off, n, buffer.array(), buffer.arrayOffset() + pos));
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeLongs(long[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(10);
+      if (!buffer.hasArray()) {
+        writeLong(a[off++]);
+        continue;
+      }
+      int n = Math.min(end - off, buffer.remaining() / 10);
+      int pos = buffer.position();
+      ((Buffer) buffer).position(pos + BinaryData.encodeLongs(a, off, n, buffer.array(), buffer.arrayOffset() + pos));
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeFloats(float[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(4);
+      int n = Math.min(end - off, buffer.remaining() / 4);
+      if (n < BULK_VIEW_THRESHOLD) {
+        writeFloat(a[off++]);
+        continue;
+      }
+      buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(a, off, n);
+      ((Buffer) buffer).position(buffer.position() + 4 * n);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeDoubles(double[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end;) {
+      ensureBounds(8);
+      int n = Math.min(end - off, buffer.remaining() / 8);
+      if (n < BULK_VIEW_THRESHOLD) {
+        writeDouble(a[off++]);
+        continue;
+      }
+      buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(a, off, n);
+      ((Buffer) buffer).position(buffer.position() + 8 * n);
+      off += n;
+    }
+  }
+
+  @Override
+  public void writeFixed(byte[] bytes, int start, int len) throws IOException {
+    // fill the current buffer before asking for another
+    int n = Math.min(len, buffer.remaining());
+    buffer.put(bytes, start, n);
+    if (n < len) {
+      ensureBounds(len - n);
+      buffer.put(bytes, start + n, len - n);
+    }
+  }
+
+  @Override
+  public void writeFixed(ByteBuffer bytes) throws IOException {
+    ByteBuffer src = bytes.duplicate();
+    int len = src.remaining();
+    if (len > buffer.remaining()) {
+      int n = buffer.remaining();
+      ((Buffer) src).limit(src.position() + n);
+      buffer.put(src);
+      ((Buffer) src).limit(bytes.limit());
+      ensureBounds(len - n);
+    }
+    buffer.put(src);
+  }
+
+  @Override
+  protected void writeZero() throws IOException {
+    ensureBounds(1);
+    buffer.put((byte) 0);
+  }
+
+  /** Bytes are written straight to the buffer, so none are held back. */
+  @Override
+  public int bytesBuffered() {
+    return 0;
+  }
+}
@@ -207,6 +207,62 @@ public abstract class Decoder {
    */
   public abstract long arrayNext() throws IOException;
 
+  /**
+   * Reads len items of an array of ints into a, from off, as if by calling
+   * {@link #readInt()} for each. The items must all be in the current block of
+   * the array. Decoders may read the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful reader and an array of
+   *                           integers is not expected
+   */
+  public void readInts(int[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      a[off] = readInt();
+    }
+  }
+
+  /**
+   * Reads len items of an array of longs into a, from off, as if by calling
+   * {@link #readLong()} for each. The items must all be in the current block of
+   * the array. Decoders may read the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful reader and an array of longs
+   *                           is not expected
+   */
+  public void readLongs(long[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      a[off] = readLong();
+    }
+  }
+
+  /**
+   * Reads len items of an array of floats into a, from off, as if by calling
+   * {@link #readFloat()} for each. The items must all be in the current block of
+   * the array. Decoders may read the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful reader and an array of
+   *                           floats is not expected
+   */
+  public void readFloats(float[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      a[off] = readFloat();
+    }
+  }
+
+  /**
+   * Reads len items of an array of doubles into a, from off, as if by calling
+   * {@link #readDouble()} for each. The items must all be in the current block
+   * of the array. Decoders may read the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful reader and an array of
+   *                           doubles is not expected
+   */
+  public void readDoubles(double[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      a[off] = readDouble();
+    }
+  }
+
   /**
    * Used for quickly skipping through an array. Note you can either skip the
    * entire array, or read the entire array (with {@link #readArrayStart}), but
@@ -19,6 +19,9 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.avro.Schema;
 
@@ -238,6 +241,51 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads the bytes of a
+   * buffer from its position to its limit, without copying them. The position
+   * and limit of the buffer are not changed.
+   * <p/>
+   * A heap buffer is read as its backing array, as by
+   * {@link #binaryDecoder(byte[], int, int, BinaryDecoder)}. A direct or
+   * read-only buffer is read in place, as by
+   * {@link #binaryDecoder(List, BinaryDecoder)}.
+   *
+   * @param buffer The buffer to read from
+   * @param reuse  The BinaryDecoder to attempt to reinitialize. if null a new
+   *               BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffer</i> as its source of data.
+   *         Clients must not assume that <i>reuse</i> is reinitialized and
+   *         returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer buffer, BinaryDecoder reuse) {
+    if (buffer.hasArray()) {
+      return binaryDecoder(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), reuse);
+    }
+    return binaryDecoder(Collections.singletonList(buffer), reuse);
+  }
+
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} that reads a sequence of
+   * heap or direct buffers in place, each from its position to its limit, as if
+   * they were one. Values may span buffers. The positions and limits of the
+   * buffers are not changed.
+   *
+   * @param buffers The buffers to read from, in order
+   * @param reuse   The BinaryDecoder to attempt to reinitialize. if null a new
+   *                BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>buffers</i> as its source of data.
+   *         Clients must not assume that <i>reuse</i> is reinitialized and
+   *         returned.
+   */
+  public BinaryDecoder binaryDecoder(List<ByteBuffer> buffers, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferDecoder.class)) {
+      return new ByteBufferDecoder(buffers);
+    } else {
+      return ((ByteBufferDecoder) reuse).configure(buffers);
+    }
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStream provided for reading data
    * that conforms to the Schema provided.
@@ -297,6 +345,23 @@ public class DecoderFactory {
     return new ResolvingDecoder(writer, reader, wrapped);
   }
 
+  /**
+   * Creates a {@link ResolvingDecoder} wrapping the Decoder provided, that
+   * resolves input using a resolver returned by
+   * {@link ResolvingDecoder#resolve(Schema, Schema)} or
+   * {@link ResolvingDecoder#resolveShared(Schema, Schema)}. As the resolver is
+   * already built, this is cheap.
+   *
+   * @param resolver The resolver to use.
+   * @param wrapped  The Decoder to wrap.
+   * @return A ResolvingDecoder that resolves input from <i>wrapped</i> with
+   *         <i>resolver</i>
+   * @throws IOException
+   */
+  public ResolvingDecoder resolvingDecoder(Object resolver, Decoder wrapped) throws IOException {
+    return new ResolvingDecoder(resolver, wrapped);
+  }
+
   private static class DefaultDecoderFactory extends DecoderFactory {
     @Override
     public DecoderFactory configureDecoderBufferSize(int bufferSize) {
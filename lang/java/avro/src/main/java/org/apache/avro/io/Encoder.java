@@ -253,6 +253,66 @@ public abstract class Encoder implements Flushable {
    */
   public abstract void startItem() throws IOException;
 
+  /**
+   * Writes len items of an array of ints, from off, as if by calling
+   * {@link #startItem()} and {@link #writeInt(int)} for each. Encoders may write
+   * the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of
+   *                           integers is not expected
+   */
+  public void writeInts(int[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      startItem();
+      writeInt(a[off]);
+    }
+  }
+
+  /**
+   * Writes len items of an array of longs, from off, as if by calling
+   * {@link #startItem()} and {@link #writeLong(long)} for each. Encoders may
+   * write the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of
+   *                           longs is not expected
+   */
+  public void writeLongs(long[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      startItem();
+      writeLong(a[off]);
+    }
+  }
+
+  /**
+   * Writes len items of an array of floats, from off, as if by calling
+   * {@link #startItem()} and {@link #writeFloat(float)} for each. Encoders may
+   * write the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of
+   *                           floats is not expected
+   */
+  public void writeFloats(float[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      startItem();
+      writeFloat(a[off]);
+    }
+  }
+
+  /**
+   * Writes len items of an array of doubles, from off, as if by calling
+   * {@link #startItem()} and {@link #writeDouble(double)} for each. Encoders
+   * may write the items in bulk.
+   *
+   * @throws AvroTypeException If this is a stateful writer and an array of
+   *                           doubles is not expected
+   */
+  public void writeDoubles(double[] a, int off, int len) throws IOException {
+    for (int end = off + len; off < end; off++) {
+      startItem();
+      writeDouble(a[off]);
+    }
+  }
+
   /**
    * Call this method to finish writing an array. See {@link #writeArrayStart} for
    * usage information.
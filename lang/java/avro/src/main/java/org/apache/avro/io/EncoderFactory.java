@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -37,6 +38,7 @@ import com.fasterxml.jackson.core.JsonGenerator;
  * @see BufferedBinaryEncoder
  * @see BlockingBinaryEncoder
  * @see DirectBinaryEncoder
+ * @see ByteBufferEncoder
  */
 
 public class EncoderFactory {
@@ -216,6 +218,53 @@ public class EncoderFactory {
     }
   }
 
+  /**
+   * Creates or reinitializes a {@link ByteBufferEncoder} that writes into a heap
+   * or direct buffer, from its position, growing it with
+   * {@link ByteBufferEncoder#GROW} when it is full. The bytes written are in the
+   * buffer returned by {@link ByteBufferEncoder#getBuffer()}, which is a larger
+   * copy of <i>buffer</i> if it grew.
+   *
+   * @param buffer The buffer to write to. Cannot be null.
+   * @param reuse  The BinaryEncoder to <i>attempt</i> to reuse. If null, a new
+   *               instance is returned.
+   * @return A ByteBufferEncoder that writes to <i>buffer</i>. If <i>reuse</i> is
+   *         not null, then the returned instance may be a new instance or
+   *         <i>reuse</i> reconfigured to use <i>buffer</i>.
+   * @see #byteBufferEncoder(ByteBuffer, ByteBufferEncoder.BufferProvider,
+   *      BinaryEncoder)
+   */
+  public ByteBufferEncoder byteBufferEncoder(ByteBuffer buffer, BinaryEncoder reuse) {
+    return byteBufferEncoder(buffer, ByteBufferEncoder.GROW, reuse);
+  }
+
+  /**
+   * Creates or reinitializes a {@link ByteBufferEncoder} that writes into a heap
+   * or direct buffer, from its position, asking <i>provider</i> for the buffer to
+   * continue with whenever the current one is full.
+   * <p/>
+   * The returned encoder does not buffer, so everything written is in the
+   * buffers without calling {@link Encoder#flush()}.
+   *
+   * @param buffer   The buffer to write to. Cannot be null.
+   * @param provider Supplies the buffer to continue with when one is full.
+   *                 Cannot be null.
+   * @param reuse    The BinaryEncoder to <i>attempt</i> to reuse. If null, a new
+   *                 instance is returned.
+   * @return A ByteBufferEncoder that writes to <i>buffer</i>. If <i>reuse</i> is
+   *         not null, then the returned instance may be a new instance or
+   *         <i>reuse</i> reconfigured to use <i>buffer</i>.
+   * @see ByteBufferEncoder
+   */
+  public ByteBufferEncoder byteBufferEncoder(ByteBuffer buffer, ByteBufferEncoder.BufferProvider provider,
+      BinaryEncoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(ByteBufferEncoder.class)) {
+      return new ByteBufferEncoder(buffer, provider);
+    } else {
+      return ((ByteBufferEncoder) reuse).configure(buffer, provider);
+    }
+  }
+
   /**
    * Creates or reinitializes a {@link BinaryEncoder} with the OutputStream
    * provided as the destination for written data. If <i>reuse</i> is provided, an
@@ -18,6 +18,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -43,7 +45,6 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericArray;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.InstanceSupplier;
-import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.IndexedRecord;
@@ -58,6 +59,9 @@ import org.apache.avro.util.internal.Accessor;
 
 public class FastReaderBuilder {
 
+  // the most items of an array block that are read in bulk at once
+  private static final int BULK_CHUNK_SIZE = 1024;
+
   /**
    * Generic/SpecificData instance that contains basic functionalities like
    * instantiation of objects
@@ -72,6 +76,16 @@ public class FastReaderBuilder {
 
   private boolean classPropEnabled = true;
 
+  /**
+   * System property that, when "true", makes builders compile the readers of
+   * records by default.
+   *
+   * @see #withCompilationEnabled(boolean)
+   */
+  public static final String COMPILE_PROP = "org.apache.avro.fastread.compile";
+
+  private boolean compilationEnabled = "true".equalsIgnoreCase(System.getProperty(COMPILE_PROP));
+
   public static FastReaderBuilder get() {
     return new FastReaderBuilder(GenericData.get());
   }
@@ -106,6 +120,24 @@ public class FastReaderBuilder {
     return this.classPropEnabled;
   }
 
+  /**
+   * Sets whether the steps of each record reader are compiled into a class of
+   * their own, so that the JIT can inline the reading of each of a record's
+   * fields rather than call each through the same call site. This helps most
+   * with records of a few dozen fields of many kinds. Records of more than 64
+   * steps, roughly one per field, are not compiled, as their code would grow
+   * too large to gain from it. It needs Java 15 or later, and is ignored on
+   * earlier versions. Only readers created afterwards are affected.
+   */
+  public FastReaderBuilder withCompilationEnabled(boolean enabled) {
+    this.compilationEnabled = enabled;
+    return this;
+  }
+
+  public boolean isCompilationEnabled() {
+    return this.compilationEnabled;
+  }
+
   public <D> DatumReader<D> createDatumReader(Schema schema) throws IOException {
     return createDatumReader(schema, schema);
   }
@@ -156,7 +188,14 @@ public class FastReaderBuilder {
     for (; i < action.fieldActions.length; i++) {
       Action fieldAction = action.fieldActions[i];
       if (fieldAction instanceof Skip) {
-        readSteps[i] = (r, decoder) -> GenericDatumReader.skip(fieldAction.writer, decoder);
+        // one step skips the whole run of skipped fields; the rest stay null
+        List<Schema> skipped = new ArrayList<>();
+        for (int j = i; j < action.fieldActions.length && action.fieldActions[j] instanceof Skip; j++) {
+          skipped.add(action.fieldActions[j].writer);
+        }
+        SkipPlan plan = SkipPlan.of(skipped);
+        readSteps[i] = (r, decoder) -> plan.skip(decoder);
+        i += skipped.size() - 1;
       } else {
         Field readerField = action.readerOrder[fieldCounter++];
         Conversion<?> conversion = conversionSupplier.apply(readerField.pos());
@@ -170,6 +209,22 @@ public class FastReaderBuilder {
       readSteps[i] = getDefaultingStep(action.readerOrder[fieldCounter++]);
     }
 
+    int steps = 0;
+    for (int j = 0; j < readSteps.length; j++) {
+      if (readSteps[j] != null) {
+        readSteps[steps++] = readSteps[j];
+      }
+    }
+    if (steps < readSteps.length) {
+      readSteps = Arrays.copyOf(readSteps, steps);
+    }
+    if (compilationEnabled) {
+      ExecutionStep compiled = RecordReaderCompiler.compile(readSteps);
+      if (compiled != null) {
+        readSteps = new ExecutionStep[] { compiled };
+      }
+    }
+
     recordReader.finishInitialization(readSteps, action.reader, action.instanceSupplier);
     return recordReader;
   }
@@ -456,6 +511,7 @@ public class FastReaderBuilder {
   @SuppressWarnings("unchecked")
   private FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
     FieldReader elementReader = getReaderFor(action.elementAction, null);
+    BlockReader bulkReader = createBulkReader(action.elementAction);
 
     return reusingReader((reuse, decoder) -> {
       if (reuse instanceof GenericArray) {
@@ -464,8 +520,12 @@ public class FastReaderBuilder {
         reuseArray.clear();
 
         while (l > 0) {
-          for (long i = 0; i < l; i++) {
-            reuseArray.add(elementReader.read(reuseArray.peek(), decoder));
+          if (bulkReader != null) {
+            bulkReader.read(reuseArray, l, decoder);
+          } else {
+            for (long i = 0; i < l; i++) {
+              reuseArray.add(elementReader.read(reuseArray.peek(), decoder));
+            }
           }
           l = decoder.arrayNext();
         }
@@ -476,8 +536,12 @@ public class FastReaderBuilder {
             : new GenericData.Array<>((int) l, readerSchema);
         array.clear();
         while (l > 0) {
-          for (long i = 0; i < l; i++) {
-            array.add(elementReader.read(null, decoder));
+          if (bulkReader != null) {
+            bulkReader.read(array, l, decoder);
+          } else {
+            for (long i = 0; i < l; i++) {
+              array.add(elementReader.read(null, decoder));
+            }
           }
           l = decoder.arrayNext();
         }
@@ -486,6 +550,88 @@ public class FastReaderBuilder {
     });
   }
 
+  /**
+   * Returns a reader of whole blocks of an array whose items are ints, longs,
+   * floats or doubles that are read as they were written, or null if the items
+   * must be read one at a time.
+   * <p>
+   * The items are still boxed one at a time as they are added to the list, so
+   * the gain is limited to decoding: floats and doubles are copied out of the
+   * buffer in bulk, while ints and longs, whose boxing costs about as much as
+   * their decoding, read at much the same rate as item by item. The list is
+   * sized once per block rather than grown as items are added.
+   */
+  private BlockReader createBulkReader(Action elementAction) {
+    if (elementAction.type != Action.Type.DO_NOTHING) {
+      return null;
+    }
+    Schema schema = elementAction.reader;
+    if (schema.getLogicalType() != null && data.getConversionFor(schema.getLogicalType()) != null) {
+      return null;
+    }
+    switch (schema.getType()) {
+    case INT:
+      return (array, l, decoder) -> {
+        ensureCapacity(array, l);
+        int[] items = new int[(int) Math.min(l, BULK_CHUNK_SIZE)];
+        for (long i = 0; i < l; i += items.length) {
+          int n = (int) Math.min(l - i, items.length);
+          decoder.readInts(items, 0, n);
+          for (int j = 0; j < n; j++) {
+            array.add(items[j]);
+          }
+        }
+      };
+    case LONG:
+      return (array, l, decoder) -> {
+        ensureCapacity(array, l);
+        long[] items = new long[(int) Math.min(l, BULK_CHUNK_SIZE)];
+        for (long i = 0; i < l; i += items.length) {
+          int n = (int) Math.min(l - i, items.length);
+          decoder.readLongs(items, 0, n);
+          for (int j = 0; j < n; j++) {
+            array.add(items[j]);
+          }
+        }
+      };
+    case FLOAT:
+      return (array, l, decoder) -> {
+        ensureCapacity(array, l);
+        float[] items = new float[(int) Math.min(l, BULK_CHUNK_SIZE)];
+        for (long i = 0; i < l; i += items.length) {
+          int n = (int) Math.min(l - i, items.length);
+          decoder.readFloats(items, 0, n);
+          for (int j = 0; j < n; j++) {
+            array.add(items[j]);
+          }
+        }
+      };
+    case DOUBLE:
+      return (array, l, decoder) -> {
+        ensureCapacity(array, l);
+        double[] items = new double[(int) Math.min(l, BULK_CHUNK_SIZE)];
+        for (long i = 0; i < l; i += items.length) {
+          int n = (int) Math.min(l - i, items.length);
+          decoder.readDoubles(items, 0, n);
+          for (int j = 0; j < n; j++) {
+            array.add(items[j]);
+          }
+        }
+      };
+    default:
+      return null;
+    }
+  }
+
+  private static void ensureCapacity(List<Object> array, long count) {
+    int capacity = (int) Math.min(array.size() + count, Integer.MAX_VALUE - 8);
+    if (array instanceof GenericData.Array) {
+      ((GenericData.Array<Object>) array).ensureCapacity(capacity);
+    } else if (array instanceof ArrayList) {
+      ((ArrayList<Object>) array).ensureCapacity(capacity);
+    }
+  }
+
   private FieldReader createEnumReader(EnumAdjust action) {
     return reusingReader((reuse, decoder) -> {
       int index = decoder.readEnum();
@@ -514,6 +660,10 @@ public class FastReaderBuilder {
     return reader;
   }
 
+  private interface BlockReader {
+    void read(List<Object> array, long count, Decoder decoder) throws IOException;
+  }
+
   public interface FieldReader extends DatumReader<Object> {
     @Override
     public Object read(Object reuse, Decoder decoder) throws IOException;
@@ -0,0 +1,558 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.SpecificRecordBase;
+import org.apache.avro.util.WeakIdentityHashMap;
+import org.apache.avro.util.internal.Accessor;
+
+/**
+ * The writing counterpart of {@link FastReaderBuilder}. Builds, once per
+ * schema, a tree of writers specialized to that schema, so that writing a datum
+ * does not switch on the type of each schema it meets or look up conversions
+ * for values whose schemas have no logical type.
+ * <p>
+ * The writers write what {@link GenericDatumWriter} writes, or
+ * {@link SpecificDatumWriter} when built with a {@link SpecificData}, and throw
+ * the same exceptions.
+ * <p>
+ * As with {@link FastReaderBuilder}, only {@link GenericData} and
+ * {@link SpecificData} themselves are supported (see {@link #isSupportedData}).
+ * Reflect data is not: {@link org.apache.avro.reflect.ReflectData} reads fields
+ * and arrays in ways these writers don't, so its datum writers, like subclasses
+ * of {@link GenericDatumWriter}, keep writing through the schema.
+ */
+public class FastWriterBuilder {
+
+  // the most items of an array that are unboxed at once to be written in bulk
+  private static final int BULK_CHUNK_SIZE = 1024;
+
+  /**
+   * Generic/SpecificData instance that contains basic functionalities like
+   * conversions and union resolution
+   */
+  private final GenericData data;
+
+  /** whether to write as SpecificDatumWriter does */
+  private final boolean specific;
+
+  private final Map<Schema, FieldWriter> writerCache = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+
+  /** record writers, registered before their fields so recursion ends */
+  private final Map<Schema, RecordWriter> recordWriterCache = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
+
+  public static FastWriterBuilder get() {
+    return new FastWriterBuilder(GenericData.get());
+  }
+
+  public static FastWriterBuilder getSpecific() {
+    return new FastWriterBuilder(SpecificData.get());
+  }
+
+  public static boolean isSupportedData(GenericData data) {
+    return data.getClass() == GenericData.class || data.getClass() == SpecificData.class;
+  }
+
+  public FastWriterBuilder(GenericData parentData) {
+    this.data = parentData;
+    this.specific = parentData instanceof SpecificData;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <D> DatumWriter<D> createDatumWriter(Schema schema) {
+    return (DatumWriter<D>) writerCache.computeIfAbsent(schema, this::getWriterFor);
+  }
+
+  /** Returns a writer that applies any conversion, as GenericDatumWriter.write */
+  private FieldWriter getWriterFor(Schema schema) {
+    return applyConversions(schema, getRawWriterFor(schema));
+  }
+
+  private FieldWriter applyConversions(Schema schema, FieldWriter writer) {
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      return writer;
+    }
+    return (datum, out) -> {
+      if (datum != null) {
+        Conversion<?> conversion = data.getConversionByClass(datum.getClass(), logicalType);
+        writer.write(convert(schema, logicalType, conversion, datum), out);
+      } else {
+        writer.write(null, out);
+      }
+    };
+  }
+
+  /**
+   * Returns a writer that writes values of the schema's own type, as
+   * GenericDatumWriter.writeWithoutConversion
+   */
+  private FieldWriter getRawWriterFor(Schema schema) {
+    String of = " of " + schema.getFullName();
+    switch (schema.getType()) {
+    case RECORD:
+      return getRecordWriter(schema);
+    case ENUM:
+      return createEnumWriter(schema);
+    case ARRAY:
+      return createArrayWriter(schema);
+    case MAP:
+      return createMapWriter(schema);
+    case UNION:
+      return createUnionWriter(schema);
+    case FIXED:
+      int size = schema.getFixedSize();
+      return (datum, out) -> {
+        try {
+          out.writeFixed(((GenericFixed) datum).bytes(), 0, size);
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case STRING:
+      return createStringWriter();
+    case BYTES:
+      return (datum, out) -> {
+        try {
+          out.writeBytes((ByteBuffer) datum);
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case INT:
+      return (datum, out) -> {
+        try {
+          out.writeInt(((Number) datum).intValue());
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case LONG:
+      return (datum, out) -> {
+        try {
+          out.writeLong(((Number) datum).longValue());
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case FLOAT:
+      return (datum, out) -> {
+        try {
+          out.writeFloat(((Number) datum).floatValue());
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case DOUBLE:
+      return (datum, out) -> {
+        try {
+          out.writeDouble(((Number) datum).doubleValue());
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case BOOLEAN:
+      return (datum, out) -> {
+        try {
+          out.writeBoolean((Boolean) datum);
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    case NULL:
+      return (datum, out) -> out.writeNull();
+    default:
+      return (datum, out) -> {
+        throw new AvroTypeException("Not a " + schema + ": " + datum);
+      };
+    }
+  }
+
+  private RecordWriter getRecordWriter(Schema schema) {
+    RecordWriter writer = recordWriterCache.computeIfAbsent(schema, RecordWriter::new);
+    synchronized (writer) {
+      // a recursive reference gets the writer while its fields are built
+      if (!writer.started) {
+        writer.started = true;
+        List<Field> fields = schema.getFields();
+        FieldWriter[] writers = new FieldWriter[fields.size()];
+        FieldWriter[] rawWriters = new FieldWriter[fields.size()];
+        for (int i = 0; i < writers.length; i++) {
+          Schema fieldSchema = fields.get(i).schema();
+          rawWriters[i] = getRawWriterFor(fieldSchema);
+          writers[i] = applyConversions(fieldSchema, rawWriters[i]);
+        }
+        writer.finishInitialization(fields.toArray(new Field[0]), writers, rawWriters);
+      }
+    }
+    return writer;
+  }
+
+  private FieldWriter createEnumWriter(Schema schema) {
+    String of = " of " + schema.getFullName();
+    return (datum, out) -> {
+      try {
+        if (specific && datum instanceof Enum) {
+          out.writeEnum(((Enum<?>) datum).ordinal());
+          return;
+        }
+        if (!(datum instanceof GenericEnumSymbol)) {
+          throw new AvroTypeException("Not an enum: " + datum + " for schema: " + schema);
+        }
+        out.writeEnum(schema.getEnumOrdinal(datum.toString()));
+      } catch (NullPointerException e) {
+        throw npe(e, of);
+      }
+    };
+  }
+
+  private FieldWriter createStringWriter() {
+    String of = " of string";
+    if (specific) {
+      return (datum, out) -> {
+        try {
+          if (!(datum instanceof CharSequence) && Accessor.isStringable((SpecificData) data, datum.getClass())) {
+            datum = datum.toString(); // convert to string
+          }
+          out.writeString((CharSequence) datum);
+        } catch (NullPointerException e) {
+          throw npe(e, of);
+        }
+      };
+    }
+    return (datum, out) -> {
+      try {
+        out.writeString((CharSequence) datum);
+      } catch (NullPointerException e) {
+        throw npe(e, of);
+      }
+    };
+  }
+
+  private FieldWriter createArrayWriter(Schema schema) {
+    String of = " of " + schema.getFullName();
+    Schema element = schema.getElementType();
+    BulkWriter bulkWriter = createBulkWriter(element);
+    FieldWriter elementWriter = getWriterFor(element);
+    return (datum, out) -> {
+      try {
+        Collection<?> array = (Collection<?>) datum;
+        long size = array.size();
+        out.writeArrayStart();
+        out.setItemCount(size);
+        long actualSize;
+        if (bulkWriter != null) {
+          actualSize = bulkWriter.write(array, out);
+        } else {
+          actualSize = 0;
+          for (Object item : array) {
+            out.startItem();
+            elementWriter.write(item, out);
+            actualSize++;
+          }
+        }
+        out.writeArrayEnd();
+        if (actualSize != size) {
+          throw new ConcurrentModificationException(
+              "Size of array written was " + size + ", but number of elements written was " + actualSize + ". ");
+        }
+      } catch (NullPointerException e) {
+        throw npe(e, of);
+      }
+    };
+  }
+
+  /**
+   * Returns a writer of arrays whose items are ints, longs, floats or doubles
+   * that unboxes them into chunks written with the encoder's bulk methods, or
+   * null if the items must be written one at a time.
+   */
+  private BulkWriter createBulkWriter(Schema element) {
+    if (element.getLogicalType() != null) {
+      return null;
+    }
+    String of = " of " + element.getFullName();
+    switch (element.getType()) {
+    case INT:
+      return (array, out) -> {
+        Iterator<?> it = array.iterator();
+        int[] items = new int[Math.max(1, Math.min(array.size(), BULK_CHUNK_SIZE))];
+        long count = 0;
+        while (it.hasNext()) {
+          int n = 0;
+          try {
+            while (n < items.length && it.hasNext()) {
+              items[n++] = ((Number) it.next()).intValue();
+            }
+          } catch (NullPointerException e) {
+            throw npe(e, of);
+          }
+          out.writeInts(items, 0, n);
+          count += n;
+        }
+        return count;
+      };
+    case LONG:
+      return (array, out) -> {
+        Iterator<?> it = array.iterator();
+        long[] items = new long[Math.max(1, Math.min(array.size(), BULK_CHUNK_SIZE))];
+        long count = 0;
+        while (it.hasNext()) {
+          int n = 0;
+          try {
+            while (n < items.length && it.hasNext()) {
+              items[n++] = ((Number) it.next()).longValue();
+            }
+          } catch (NullPointerException e) {
+            throw npe(e, of);
+          }
+          out.writeLongs(items, 0, n);
+          count += n;
+        }
+        return count;
+      };
+    case FLOAT:
+      return (array, out) -> {
+        Iterator<?> it = array.iterator();
+        float[] items = new float[Math.max(1, Math.min(array.size(), BULK_CHUNK_SIZE))];
+        long count = 0;
+        while (it.hasNext()) {
+          int n = 0;
+          try {
+            while (n < items.length && it.hasNext()) {
+              items[n++] = ((Number) it.next()).floatValue();
+            }
+          } catch (NullPointerException e) {
+            throw npe(e, of);
+          }
+          out.writeFloats(items, 0, n);
+          count += n;
+        }
+        return count;
+      };
+    case DOUBLE:
+      return (array, out) -> {
+        Iterator<?> it = array.iterator();
+        double[] items = new double[Math.max(1, Math.min(array.size(), BULK_CHUNK_SIZE))];
+        long count = 0;
+        while (it.hasNext()) {
+          int n = 0;
+          try {
+            while (n < items.length && it.hasNext()) {
+              items[n++] = ((Number) it.next()).doubleValue();
+            }
+          } catch (NullPointerException e) {
+            throw npe(e, of);
+          }
+          out.writeDoubles(items, 0, n);
+          count += n;
+        }
+        return count;
+      };
+    default:
+      return null;
+    }
+  }
+
+  private FieldWriter createMapWriter(Schema schema) {
+    String of = " of " + schema.getFullName();
+    FieldWriter valueWriter = getWriterFor(schema.getValueType());
+    return (datum, out) -> {
+      try {
+        Map<?, ?> map = (Map<?, ?>) datum;
+        int size = map.size();
+        int actualSize = 0;
+        out.writeMapStart();
+        out.setItemCount(size);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          out.startItem();
+          out.writeString(entry.getKey().toString());
+          valueWriter.write(entry.getValue(), out);
+          actualSize++;
+        }
+        out.writeMapEnd();
+        if (actualSize != size) {
+          throw new ConcurrentModificationException(
+              "Size of map written was " + size + ", but number of entries written was " + actualSize + ". ");
+        }
+      } catch (NullPointerException e) {
+        throw npe(e, of);
+      }
+    };
+  }
+
+  private FieldWriter createUnionWriter(Schema schema) {
+    String of = " of " + schema.getFullName();
+    List<Schema> types = schema.getTypes();
+    FieldWriter[] branchWriters = new FieldWriter[types.size()];
+    for (int i = 0; i < branchWriters.length; i++) {
+      branchWriters[i] = getWriterFor(types.get(i));
+    }
+    return (datum, out) -> {
+      try {
+        int index = data.resolveUnion(schema, datum);
+        out.writeIndex(index);
+        branchWriters[index].write(datum, out);
+      } catch (NullPointerException e) {
+        throw npe(e, of);
+      }
+    };
+  }
+
+  private static Object convert(Schema schema, LogicalType logicalType, Conversion<?> conversion, Object datum) {
+    try {
+      if (conversion == null) {
+        return datum;
+      } else {
+        return Conversions.convertToRawType(datum, schema, logicalType, conversion);
+      }
+    } catch (AvroRuntimeException e) {
+      // thrown as a ClassCastException, as GenericDatumWriter.convert does
+      Throwable cause = e.getCause();
+      if (cause != null && cause.getClass() == ClassCastException.class) {
+        throw (ClassCastException) cause;
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  private static NullPointerException npe(NullPointerException e, String s) {
+    NullPointerException result = new NullPointerException(e.getMessage() + s);
+    result.initCause(e.getCause() == null ? e : e.getCause());
+    return result;
+  }
+
+  private static ClassCastException addClassCastMsg(ClassCastException e, String s) {
+    ClassCastException result = new ClassCastException(e.getMessage() + s);
+    result.initCause(e.getCause() == null ? e : e.getCause());
+    return result;
+  }
+
+  private static AvroTypeException addAvroTypeMsg(AvroTypeException e, String s) {
+    AvroTypeException result = new AvroTypeException(e.getMessage() + s);
+    result.initCause(e.getCause() == null ? e : e.getCause());
+    return result;
+  }
+
+  private interface BulkWriter {
+    /** Writes the items of an array and returns how many there were. */
+    long write(Collection<?> array, Encoder out) throws IOException;
+  }
+
+  public interface FieldWriter extends DatumWriter<Object> {
+    @Override
+    public void write(Object datum, Encoder out) throws IOException;
+
+    @Override
+    default void setSchema(Schema schema) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private class RecordWriter implements FieldWriter {
+    private final Schema schema;
+    private final String of;
+    private boolean started;
+    private Field[] fields;
+    // writers that apply conversions found by class, and writers for values
+    // already converted by the conversions of a specific record
+    private FieldWriter[] writers;
+    private FieldWriter[] rawWriters;
+
+    RecordWriter(Schema schema) {
+      this.schema = schema;
+      this.of = " of " + schema.getFullName();
+    }
+
+    void finishInitialization(Field[] fields, FieldWriter[] writers, FieldWriter[] rawWriters) {
+      this.fields = fields;
+      this.writers = writers;
+      this.rawWriters = rawWriters;
+    }
+
+    @Override
+    public void write(Object datum, Encoder out) throws IOException {
+      try {
+        if (specific && datum instanceof SpecificRecordBase) {
+          writeSpecific((SpecificRecordBase) datum, out);
+          return;
+        }
+        for (int i = 0; i < fields.length; i++) {
+          Field f = fields[i];
+          Object value = data.getField(datum, f.name(), f.pos());
+          try {
+            writers[i].write(value, out);
+          } catch (final UnresolvedUnionException uue) { // recreate it with the right field info
+            final UnresolvedUnionException unresolvedUnionException = new UnresolvedUnionException(f.schema(), f,
+                value);
+            unresolvedUnionException.addSuppressed(uue);
+            throw unresolvedUnionException;
+          } catch (NullPointerException e) {
+            throw npe(e, " in field " + f.name());
+          } catch (ClassCastException cce) {
+            throw addClassCastMsg(cce, " in field " + f.name());
+          } catch (AvroTypeException ate) {
+            throw addAvroTypeMsg(ate, " in field " + f.name());
+          }
+        }
+      } catch (NullPointerException e) {
+        throw npe(e, of);
+      }
+    }
+
+    // as SpecificDatumWriter.writeRecord and writeField
+    private void writeSpecific(SpecificRecordBase record, Encoder out) throws IOException {
+      if (((SpecificData) data).useCustomCoders() && Accessor.hasCustomCoders(record)) {
+        record.customEncode(out);
+        return;
+      }
+      for (int i = 0; i < fields.length; i++) {
+        Field f = fields[i];
+        Conversion<?> conversion = record.getConversion(f.pos());
+        Object value = data.getField(record, f.name(), f.pos());
+        LogicalType logicalType = f.schema().getLogicalType();
+        if (conversion != null && logicalType != null) {
+          value = convert(f.schema(), logicalType, conversion, value);
+        }
+        rawWriters[i].write(value, out);
+      }
+    }
+  }
+}
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.avro.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.avro.io.FastReaderBuilder.ExecutionStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles the steps of a {@link FastReaderBuilder.RecordReader} into a class
+ * of its own, whose one step runs them all in order.
+ * <p>
+ * Run in turn by the record reader, the steps of all fields share its loop and
+ * the code of the few kinds of step, so each field's reader is called from a
+ * call site that sees readers of every kind, which the JIT leaves as a virtual
+ * call. The compiled class instead holds each step in a {@code static final}
+ * field, which the JIT treats as a constant, and calls it from a call site of
+ * its own. Each call can then be bound to the step's own class and inlined,
+ * along with the field reader the step captured.
+ * <p>
+ * This pays off only for records of a few dozen fields. All of a record's
+ * steps are then inlined into one method, whose code grows with the number of
+ * fields, while the steps run in turn share the code of a few. Past
+ * {@link #MAX_STEPS} steps the larger code costs more than the calls it saves,
+ * so such records are not compiled.
+ * <p>
+ * The class is written here, as ASM is not a dependency, and defined as a
+ * hidden class so that it is unloaded with its reader. Hidden classes need
+ * Java 15 or later; on earlier versions nothing is compiled and the steps are
+ * run in turn.
+ */
+final class RecordReaderCompiler {
+  private static final Logger LOG = LoggerFactory.getLogger(RecordReaderCompiler.class);
+
+  /** The most steps compiled into one class; readers with more aren't */
+  static final int MAX_STEPS = 64;
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  // Lookup.defineHiddenClass(byte[], boolean, ClassOption...), if available
+  private static final Method DEFINE_HIDDEN_CLASS;
+  private static final Object NO_CLASS_OPTIONS;
+
+  static {
+    Method define = null;
+    Object options = null;
+    try {
+      Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+      options = Array.newInstance(option, 0);
+      define = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class,
+          options.getClass());
+    } catch (ReflectiveOperationException e) {
+      // before Java 15
+    }
+    DEFINE_HIDDEN_CLASS = define;
+    NO_CLASS_OPTIONS = options;
+  }
+
+  // the steps of the class being defined, read by its static initializer
+  private static ExecutionStep[] pending;
+
+  private RecordReaderCompiler() {
+  }
+
+  /** Returns whether steps can be compiled on this JVM. */
+  static boolean isSupported() {
+    return DEFINE_HIDDEN_CLASS != null;
+  }
+
+  /**
+   * Returns a step that runs the given steps in order, or null if they can't be
+   * compiled: there are none, more than {@link #MAX_STEPS}, or hidden classes
+   * aren't supported.
+   */
+  static synchronized ExecutionStep compile(ExecutionStep[] steps) {
+    if (!isSupported() || steps.length == 0 || steps.length > MAX_STEPS) {
+      return null;
+    }
+    pending = steps;
+    try {
+      // the class is initialized as it is defined, on this thread
+      MethodHandles.Lookup lookup = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(LOOKUP, classFile(steps.length),
+          true, NO_CLASS_OPTIONS);
+      return (ExecutionStep) lookup.lookupClass().getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | IOException | LinkageError e) {
+      LOG.warn("Could not compile record reader, its steps are run in turn", e);
+      return null;
+    } finally {
+      pending = null;
+    }
+  }
+
+  /** Called by the static initializer of a compiled class for its steps. */
+  static ExecutionStep[] pending() {
+    return pending;
+  }
+
+  private static final String CLASS_NAME = "org/apache/avro/io/CompiledRecordReaderSteps";
+  private static final String STEP_CLASS_NAME = "org/apache/avro/io/FastReaderBuilder$ExecutionStep";
+  private static final String STEP_DESCRIPTOR = "L" + STEP_CLASS_NAME + ";";
+  private static final String EXECUTE_DESCRIPTOR = "(Ljava/lang/Object;Lorg/apache/avro/io/Decoder;)V";
+
+  private static final int ACC_PUBLIC = 0x0001;
+  private static final int ACC_PRIVATE = 0x0002;
+  private static final int ACC_STATIC = 0x0008;
+  private static final int ACC_FINAL = 0x0010;
+  private static final int ACC_SUPER = 0x0020;
+
+  private static final int ALOAD_0 = 0x2a;
+  private static final int ALOAD_1 = 0x2b;
+  private static final int ALOAD_2 = 0x2c;
+  private static final int ASTORE_0 = 0x4b;
+  private static final int AALOAD = 0x32;
+  private static final int BIPUSH = 0x10;
+  private static final int ICONST_0 = 0x03;
+  private static final int RETURN = 0xb1;
+  private static final int GETSTATIC = 0xb2;
+  private static final int PUTSTATIC = 0xb3;
+  private static final int INVOKESPECIAL = 0xb7;
+  private static final int INVOKESTATIC = 0xb8;
+  private static final int INVOKEINTERFACE = 0xb9;
+
+  /**
+   * Returns the class file of a class that holds {@code n} steps in fields
+   * {@code s0} to {@code s<n-1>}, set from {@link #pending()}, and runs them in
+   * order:
+   *
+   * <pre>
+   * public final class CompiledRecordReaderSteps implements ExecutionStep {
+   *   private static final ExecutionStep s0 = RecordReaderCompiler.pending()[0];
+   *   ...
+   *   public void execute(Object record, Decoder decoder) {
+   *     s0.execute(record, decoder);
+   *     ...
+   *   }
+   * }
+   * </pre>
+   *
+   * The class file is of version 52, Java 8, whose methods need no stack map
+   * frames as long as they don't branch.
+   */
+  private static byte[] classFile(int n) throws IOException {
+    ConstantPool pool = new ConstantPool();
+    int thisClass = pool.classRef(CLASS_NAME);
+    int objectClass = pool.classRef("java/lang/Object");
+    int stepClass = pool.classRef(STEP_CLASS_NAME);
+    int objectInit = pool.methodRef(objectClass, "<init>", "()V");
+    int pendingMethod = pool.methodRef(pool.classRef("org/apache/avro/io/RecordReaderCompiler"), "pending",
+        "()[" + STEP_DESCRIPTOR);
+    int stepExecute = pool.interfaceMethodRef(stepClass, "execute", EXECUTE_DESCRIPTOR);
+    int[] fields = new int[n];
+    for (int i = 0; i < n; i++) {
+      fields[i] = pool.fieldRef(thisClass, "s" + i, STEP_DESCRIPTOR);
+    }
+    int code = pool.utf8("Code");
+
+    // <init>
+    Bytecode init = new Bytecode();
+    init.op(ALOAD_0).op(INVOKESPECIAL).u2(objectInit).op(RETURN);
+
+    // <clinit>
+    Bytecode clinit = new Bytecode();
+    clinit.op(INVOKESTATIC).u2(pendingMethod).op(ASTORE_0);
+    for (int i = 0; i < n; i++) {
+      clinit.op(ALOAD_0).index(i).op(AALOAD).op(PUTSTATIC).u2(fields[i]);
+    }
+    clinit.op(RETURN);
+
+    // execute
+    Bytecode execute = new Bytecode();
+    for (int i = 0; i < n; i++) {
+      execute.op(GETSTATIC).u2(fields[i]).op(ALOAD_1).op(ALOAD_2).op(INVOKEINTERFACE).u2(stepExecute).u1(3).u1(0);
+    }
+    execute.op(RETURN);
+
+    // the pool is complete once these are added, as the names of the fields
+    // were added with their references
+    int initName = pool.utf8("<init>");
+    int voidDescriptor = pool.utf8("()V");
+    int clinitName = pool.utf8("<clinit>");
+    int executeName = pool.utf8("execute");
+    int executeDescriptor = pool.utf8(EXECUTE_DESCRIPTOR);
+    int stepDescriptor = pool.utf8(STEP_DESCRIPTOR);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0); // minor version
+    out.writeShort(52); // major version
+    pool.write(out);
+
+    out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+    out.writeShort(thisClass);
+    out.writeShort(objectClass);
+    out.writeShort(1); // interfaces
+    out.writeShort(stepClass);
+
+    out.writeShort(n); // fields
+    for (int i = 0; i < n; i++) {
+      out.writeShort(ACC_PRIVATE | ACC_STATIC | ACC_FINAL);
+      out.writeShort(pool.utf8("s" + i));
+      out.writeShort(stepDescriptor);
+      out.writeShort(0); // attributes
+    }
+
+    out.writeShort(3); // methods
+    writeMethod(out, ACC_PUBLIC, initName, voidDescriptor, code, init, 1, 1);
+    writeMethod(out, ACC_STATIC, clinitName, voidDescriptor, code, clinit, 2, 1);
+    writeMethod(out, ACC_PUBLIC, executeName, executeDescriptor, code, execute, 3, 3);
+
+    out.writeShort(0); // attributes
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeMethod(DataOutputStream out, int access, int name, int descriptor, int code,
+      Bytecode bytecode, int maxStack, int maxLocals) throws IOException {
+    out.writeShort(access);
+    out.writeShort(name);
+    out.writeShort(descriptor);
+    out.writeShort(1); // attributes
+    out.writeShort(code);
+    out.writeInt(12 + bytecode.size());
+    out.writeShort(maxStack);
+    out.writeShort(maxLocals);
+    out.writeInt(bytecode.size());
+    bytecode.writeTo(out);
+    out.writeShort(0); // exception table
+    out.writeShort(0); // attributes
+  }
+
+  /** The code of a method. */
+  private static final class Bytecode extends ByteArrayOutputStream {
+    Bytecode op(int opcode) {
+      write(opcode);
+      return this;
+    }
+
+    Bytecode u1(int value) {
+      write(value);
+      return this;
+    }
+
+    Bytecode u2(int value) {
+      write(value >>> 8);
+      write(value);
+      return this;
+    }
+
+    /** Pushes an index of up to {@link Byte#MAX_VALUE}. */
+    Bytecode index(int i) {
+      return i <= 5 ? op(ICONST_0 + i) : op(BIPUSH).u1(i);
+    }
+  }
+
+  /** The constant pool of a class file, whose entries are added once each. */
+  private static final class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int CLASS = 7;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int INTERFACE_METHOD_REF = 11;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int count = 1;
+
+    int utf8(String value) throws IOException {
+      Integer index = indices.get(UTF8 + ":" + value);
+      if (index == null) {
+        out.writeByte(UTF8);
+        out.writeUTF(value);
+        index = add(UTF8 + ":" + value);
+      }
+      return index;
+    }
+
+    int classRef(String name) throws IOException {
+      return ref(CLASS, utf8(name), -1);
+    }
+
+    int fieldRef(int owner, String name, String descriptor) throws IOException {
+      return ref(FIELD_REF, owner, nameAndType(name, descriptor));
+    }
+
+    int methodRef(int owner, String name, String descriptor) throws IOException {
+      return ref(METHOD_REF, owner, nameAndType(name, descriptor));
+    }
+
+    int interfaceMethodRef(int owner, String name, String descriptor) throws IOException {
+      return ref(INTERFACE_METHOD_REF, owner, nameAndType(name, descriptor));
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+      return ref(NAME_AND_TYPE, utf8(name), utf8(descriptor));
+    }
+
+    /** Adds an entry of one or two indices, if it isn't already there. */
+    private int ref(int tag, int first, int second) throws IOException {
+      String key = tag + ":" + first + ":" + second;
+      Integer index = indices.get(key);
+      if (index == null) {
+        out.writeByte(tag);
+        out.writeShort(first);
+        if (second >= 0) {
+          out.writeShort(second);
+        }
+        index = add(key);
+      }
+      return index;
+    }
+
+    private int add(String key) {
+      indices.put(key, count);
+      return count++;
+    }
+
+    void write(DataOutputStream to) throws IOException {
+      to.writeShort(count);
+      bytes.writeTo(to);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.util.WeakIdentityHashMap;
+
+/**
+ * A bounded cache, shared by all threads, of the resolvers returned by
+ * {@link ResolvingDecoder#resolve(Schema, Schema)}. Resolvers are immutable, so
+ * one can back the resolving decoders of any number of threads.
+ * <p/>
+ * Entries are keyed by the 64-bit fingerprint of the full JSON of the writer's
+ * schema, so that equal writer's schemas, such as those parsed from the header
+ * of each file read, share a resolver. The fingerprint of each schema instance
+ * is computed once. The reader's schema is matched by identity, as a resolver
+ * hands out the reader's own fields, whose logical types and properties the
+ * JSON need not capture. When the cache is full, an arbitrary entry is dropped
+ * to make room.
+ */
+final class ResolverCache {
+  /** System property that sets the most resolvers kept. */
+  static final String MAX_ENTRIES_PROP = "org.apache.avro.io.resolvercache.size";
+  static final int DEFAULT_MAX_ENTRIES = 1024;
+
+  private static final int MAX_ENTRIES = Integer.getInteger(MAX_ENTRIES_PROP, DEFAULT_MAX_ENTRIES);
+
+  private static final Map<Schema, Long> FINGERPRINTS = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+  private static final Map<Key, Object> RESOLVERS = new ConcurrentHashMap<>();
+
+  private ResolverCache() {
+  }
+
+  /**
+   * Returns the resolver of data written with {@code writer} to be read as
+   * {@code reader}, once the reader's aliases are applied to the writer's
+   * schema.
+   */
+  static Object get(Schema writer, Schema reader) throws IOException {
+    Key key = new Key(fingerprint(writer), reader);
+    Object resolver = RESOLVERS.get(key);
+    if (resolver == null) {
+      // not computeIfAbsent, as resolving is too slow to do under a lock
+      resolver = ResolvingDecoder.resolve(Schema.applyAliases(writer, reader), reader);
+      if (RESOLVERS.size() >= MAX_ENTRIES) {
+        Iterator<Key> keys = RESOLVERS.keySet().iterator();
+        if (keys.hasNext()) {
+          keys.next();
+          keys.remove();
+        }
+      }
+      Object raced = RESOLVERS.putIfAbsent(key, resolver);
+      if (raced != null) {
+        resolver = raced;
+      }
+    }
+    return resolver;
+  }
+
+  /** Returns the number of resolvers cached. */
+  static int size() {
+    return RESOLVERS.size();
+  }
+
+  private static long fingerprint(Schema schema) {
+    Long fingerprint = FINGERPRINTS.get(schema);
+    if (fingerprint == null) {
+      fingerprint = SchemaNormalization.fingerprint64(schema.toString().getBytes(StandardCharsets.UTF_8));
+      FINGERPRINTS.put(schema, fingerprint);
+    }
+    return fingerprint;
+  }
+
+  private static final class Key {
+    private final long writer;
+    private final Schema reader;
+
+    Key(long writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return writer == that.writer && reader == that.reader;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(writer) * 31 + System.identityHashCode(reader);
+    }
+  }
+}
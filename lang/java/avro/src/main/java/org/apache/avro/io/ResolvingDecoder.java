@@ -60,7 +60,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * @param in       The underlying decoder.
    * @throws IOException
    */
-  private ResolvingDecoder(Object resolver, Decoder in) throws IOException {
+  ResolvingDecoder(Object resolver, Decoder in) throws IOException {
     super((Symbol) resolver, in);
   }
 
@@ -84,6 +84,26 @@ public class ResolvingDecoder extends ValidatingDecoder {
     return new ResolvingGrammarGenerator().generate(writer, reader);
   }
 
+  /**
+   * Like {@link #resolve(Schema, Schema)}, but first applies the reader's
+   * aliases to the writer's schema, and returns a resolver from a bounded cache
+   * shared by all threads. Writer's schemas that are equal share a resolver,
+   * even if they were parsed separately; the reader's schema must be the same
+   * instance.
+   *
+   * @param writer The writer's schema. Cannot be null.
+   * @param reader The reader's schema. Cannot be null.
+   * @return The opaque resolver.
+   * @throws IOException
+   * @throws NullPointerException if {@code writer} or {@code reader} is
+   *                              {@code null}
+   */
+  public static Object resolveShared(Schema writer, Schema reader) throws IOException {
+    Objects.requireNonNull(writer, "Writer schema cannot be null");
+    Objects.requireNonNull(reader, "Reader schema cannot be null");
+    return ResolverCache.get(writer, reader);
+  }
+
   /**
    * Returns the actual order in which the reader's fields will be returned to the
    * reader.
@@ -299,8 +319,12 @@ public class ResolvingDecoder extends ValidatingDecoder {
         return t.writer;
       }
     } else if (top instanceof Symbol.SkipAction) {
-      Symbol symToSkip = ((Symbol.SkipAction) top).symToSkip;
-      parser.skipSymbol(symToSkip);
+      Symbol.SkipAction skip = (Symbol.SkipAction) top;
+      if (skip.plan != null && in instanceof BinaryDecoder) {
+        skip.plan.skip(in);
+      } else {
+        parser.skipSymbol(skip.symToSkip);
+      }
     } else if (top instanceof Symbol.WriterUnionAction) {
       Symbol.Alternative branches = (Symbol.Alternative) parser.popSymbol();
       parser.pushSymbol(branches.getSymbol(in.readIndex()));
@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.generic.GenericDatumReader;
+
+/**
+ * A precomputed way to skip a run of values of the given writer's schemas, as
+ * when a reader drops consecutive fields of a record.
+ * <p/>
+ * Walking the schemas once, the plan merges values of fixed size (nulls,
+ * booleans, floats, doubles and fixeds) into a single skip of their total
+ * length, varints (ints, longs and enums) into runs, and strings and bytes into
+ * runs of length-prefixed skips, looking through nested records. Arrays and
+ * maps skip whole blocks when their writer recorded block sizes, as
+ * {@link BlockingBinaryEncoder} does, and otherwise skip items of fixed size
+ * as one run of bytes.
+ * <p/>
+ * Plans only speed up {@link BinaryDecoder}s; other decoders skip each value
+ * with {@link GenericDatumReader#skip(Schema, Decoder)}. A plan is immutable
+ * and may be shared between threads.
+ */
+public final class SkipPlan {
+  private static final Schema STRING = Schema.create(Schema.Type.STRING);
+
+  private final List<Schema> schemas;
+  private Step[] steps;
+  /** The size of everything this plan skips, or -1 if that varies. */
+  private long fixedSize;
+
+  private SkipPlan(List<Schema> schemas) {
+    this.schemas = schemas;
+  }
+
+  /** Returns a plan to skip one value of each of the schemas, in order. */
+  public static SkipPlan of(Schema... schemas) {
+    return of(Arrays.asList(schemas));
+  }
+
+  /** Returns a plan to skip one value of each of the schemas, in order. */
+  public static SkipPlan of(List<Schema> schemas) {
+    return new Planner().plan(new ArrayList<>(schemas));
+  }
+
+  /** Skips a value of each of this plan's schemas. */
+  public void skip(Decoder in) throws IOException {
+    if (in instanceof BinaryDecoder) {
+      skip((BinaryDecoder) in);
+    } else {
+      for (Schema schema : schemas) {
+        GenericDatumReader.skip(schema, in);
+      }
+    }
+  }
+
+  private void skip(BinaryDecoder in) throws IOException {
+    for (Step step : steps) {
+      step.skip(in);
+    }
+  }
+
+  /**
+   * Makes the plans of the values within arrays, maps and unions once per
+   * schema, so that plans of recursive schemas refer back to themselves.
+   */
+  private static final class Planner {
+    private final Map<Schema, SkipPlan> values = new IdentityHashMap<>();
+    private final Map<Schema, SkipPlan> entries = new IdentityHashMap<>();
+
+    SkipPlan plan(List<Schema> schemas) {
+      SkipPlan plan = new SkipPlan(Collections.unmodifiableList(schemas));
+      build(plan);
+      return plan;
+    }
+
+    SkipPlan value(Schema schema) {
+      SkipPlan plan = values.get(schema);
+      if (plan == null) {
+        plan = new SkipPlan(Collections.singletonList(schema));
+        values.put(schema, plan);
+        build(plan);
+      }
+      return plan;
+    }
+
+    /** Returns the plan of an entry, its key and value, of a map. */
+    SkipPlan entry(Schema map) {
+      SkipPlan plan = entries.get(map);
+      if (plan == null) {
+        plan = new SkipPlan(Collections.unmodifiableList(Arrays.asList(STRING, map.getValueType())));
+        entries.put(map, plan);
+        build(plan);
+      }
+      return plan;
+    }
+
+    private void build(SkipPlan plan) {
+      Builder builder = new Builder(this);
+      for (Schema schema : plan.schemas) {
+        builder.add(schema);
+      }
+      plan.steps = builder.build();
+      plan.fixedSize = builder.fixedSize();
+    }
+  }
+
+  private interface Step {
+    void skip(BinaryDecoder in) throws IOException;
+  }
+
+  private static final class Builder {
+    private static final int NONE = 0;
+    private static final int BYTES = 1;
+    private static final int VARINTS = 2;
+    private static final int PREFIXED = 3;
+
+    private final Planner planner;
+    private final List<Step> steps = new ArrayList<>();
+    /** The records being inlined into this plan, from the outermost in. */
+    private final Set<Schema> records = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int pending = NONE;
+    private long count;
+    private boolean variable;
+
+    Builder(Planner planner) {
+      this.planner = planner;
+    }
+
+    void add(Schema schema) {
+      switch (schema.getType()) {
+      case NULL:
+        break;
+      case BOOLEAN:
+        run(BYTES, 1);
+        break;
+      case FLOAT:
+        run(BYTES, 4);
+        break;
+      case DOUBLE:
+        run(BYTES, 8);
+        break;
+      case FIXED:
+        run(BYTES, schema.getFixedSize());
+        break;
+      case INT:
+      case LONG:
+      case ENUM:
+        run(VARINTS, 1);
+        break;
+      case STRING:
+      case BYTES:
+        run(PREFIXED, 1);
+        break;
+      case RECORD:
+        if (!records.add(schema)) {
+          // a record that holds itself, not through a union, array or map,
+          // never ends, so leave it to fail as it always has. Through those,
+          // the plans of their values refer back to the plan being built.
+          step(in -> GenericDatumReader.skip(schema, in));
+          break;
+        }
+        for (Field field : schema.getFields()) {
+          add(field.schema());
+        }
+        records.remove(schema);
+        break;
+      case ARRAY:
+        step(new ArrayStep(planner.value(schema.getElementType())));
+        break;
+      case MAP:
+        step(new MapStep(planner.entry(schema)));
+        break;
+      case UNION:
+        List<Schema> types = schema.getTypes();
+        SkipPlan[] branches = new SkipPlan[types.size()];
+        for (int i = 0; i < branches.length; i++) {
+          branches[i] = planner.value(types.get(i));
+        }
+        step(new UnionStep(branches));
+        break;
+      default:
+        throw new RuntimeException("Unknown type: " + schema);
+      }
+    }
+
+    private void run(int kind, long n) {
+      if (pending != kind) {
+        flush();
+        pending = kind;
+      }
+      count += n;
+    }
+
+    private void step(Step step) {
+      flush();
+      steps.add(step);
+      variable = true;
+    }
+
+    private void flush() {
+      final long n = count;
+      switch (pending) {
+      case BYTES:
+        if (n > 0) {
+          steps.add(new ByteRun(n));
+        }
+        break;
+      case VARINTS:
+        steps.add(in -> in.skipVarints(n));
+        variable = true;
+        break;
+      case PREFIXED:
+        steps.add(in -> {
+          for (long i = 0; i < n; i++) {
+            in.skipBytes();
+          }
+        });
+        variable = true;
+        break;
+      default:
+        break;
+      }
+      pending = NONE;
+      count = 0;
+    }
+
+    Step[] build() {
+      flush();
+      return steps.toArray(new Step[0]);
+    }
+
+    long fixedSize() {
+      if (variable) {
+        return -1;
+      }
+      long size = 0;
+      for (Step step : steps) {
+        // only byte runs are left
+        size += ((ByteRun) step).size;
+      }
+      return size;
+    }
+  }
+
+  private static final class ByteRun implements Step {
+    private final long size;
+
+    ByteRun(long size) {
+      this.size = size;
+    }
+
+    @Override
+    public void skip(BinaryDecoder in) throws IOException {
+      in.doSkipBytes(size);
+    }
+  }
+
+  private static final class ArrayStep implements Step {
+    private final SkipPlan element;
+
+    ArrayStep(SkipPlan element) {
+      this.element = element;
+    }
+
+    @Override
+    public void skip(BinaryDecoder in) throws IOException {
+      for (long l = in.skipArray(); l > 0; l = in.skipArray()) {
+        skipItems(element, l, in);
+      }
+    }
+  }
+
+  private static final class MapStep implements Step {
+    private final SkipPlan entry;
+
+    MapStep(SkipPlan entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public void skip(BinaryDecoder in) throws IOException {
+      for (long l = in.skipMap(); l > 0; l = in.skipMap()) {
+        skipItems(entry, l, in);
+      }
+    }
+  }
+
+  private static void skipItems(SkipPlan item, long count, BinaryDecoder in) throws IOException {
+    long size = item.fixedSize;
+    if (size >= 0) {
+      in.doSkipBytes(size * count);
+    } else {
+      for (long i = 0; i < count; i++) {
+        item.skip(in);
+      }
+    }
+  }
+
+  private static final class UnionStep implements Step {
+    private final SkipPlan[] branches;
+
+    UnionStep(SkipPlan[] branches) {
+      this.branches = branches;
+    }
+
+    @Override
+    public void skip(BinaryDecoder in) throws IOException {
+      branches[in.readIndex()].skip(in);
+    }
+  }
+}
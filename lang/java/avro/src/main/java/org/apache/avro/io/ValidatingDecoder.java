@@ -100,6 +100,65 @@ public class ValidatingDecoder extends ParsingDecoder implements Parser.ActionHa
     return in.readDouble();
   }
 
+  @Override
+  public void readInts(int[] a, int off, int len) throws IOException {
+    if (len > 0) {
+      a[off] = readInt();
+      if (repeats(Symbol.INT)) {
+        in.readInts(a, off + 1, len - 1);
+      } else {
+        super.readInts(a, off + 1, len - 1);
+      }
+    }
+  }
+
+  @Override
+  public void readLongs(long[] a, int off, int len) throws IOException {
+    if (len > 0) {
+      a[off] = readLong();
+      if (repeats(Symbol.LONG)) {
+        in.readLongs(a, off + 1, len - 1);
+      } else {
+        super.readLongs(a, off + 1, len - 1);
+      }
+    }
+  }
+
+  @Override
+  public void readFloats(float[] a, int off, int len) throws IOException {
+    if (len > 0) {
+      a[off] = readFloat();
+      if (repeats(Symbol.FLOAT)) {
+        in.readFloats(a, off + 1, len - 1);
+      } else {
+        super.readFloats(a, off + 1, len - 1);
+      }
+    }
+  }
+
+  @Override
+  public void readDoubles(double[] a, int off, int len) throws IOException {
+    if (len > 0) {
+      a[off] = readDouble();
+      if (repeats(Symbol.DOUBLE)) {
+        in.readDoubles(a, off + 1, len - 1);
+      } else {
+        super.readDoubles(a, off + 1, len - 1);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the items of the array being read are just the given
+   * terminal, with nothing to resolve. Reading such an item leaves the parser as
+   * it was, so the remaining items of the block can be read straight from the
+   * underlying decoder.
+   */
+  private boolean repeats(Symbol item) {
+    Symbol top = parser.topSymbol();
+    return top.kind == Symbol.Kind.REPEATER && top.production.length == 2 && top.production[1] == item;
+  }
+
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
     parser.advance(Symbol.STRING);
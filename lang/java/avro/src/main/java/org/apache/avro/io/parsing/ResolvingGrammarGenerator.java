@@ -20,6 +20,7 @@ package org.apache.avro.io.parsing;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -32,6 +33,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.SkipPlan;
 import org.apache.avro.util.internal.Accessor;
 import org.apache.avro.util.internal.Accessor.ResolvingGrammarGeneratorAccessor;
 
@@ -86,7 +88,7 @@ public class ResolvingGrammarGenerator extends ValidatingGrammarGenerator {
       return Symbol.error(action.toString());
 
     } else if (action instanceof Resolver.Skip) {
-      return Symbol.skipAction(simpleGen(action.writer, seen));
+      return Symbol.skipAction(simpleGen(action.writer, seen), SkipPlan.of(action.writer));
 
     } else if (action instanceof Resolver.Promote) {
       return Symbol.resolve(simpleGen(action.writer, seen), simpleGen(action.reader, seen));
@@ -131,16 +133,39 @@ public class ResolvingGrammarGenerator extends ValidatingGrammarGenerator {
       Symbol result = seen.get(action);
       if (result == null) {
         final Resolver.RecordAdjust ra = (Resolver.RecordAdjust) action;
+        final Resolver.Action[] actions = ra.fieldActions;
+        // each run of skipped fields is skipped by a single action
+        int fieldCount = 0;
+        for (int i = 0; i < actions.length; i++) {
+          if (!(actions[i] instanceof Resolver.Skip) || i == 0 || !(actions[i - 1] instanceof Resolver.Skip)) {
+            fieldCount++;
+          }
+        }
         int defaultCount = ra.readerOrder.length - ra.firstDefault;
-        int count = 1 + ra.fieldActions.length + 3 * defaultCount;
+        int count = 1 + fieldCount + 3 * defaultCount;
         final Symbol[] production = new Symbol[count];
         result = Symbol.seq(production);
         seen.put(action, result);
         production[--count] = Symbol.fieldOrderAction(ra.readerOrder);
 
-        final Resolver.Action[] actions = ra.fieldActions;
-        for (Resolver.Action wfa : actions) {
-          production[--count] = generate(wfa, seen);
+        for (int i = 0; i < actions.length; i++) {
+          if (!(actions[i] instanceof Resolver.Skip)) {
+            production[--count] = generate(actions[i], seen);
+            continue;
+          }
+          int end = i + 1;
+          while (end < actions.length && actions[end] instanceof Resolver.Skip) {
+            end++;
+          }
+          List<Schema> skipped = new ArrayList<>();
+          Symbol[] symbols = new Symbol[end - i];
+          for (int j = i; j < end; j++) {
+            skipped.add(actions[j].writer);
+            symbols[end - 1 - j] = simpleGen(actions[j].writer, seen);
+          }
+          Symbol symToSkip = symbols.length == 1 ? symbols[0] : Symbol.seq(symbols);
+          production[--count] = Symbol.skipAction(symToSkip, SkipPlan.of(skipped));
+          i = end - 1;
         }
         for (int i = ra.firstDefault; i < ra.readerOrder.length; i++) {
           final Schema.Field rf = ra.readerOrder[i];
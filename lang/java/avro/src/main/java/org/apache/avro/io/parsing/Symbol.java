@@ -27,6 +27,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.avro.Schema;
+import org.apache.avro.io.SkipPlan;
 
 /**
  * Symbol is the base of all symbols (terminals and non-terminals) of the
@@ -563,18 +564,33 @@ public abstract class Symbol {
     return new SkipAction(symToSkip);
   }
 
+  /**
+   * Returns an action that skips <tt>symToSkip</tt>, using <tt>plan</tt> to skip
+   * the same values when reading from a {@link org.apache.avro.io.BinaryDecoder}.
+   */
+  public static SkipAction skipAction(Symbol symToSkip, SkipPlan plan) {
+    return new SkipAction(symToSkip, plan);
+  }
+
   public static class SkipAction extends ImplicitAction {
     public final Symbol symToSkip;
+    /** The plan that skips the values of <tt>symToSkip</tt>, or null. */
+    public final SkipPlan plan;
 
     @Deprecated
     public SkipAction(Symbol symToSkip) {
+      this(symToSkip, null);
+    }
+
+    private SkipAction(Symbol symToSkip, SkipPlan plan) {
       super(true);
       this.symToSkip = symToSkip;
+      this.plan = plan;
     }
 
     @Override
     public SkipAction flatten(Map<Sequence, Sequence> map, Map<Sequence, List<Fixup>> map2) {
-      return new SkipAction(symToSkip.flatten(map, map2));
+      return new SkipAction(symToSkip.flatten(map, map2), plan);
     }
 
   }
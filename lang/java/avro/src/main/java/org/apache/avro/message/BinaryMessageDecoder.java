@@ -21,6 +21,7 @@ package org.apache.avro.message;
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.util.internal.Pool;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -47,12 +48,8 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<byte[]> HEADER_BUFFER = ThreadLocal.withInitial(() -> new byte[10]);
-
-  private static final ThreadLocal<ByteBuffer> FP_BUFFER = ThreadLocal.withInitial(() -> {
-    byte[] header = HEADER_BUFFER.get();
-    return ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
-  });
+  private static final Pool<ByteBuffer> HEADER_BUFFER = new Pool<>(
+      () -> ByteBuffer.wrap(new byte[10]).order(ByteOrder.LITTLE_ENDIAN));
 
   private final GenericData model;
   private final Schema readSchema;
@@ -143,20 +140,27 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
   @Override
   public D decode(InputStream stream, D reuse) throws IOException {
-    byte[] header = HEADER_BUFFER.get();
+    ByteBuffer headerBuffer = HEADER_BUFFER.acquire();
+    long fp;
     try {
-      if (!readFully(stream, header)) {
-        throw new BadHeaderException("Not enough header bytes");
+      byte[] header = headerBuffer.array();
+      try {
+        if (!readFully(stream, header)) {
+          throw new BadHeaderException("Not enough header bytes");
+        }
+      } catch (IOException e) {
+        throw new IOException("Failed to read header and fingerprint bytes", e);
       }
-    } catch (IOException e) {
-      throw new IOException("Failed to read header and fingerprint bytes", e);
-    }
 
-    if (BinaryMessageEncoder.V1_HEADER[0] != header[0] || BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
-      throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", header[0], header[1]));
+      if (BinaryMessageEncoder.V1_HEADER[0] != header[0] || BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
+        throw new BadHeaderException(String.format("Unrecognized header bytes: 0x%02X 0x%02X", header[0], header[1]));
+      }
+      fp = headerBuffer.getLong(2);
+    } finally {
+      HEADER_BUFFER.release(headerBuffer);
     }
 
-    RawMessageDecoder<D> decoder = getDecoder(FP_BUFFER.get().getLong(2));
+    RawMessageDecoder<D> decoder = getDecoder(fp);
 
     return decoder.decode(stream, reuse);
   }
@@ -21,6 +21,7 @@ package org.apache.avro.message;
 
 import org.apache.avro.util.ReusableByteArrayInputStream;
 import org.apache.avro.util.ReusableByteBufferInputStream;
+import org.apache.avro.util.internal.Pool;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -111,11 +112,11 @@ public interface MessageDecoder<D> {
    */
   abstract class BaseDecoder<D> implements MessageDecoder<D> {
 
-    private static final ThreadLocal<ReusableByteArrayInputStream> BYTE_ARRAY_IN = ThreadLocal
-        .withInitial(ReusableByteArrayInputStream::new);
+    private static final Pool<ReusableByteArrayInputStream> BYTE_ARRAY_IN = new Pool<>(
+        ReusableByteArrayInputStream::new);
 
-    private static final ThreadLocal<ReusableByteBufferInputStream> BYTE_BUFFER_IN = ThreadLocal
-        .withInitial(ReusableByteBufferInputStream::new);
+    private static final Pool<ReusableByteBufferInputStream> BYTE_BUFFER_IN = new Pool<>(
+        ReusableByteBufferInputStream::new);
 
     @Override
     public D decode(InputStream stream) throws IOException {
@@ -134,16 +135,24 @@ public interface MessageDecoder<D> {
 
     @Override
     public D decode(ByteBuffer encoded, D reuse) throws IOException {
-      ReusableByteBufferInputStream in = BYTE_BUFFER_IN.get();
+      ReusableByteBufferInputStream in = BYTE_BUFFER_IN.acquire();
       in.setByteBuffer(encoded);
-      return decode(in, reuse);
+      try {
+        return decode(in, reuse);
+      } finally {
+        BYTE_BUFFER_IN.release(in);
+      }
     }
 
     @Override
     public D decode(byte[] encoded, D reuse) throws IOException {
-      ReusableByteArrayInputStream in = BYTE_ARRAY_IN.get();
+      ReusableByteArrayInputStream in = BYTE_ARRAY_IN.acquire();
       in.setByteArray(encoded, 0, encoded.length);
-      return decode(in, reuse);
+      try {
+        return decode(in, reuse);
+      } finally {
+        BYTE_ARRAY_IN.release(in);
+      }
     }
 
   }
@@ -25,6 +25,7 @@ import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.internal.Pool;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -43,7 +44,8 @@ import java.io.InputStream;
  */
 public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
-  private static final ThreadLocal<BinaryDecoder> DECODER = new ThreadLocal<>();
+  // holds no decoders to begin with, as each needs a stream to be made
+  private static final Pool<BinaryDecoder> DECODER = new Pool<>(() -> null);
 
   private final DatumReader<D> reader;
 
@@ -85,12 +87,13 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
   @Override
   public D decode(InputStream stream, D reuse) {
-    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(stream, DECODER.get());
-    DECODER.set(decoder);
+    BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(stream, DECODER.acquire());
     try {
       return reader.read(reuse, decoder);
     } catch (IOException e) {
       throw new AvroRuntimeException("Decoding datum failed", e);
+    } finally {
+      DECODER.release(decoder);
     }
   }
 }
@@ -40,6 +40,8 @@ import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.AvroTypeException;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.util.ClassUtils;
+import org.apache.avro.util.internal.Accessor;
+import org.apache.avro.util.internal.Accessor.SpecificDataAccessor;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
@@ -70,6 +72,20 @@ public class SpecificData extends GenericData {
 
   };
 
+  static {
+    Accessor.setAccessor(new SpecificDataAccessor() {
+      @Override
+      protected boolean isStringable(SpecificData data, Class<?> c) {
+        return data.isStringable(c);
+      }
+
+      @Override
+      protected boolean hasCustomCoders(SpecificRecordBase record) {
+        return record.hasCustomCoders();
+      }
+    });
+  }
+
   public static final String CLASS_PROP = "java-class";
   public static final String KEY_CLASS_PROP = "java-key-class";
   public static final String ELEMENT_PROP = "java-element-class";
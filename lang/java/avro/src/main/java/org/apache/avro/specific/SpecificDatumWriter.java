@@ -55,6 +55,11 @@ public class SpecificDatumWriter<T> extends GenericDatumWriter<T> {
     return (SpecificData) getData();
   }
 
+  @Override
+  protected boolean isFastWriterSupported() {
+    return getClass() == SpecificDatumWriter.class;
+  }
+
   @Override
   protected void writeEnum(Schema schema, Object datum, Encoder out) throws IOException {
     if (!(datum instanceof Enum))
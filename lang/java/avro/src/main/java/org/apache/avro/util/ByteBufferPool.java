@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * A source of reusable {@link ByteBuffer}s, which may be shared by the readers,
+ * writers and codecs of data files so that they need not allocate a buffer for
+ * every block. Implementations must be thread safe.
+ *
+ * @see org.apache.avro.file.DataFileWriter#setBufferPool(ByteBufferPool)
+ * @see org.apache.avro.file.DataFileStream#setBufferPool(ByteBufferPool)
+ */
+public abstract class ByteBufferPool {
+
+  /**
+   * Return a buffer with room for at least a number of bytes, with its position
+   * at zero and its limit at that number.
+   */
+  public abstract ByteBuffer acquire(int size);
+
+  /**
+   * Return a buffer that was acquired from this pool and is no longer used by
+   * the caller to the pool.
+   */
+  public abstract void release(ByteBuffer buffer);
+
+  /** A pool that keeps up to maxPooled released heap buffers for reuse. */
+  public static ByteBufferPool heap(int maxPooled) {
+    return new BoundedPool(false, maxPooled);
+  }
+
+  /** A pool that keeps up to maxPooled released direct buffers for reuse. */
+  public static ByteBufferPool direct(int maxPooled) {
+    return new BoundedPool(true, maxPooled);
+  }
+
+  private static class BoundedPool extends ByteBufferPool {
+    private final boolean direct;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    BoundedPool(boolean direct, int maxPooled) {
+      if (maxPooled < 0) {
+        throw new IllegalArgumentException("Invalid maxPooled value: " + maxPooled);
+      }
+      this.direct = direct;
+      this.maxPooled = maxPooled;
+    }
+
+    @Override
+    public ByteBuffer acquire(int size) {
+      ByteBuffer buffer = null;
+      synchronized (free) {
+        for (Iterator<ByteBuffer> i = free.iterator(); i.hasNext();) {
+          ByteBuffer b = i.next();
+          if (b.capacity() >= size) {
+            i.remove();
+            buffer = b;
+            break;
+          }
+        }
+      }
+      if (buffer == null) {
+        // round up, so that buffers fit blocks of similar sizes
+        int capacity = size <= 1 << 30 ? Integer.highestOneBit(Math.max(size - 1, 1)) << 1 : size;
+        buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+      }
+      ((Buffer) buffer).clear();
+      ((Buffer) buffer).limit(size);
+      return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer) {
+      if (buffer.isDirect() != direct || buffer.isReadOnly()) {
+        return;
+      }
+      synchronized (free) {
+        if (free.size() < maxPooled) {
+          free.addFirst(buffer);
+        }
+      }
+    }
+  }
+}
@@ -27,6 +27,8 @@ import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.JsonEncoder;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecordBase;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -53,12 +55,20 @@ public class Accessor {
         throws IOException;
   }
 
+  public abstract static class SpecificDataAccessor {
+    protected abstract boolean isStringable(SpecificData data, Class<?> c);
+
+    protected abstract boolean hasCustomCoders(SpecificRecordBase record);
+  }
+
   private static volatile JsonPropertiesAccessor jsonPropertiesAccessor;
 
   private static volatile FieldAccessor fieldAccessor;
 
   private static volatile ResolvingGrammarGeneratorAccessor resolvingGrammarGeneratorAccessor;
 
+  private static volatile SpecificDataAccessor specificDataAccessor;
+
   public static void setAccessor(JsonPropertiesAccessor accessor) {
     if (jsonPropertiesAccessor != null)
       throw new IllegalStateException("JsonPropertiesAccessor already initialized");
@@ -89,6 +99,18 @@ public class Accessor {
     return resolvingGrammarGeneratorAccessor;
   }
 
+  public static void setAccessor(SpecificDataAccessor accessor) {
+    if (specificDataAccessor != null)
+      throw new IllegalStateException("SpecificDataAccessor already initialized");
+    specificDataAccessor = accessor;
+  }
+
+  private static SpecificDataAccessor specificDataAccessor() {
+    if (specificDataAccessor == null)
+      ensureLoaded(SpecificData.class);
+    return specificDataAccessor;
+  }
+
   private static void ensureLoaded(Class<?> c) {
     try {
       Class.forName(c.getName());
@@ -118,4 +140,12 @@ public class Accessor {
     return fieldAccessor().createField(name, schema, doc, defaultValue);
   }
 
+  public static boolean isStringable(SpecificData data, Class<?> c) {
+    return specificDataAccessor().isStringable(data, c);
+  }
+
+  public static boolean hasCustomCoders(SpecificRecordBase record) {
+    return specificDataAccessor().hasCustomCoders(record);
+  }
+
 }
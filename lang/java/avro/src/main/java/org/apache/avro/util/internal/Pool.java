@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.util.internal;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A small pool of reusable objects shared by all threads, for scratch state
+ * that used to be kept in a {@link ThreadLocal}.
+ * <p/>
+ * A thread local holds one object per thread for as long as the thread lives,
+ * which wastes an object, and a map entry, on every short lived thread, such as
+ * a virtual thread per message. This pool instead holds a fixed number of
+ * objects, a few per processor, in slots that threads take from and return to
+ * without locking. When the slots a thread looks in are empty, a new object is
+ * made; when they are full, the returned object is dropped.
+ */
+public final class Pool<T> {
+  private static final int PROBES = 2;
+
+  private final Supplier<T> factory;
+  private final AtomicReferenceArray<T> slots;
+  private final int mask;
+
+  public Pool(Supplier<T> factory) {
+    this.factory = factory;
+    int size = Integer.highestOneBit(Math.max(2, Runtime.getRuntime().availableProcessors()) * 4 - 1) << 1;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  /**
+   * Takes an object from the pool, or returns what the factory makes, which may
+   * be null. The caller must not use the object after passing it to
+   * {@link #release(Object)}.
+   */
+  public T acquire() {
+    int home = home();
+    for (int i = 0; i < PROBES; i++) {
+      T t = slots.getAndSet((home + i) & mask, null);
+      if (t != null) {
+        return t;
+      }
+    }
+    return factory.get();
+  }
+
+  /** Returns an object taken by {@link #acquire()} to the pool. */
+  public void release(T t) {
+    int home = home();
+    for (int i = 0; i < PROBES; i++) {
+      if (slots.get((home + i) & mask) == null && slots.compareAndSet((home + i) & mask, null, t)) {
+        return;
+      }
+    }
+  }
+
+  private static int home() {
+    long id = Thread.currentThread().getId();
+    // spreads consecutive ids, as virtual threads have, over the slots
+    int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -17,7 +17,9 @@
  */
 package org.apache.avro;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -25,15 +27,26 @@ import static org.junit.Assert.assertTrue;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.avro.file.*;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.ByteBufferPool;
 import org.apache.avro.util.RandomData;
 import org.junit.Rule;
 import org.junit.Test;
@@ -74,6 +87,9 @@ public class TestDataFile {
     r.add(new Object[] { CodecFactory.zstandardCodec(0, true) });
     r.add(new Object[] { CodecFactory.zstandardCodec(5, false) });
     r.add(new Object[] { CodecFactory.zstandardCodec(18, true) });
+    r.add(new Object[] { CodecFactory.lz4Codec() });
+    r.add(new Object[] { CodecFactory.lz4Codec(9) });
+    r.add(new Object[] { CodecFactory.adaptiveZstandardCodec(3) });
     return r;
   }
 
@@ -95,6 +111,8 @@ public class TestDataFile {
     testGenericRead();
     testSplits();
     testSyncDiscovery();
+    testReadAhead();
+    testParallelScan();
     testGenericAppend();
     testReadWithHeader();
     testFSync(false);
@@ -207,6 +225,74 @@ public class TestDataFile {
     }
   }
 
+  private void testReadAhead() throws IOException {
+    File file = makeFile();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        reader.setDecompressionExecutor(executor, 3);
+        Object datum = null;
+        for (Object expected : new RandomData(SCHEMA, COUNT, SEED)) {
+          datum = reader.next(datum);
+          assertEquals(expected, datum);
+        }
+        assertFalse(reader.hasNext());
+      }
+      // sync points and splits must be reported as when reading block by block
+      List<Long> expectedSyncs = new ArrayList<>();
+      List<Long> tells = new ArrayList<>();
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        while (reader.hasNext()) {
+          reader.next();
+          expectedSyncs.add(reader.previousSync());
+          tells.add(reader.tell());
+        }
+      }
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        reader.setDecompressionExecutor(executor, 2);
+        List<Long> syncs = new ArrayList<>();
+        while (reader.hasNext()) {
+          reader.next();
+          syncs.add(reader.previousSync());
+          // positions stay within the block being read, not the blocks read ahead
+          assertTrue(reader.tell() >= reader.previousSync());
+          assertTrue(reader.tell() <= tells.get(syncs.size() - 1));
+        }
+        assertEquals(expectedSyncs, syncs);
+
+        long middle = file.length() / 2;
+        int count = 0;
+        reader.sync(0);
+        while (!reader.pastSync(middle)) {
+          reader.next();
+          count++;
+        }
+        reader.sync(middle);
+        while (reader.hasNext()) {
+          reader.next();
+          count++;
+        }
+        assertEquals(COUNT, count);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private void testParallelScan() throws IOException {
+    List<Object> expected = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+      expected.add(datum);
+    }
+    try (SeekableFileInput in = new SeekableFileInput(makeFile())) {
+      for (int splits : new int[] { 1, 3, 16 }) {
+        List<Object> actual = DataFileReader.parallelScan(in, GenericDatumReader::new, splits)
+            .collect(Collectors.toList());
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
   private void testGenericAppend() throws IOException {
     File file = makeFile();
     long start = file.length();
@@ -303,6 +389,162 @@ public class TestDataFile {
     assertTrue(out.flushCount < currentCount && out.flushCount >= flushCounter);
   }
 
+  @Test
+  public void testParallelCompression() throws IOException {
+    byte[] sync = new byte[16];
+    new Random(SEED).nextBytes(sync);
+    ByteArrayOutputStream serial = new ByteArrayOutputStream();
+    ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 2; i++) {
+        DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(100);
+        if (codec != null) {
+          writer.setCodec(codec);
+        }
+        if (i == 1) {
+          writer.setCompressionExecutor(executor, 3);
+        }
+        writer.create(SCHEMA, i == 0 ? serial : parallel, sync);
+        try {
+          int count = 0;
+          for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+            writer.append(datum);
+            if (++count % (COUNT / 3) == 0)
+              writer.sync();
+          }
+        } finally {
+          writer.close();
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+  }
+
+  @Test
+  public void testAppendEncodedBatch() throws IOException {
+    List<Object> data = new ArrayList<>();
+    List<ByteBuffer> encoded = new ArrayList<>();
+    GenericDatumWriter<Object> datumWriter = new GenericDatumWriter<>(SCHEMA);
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(bytes, null);
+      datumWriter.write(datum, encoder);
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      if (data.size() % 3 == 0) {
+        buffer = ByteBuffer.allocateDirect(buffer.remaining()).put(buffer);
+        ((Buffer) buffer).flip();
+      }
+      data.add(datum);
+      encoded.add(buffer);
+    }
+    File file = makeFile();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(200)) {
+      if (codec != null) {
+        writer.setCodec(codec);
+      }
+      writer.create(SCHEMA, file);
+      int half = COUNT / 2;
+      writer.append(data.get(0));
+      writer.appendEncodedBatch(encoded.subList(1, half).toArray(new ByteBuffer[0]));
+      ByteArrayOutputStream block = new ByteArrayOutputStream();
+      for (ByteBuffer buffer : encoded.subList(half, half + 10)) {
+        for (ByteBuffer b = buffer.duplicate(); b.hasRemaining();) {
+          block.write(b.get());
+        }
+      }
+      writer.appendEncodedBlock(ByteBuffer.wrap(block.toByteArray()), 10);
+      writer.appendEncodedBatch(encoded.subList(half + 10, COUNT).toArray(new ByteBuffer[0]));
+    }
+    // the buffers passed are not consumed
+    for (ByteBuffer buffer : encoded) {
+      assertTrue(buffer.position() == 0 && buffer.hasRemaining());
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (Object datum : data) {
+        assertEquals(datum, reader.next());
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testBufferPool() throws IOException {
+    for (ByteBufferPool pool : new ByteBufferPool[] { ByteBufferPool.heap(4), ByteBufferPool.direct(4) }) {
+      File file = makeFile();
+      try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(200)
+          .setBufferPool(pool)) {
+        if (codec != null) {
+          writer.setCodec(codec);
+        }
+        writer.create(SCHEMA, file);
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+          writer.append(datum);
+        }
+      }
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        reader.setBufferPool(pool);
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+          assertEquals(datum, reader.next());
+        }
+        assertFalse(reader.hasNext());
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(2);
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        reader.setBufferPool(pool).setDecompressionExecutor(executor, 2);
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+          assertEquals(datum, reader.next());
+        }
+        assertFalse(reader.hasNext());
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    // its own file, as the other tests share the one made by makeFile()
+    File file = DIR.newFile();
+    ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    CompletableFuture<Long> last;
+    long position = 0;
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
+      if (codec != null) {
+        writer.setCodec(codec);
+      }
+      writer.setGroupCommit(executor, 5, TimeUnit.MILLISECONDS, 2000);
+      writer.create(SCHEMA, file);
+      List<CompletableFuture<Long>> commits = new ArrayList<>();
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        commits.add(writer.appendDurable(datum));
+      }
+      for (CompletableFuture<Long> commit : commits) {
+        long next = commit.get(10, TimeUnit.SECONDS);
+        assertTrue(next >= position);
+        position = next;
+      }
+      assertTrue(position <= file.length());
+      // all that was committed can be read before the writer is closed
+      try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        int count = 0;
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+          assertEquals(datum, reader.next());
+          count++;
+        }
+        assertEquals(COUNT, count);
+      }
+      last = writer.appendDurable(new RandomData(SCHEMA, 1, SEED).iterator().next());
+    } finally {
+      executor.shutdown();
+    }
+    // closing the writer commits what was appended last
+    assertTrue(last.isDone());
+    assertTrue(last.get() > position);
+  }
+
   private void testFSync(boolean useFile) throws IOException {
     try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>())) {
       writer.setFlushOnEveryBlock(false);
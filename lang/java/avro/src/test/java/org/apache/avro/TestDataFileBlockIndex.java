@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.SeekableByteArrayInput;
+import org.apache.avro.file.SeekableFileInput;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestDataFileBlockIndex {
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final CodecFactory codec;
+
+  public TestDataFileBlockIndex(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(1) });
+    r.add(new Object[] { CodecFactory.zstandardCodec(3) });
+    return r;
+  }
+
+  private static final int COUNT = 500;
+  private static final long SEED = System.currentTimeMillis();
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+          + "{\"name\":\"stringField\", \"type\":\"string\"}," + "{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  private static List<Object> data(long seed) {
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, seed)) {
+      data.add(datum);
+    }
+    return data;
+  }
+
+  private DataFileWriter<Object> writer() {
+    return new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(200).setCodec(codec);
+  }
+
+  private File write(List<Object> data, boolean index) throws IOException {
+    File file = DIR.newFile();
+    try (DataFileWriter<Object> writer = writer().setWriteBlockIndex(index)) {
+      writer.create(SCHEMA, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  private static List<Object> readAll(File file) throws IOException {
+    List<Object> read = new ArrayList<>();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (Object datum : reader) {
+        read.add(datum);
+      }
+    }
+    return read;
+  }
+
+  @Test
+  public void testSeekToRecord() throws IOException {
+    List<Object> data = data(SEED);
+    File file = write(data, true);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertTrue(reader.hasBlockIndex());
+      assertEquals(COUNT, reader.getNumRecords());
+      assertTrue(reader.getNumBlocks() > 1);
+      for (int record = COUNT - 1; record >= 0; record -= 7) {
+        reader.seekToRecord(record);
+        assertEquals(data.get(record), reader.next());
+      }
+      reader.seekToRecord(COUNT - 3);
+      for (int record = COUNT - 3; record < COUNT; record++) {
+        assertEquals(data.get(record), reader.next());
+      }
+      assertFalse(reader.hasNext());
+      reader.seekToRecord(COUNT);
+      assertFalse(reader.hasNext());
+    }
+    // the index block is skipped when iterating
+    assertEquals(data, readAll(file));
+    try (DataFileStream<Object> stream = new DataFileStream<>(new FileInputStream(file),
+        new GenericDatumReader<>())) {
+      int count = 0;
+      for (Object datum : stream) {
+        assertEquals(data.get(count++), datum);
+      }
+      assertEquals(COUNT, count);
+    }
+  }
+
+  @Test
+  public void testNoIndex() throws IOException {
+    File file = write(data(SEED), false);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertFalse(reader.hasBlockIndex());
+    }
+  }
+
+  @Test
+  public void testIndexWithCompressionExecutor() throws IOException {
+    List<Object> data = data(SEED);
+    File file = DIR.newFile();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try (DataFileWriter<Object> writer = writer().setWriteBlockIndex(true).setCompressionExecutor(executor, 2)) {
+      writer.create(SCHEMA, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (int record = 0; record < COUNT; record += 13) {
+        reader.seekToRecord(record);
+        assertEquals(data.get(record), reader.next());
+      }
+    }
+  }
+
+  @Test
+  public void testAppend() throws IOException {
+    List<Object> data = data(SEED);
+    File file = write(data, true);
+    List<Object> more = data(SEED + 1);
+    try (DataFileWriter<Object> writer = writer().appendTo(file)) {
+      for (Object datum : more) {
+        writer.append(datum);
+      }
+    }
+    List<Object> all = new ArrayList<>(data);
+    all.addAll(more);
+    assertEquals(all, readAll(file));
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(2 * COUNT, reader.getNumRecords());
+      for (int record = 0; record < all.size(); record += 11) {
+        reader.seekToRecord(record);
+        assertEquals(all.get(record), reader.next());
+      }
+    }
+  }
+
+  @Test
+  public void testAppendAfterUnclosedWriter() throws IOException {
+    List<Object> data = data(SEED);
+    File file = DIR.newFile();
+    DataFileWriter<Object> unclosed = writer().setWriteBlockIndex(true);
+    unclosed.create(SCHEMA, file);
+    for (Object datum : data) {
+      unclosed.append(datum);
+    }
+    unclosed.flush();
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertFalse(reader.hasBlockIndex());
+    }
+
+    List<Object> more = data(SEED + 1);
+    try (DataFileWriter<Object> writer = writer().appendTo(file)) {
+      for (Object datum : more) {
+        writer.append(datum);
+      }
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(2 * COUNT, reader.getNumRecords());
+      reader.seekToRecord(COUNT + 5);
+      assertEquals(more.get(5), reader.next());
+    }
+  }
+
+  @Test
+  public void testUnclosedWriterWithLargeBlock() throws IOException {
+    List<Object> data = data(SEED);
+    data.addAll(data(SEED + 1));
+    File file = DIR.newFile();
+    DataFileWriter<Object> unclosed = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(1 << 20)
+        .setCodec(codec).setWriteBlockIndex(true);
+    unclosed.create(SCHEMA, file);
+    for (Object datum : data) {
+      unclosed.append(datum);
+    }
+    unclosed.sync();
+    // the last block, of entries, is larger than the window the locator of an
+    // index is looked for in, so the reader must not scan the file for it
+    assertTrue(file.length() > 8192);
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertFalse(reader.hasBlockIndex());
+    }
+    assertEquals(data, readAll(file));
+  }
+
+  @Test(expected = IOException.class)
+  public void testAppendThroughStream() throws IOException {
+    File file = write(data(SEED), true);
+    try (SeekableFileInput in = new SeekableFileInput(file);
+        FileOutputStream out = new FileOutputStream(file, true)) {
+      writer().appendTo(in, out);
+    }
+  }
+
+  @Test
+  public void testAppendAllFrom() throws IOException {
+    List<Object> data = data(SEED);
+    File from = write(data, true);
+    File file = DIR.newFile();
+    try (DataFileWriter<Object> writer = writer().setWriteBlockIndex(true);
+        DataFileStream<Object> in = new DataFileStream<>(new FileInputStream(from),
+            new GenericDatumReader<>())) {
+      writer.create(SCHEMA, file);
+      writer.appendAllFrom(in, false);
+    }
+    assertEquals(data, readAll(file));
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(COUNT, reader.getNumRecords());
+      reader.seekToRecord(COUNT / 2);
+      assertEquals(data.get(COUNT / 2), reader.next());
+    }
+  }
+
+  @Test
+  public void testAppendAllFromFile() throws IOException {
+    List<Object> data = data(SEED);
+    File from = write(data, true);
+    File file = write(data(SEED + 1), true);
+    try (DataFileWriter<Object> writer = writer().appendTo(file);
+        DataFileReader<Object> in = new DataFileReader<>(from, new GenericDatumReader<>())) {
+      writer.appendAllFrom(in, false);
+    }
+    List<Object> all = data(SEED + 1);
+    all.addAll(data);
+    assertEquals(all, readAll(file));
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(2 * COUNT, reader.getNumRecords());
+      for (int record = 0; record < all.size(); record += 11) {
+        reader.seekToRecord(record);
+        assertEquals(all.get(record), reader.next());
+      }
+    }
+  }
+
+  @Test
+  public void testStreamOutput() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer = writer().setWriteBlockIndex(true)) {
+      writer.create(SCHEMA, out);
+      for (Object datum : data(SEED)) {
+        writer.append(datum);
+      }
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(
+        new SeekableByteArrayInput(out.toByteArray()), new GenericDatumReader<>())) {
+      assertEquals(COUNT, reader.getNumRecords());
+    }
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestAdaptiveZstandardCodec {
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final Codec codec = CodecFactory.adaptiveZstandardCodec(3).createInstance();
+
+  private static byte[] random(int size, long seed) {
+    byte[] bytes = new byte[size];
+    new Random(seed).nextBytes(bytes);
+    return bytes;
+  }
+
+  @Test
+  public void testStoresIncompressible() throws IOException {
+    for (int size : new int[] { 0, 100, 50_000 }) {
+      byte[] data = random(size, size);
+      ByteBuffer compressed = codec.compress(ByteBuffer.wrap(data));
+      assertEquals(size + 1, compressed.remaining());
+      assertEquals(ByteBuffer.wrap(data), codec.decompress(compressed));
+    }
+  }
+
+  @Test
+  public void testCompressesCompressible() throws IOException {
+    byte[] data = TestAllCodecs.generateTestData(50_000);
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(data));
+    assertTrue(compressed.remaining() < data.length / 10);
+    assertEquals(ByteBuffer.wrap(data), codec.decompress(compressed));
+  }
+
+  @Test(expected = IOException.class)
+  public void testInvalidFlag() throws IOException {
+    codec.decompress(ByteBuffer.wrap(new byte[] { 7, 1, 2 }));
+  }
+
+  @Test
+  public void testMixedBlocks() throws IOException {
+    Schema schema = Schema.create(Schema.Type.BYTES);
+    File file = DIR.newFile();
+    try (DataFileWriter<ByteBuffer> writer = new DataFileWriter<>(new GenericDatumWriter<ByteBuffer>(schema))
+        .setCodec(CodecFactory.adaptiveZstandardCodec(3)).setSyncInterval(32_000)) {
+      writer.create(schema, file);
+      for (int i = 0; i < 20; i++) {
+        // alternate between incompressible and compressible blocks
+        byte[] data = i % 2 == 0 ? random(40_000, i) : TestAllCodecs.generateTestData(40_000);
+        writer.append(ByteBuffer.wrap(data));
+      }
+    }
+    try (DataFileReader<ByteBuffer> reader = new DataFileReader<>(file, new GenericDatumReader<>(schema))) {
+      assertEquals(DataFileConstants.ADAPTIVE_ZSTANDARD_CODEC, reader.getMetaString(DataFileConstants.CODEC));
+      for (int i = 0; i < 20; i++) {
+        byte[] data = i % 2 == 0 ? random(40_000, i) : TestAllCodecs.generateTestData(40_000);
+        assertEquals(ByteBuffer.wrap(data), reader.next());
+      }
+    }
+    assertTrue(file.length() < 11 * 40_000);
+  }
+}
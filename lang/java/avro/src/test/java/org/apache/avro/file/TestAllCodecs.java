@@ -18,16 +18,26 @@
 
 package org.apache.avro.file;
 
+import org.apache.avro.util.ByteBufferPool;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
@@ -37,7 +47,8 @@ public class TestAllCodecs {
   public static Collection<Object[]> data() {
     return Arrays.asList(new Object[][] { { "bzip2", BZip2Codec.class }, { "zstandard", ZstandardCodec.class },
         { "null", NullCodec.class }, { "xz", XZCodec.class }, { "snappy", SnappyCodec.class },
-        { "deflate", DeflateCodec.class }, });
+        { "deflate", DeflateCodec.class }, { "lz4", Lz4Codec.class },
+        { "adaptive-zstandard", AdaptiveZstandardCodec.class }, });
   }
 
   @Parameterized.Parameter(0)
@@ -111,6 +122,100 @@ public class TestAllCodecs {
     Assert.assertEquals(decompressedBuffer, inputByteBuffer);
   }
 
+  @Test
+  public void testCodecPooled() throws IOException {
+    int inputSize = 500_000;
+    byte[] input = generateTestData(inputSize);
+
+    Codec codecInstance = CodecFactory.fromString(codec).createInstance();
+    for (ByteBufferPool pool : new ByteBufferPool[] { ByteBufferPool.heap(2), ByteBufferPool.direct(2) }) {
+      ByteBuffer inputByteBuffer = ByteBuffer.wrap(input);
+      ByteBuffer compressedBuffer = codecInstance.compress(inputByteBuffer, pool);
+      assertTrue(compressedBuffer.remaining() > 0);
+
+      ByteBuffer decompressedBuffer = codecInstance.decompress(compressedBuffer, pool);
+      inputByteBuffer.rewind();
+      Assert.assertEquals(inputByteBuffer, decompressedBuffer);
+
+      if (compressedBuffer != inputByteBuffer) {
+        pool.release(compressedBuffer);
+      }
+      if (decompressedBuffer != compressedBuffer) {
+        pool.release(decompressedBuffer);
+      }
+    }
+  }
+
+  @Test
+  public void testCodecIntoBuffer() throws IOException {
+    int inputSize = 500_000;
+    byte[] input = generateTestData(inputSize);
+
+    Codec codecInstance = CodecFactory.fromString(codec).createInstance();
+    for (boolean directIn : new boolean[] { false, true }) {
+      for (boolean directOut : new boolean[] { false, true }) {
+        ByteBuffer in = allocate(inputSize, directIn);
+        in.put(input);
+        ((Buffer) in).flip();
+
+        ByteBuffer compressed = allocate(inputSize + 1000, directOut);
+        ((Buffer) compressed).position(7);
+        int compressedSize = codecInstance.compress(in, compressed);
+        assertEquals(inputSize, in.position());
+        assertEquals(7 + compressedSize, compressed.position());
+        ((Buffer) compressed).flip();
+        ((Buffer) compressed).position(7);
+
+        // decompress into buffers that are exactly large enough, then too small
+        ByteBuffer decompressed = allocate(inputSize, !directIn);
+        assertEquals(inputSize, codecInstance.decompress(compressed.duplicate(), decompressed));
+        assertFalse(decompressed.hasRemaining());
+        ((Buffer) decompressed).flip();
+        ((Buffer) in).rewind();
+        Assert.assertEquals(in, decompressed);
+
+        ByteBuffer tooSmall = allocate(inputSize - 1, directOut);
+        try {
+          codecInstance.decompress(compressed, tooSmall);
+          Assert.fail("Expected BufferOverflowException");
+        } catch (BufferOverflowException e) {
+          assertEquals(7, compressed.position());
+          assertEquals(0, tooSmall.position());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCodecConcurrent() throws Exception {
+    // codecs share pooled contexts, which must not be used by two threads
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int seed = t;
+        results.add(executor.submit(() -> {
+          Codec codecInstance = CodecFactory.fromString(codec).createInstance();
+          for (int i = 0; i < 20; i++) {
+            byte[] input = generateTestData(10_000 + 100 * seed + i);
+            ByteBuffer compressed = codecInstance.compress(ByteBuffer.wrap(input));
+            Assert.assertEquals(ByteBuffer.wrap(input), codecInstance.decompress(compressed));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static ByteBuffer allocate(int size, boolean direct) {
+    return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+  }
+
   // Generate some test data that will compress easily
   public static byte[] generateTestData(int inputSize) {
     byte[] arr = new byte[inputSize];
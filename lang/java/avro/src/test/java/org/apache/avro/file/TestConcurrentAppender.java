@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestConcurrentAppender {
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final CodecFactory codec;
+
+  public TestConcurrentAppender(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(1) });
+    return r;
+  }
+
+  private static final int THREADS = 4;
+  private static final int COUNT = 2000;
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+          + "{\"name\":\"thread\", \"type\":\"int\"}," + "{\"name\":\"seq\", \"type\":\"long\"}]}");
+
+  private static GenericRecord record(int thread, long seq) {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("thread", thread);
+    record.put("seq", seq);
+    return record;
+  }
+
+  @Test
+  public void testAppend() throws Exception {
+    File file = DIR.newFile();
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())
+        .setSyncInterval(500).setCodec(codec).setWriteBlockIndex(true);
+    writer.create(SCHEMA, file);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try (ConcurrentAppender<GenericRecord> appender = new ConcurrentAppender<>(writer, GenericDatumWriter::new)) {
+      List<Future<?>> producers = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final int thread = t;
+        producers.add(executor.submit(() -> {
+          for (long seq = 0; seq < COUNT; seq++) {
+            appender.append(record(thread, seq));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> producer : producers) {
+        producer.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    long[] next = new long[THREADS];
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(THREADS * COUNT, reader.getNumRecords());
+      for (GenericRecord record : reader) {
+        int thread = (Integer) record.get("thread");
+        // the entries of each thread are in order
+        assertEquals(next[thread]++, (long) (Long) record.get("seq"));
+      }
+    }
+    for (int t = 0; t < THREADS; t++) {
+      assertEquals(COUNT, next[t]);
+    }
+  }
+
+  @Test
+  public void testShortLivedThreads() throws Exception {
+    File file = DIR.newFile();
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())
+        .setSyncInterval(500).setCodec(codec);
+    writer.create(SCHEMA, file);
+    int threads = 200;
+    try (ConcurrentAppender<GenericRecord> appender = new ConcurrentAppender<>(writer, GenericDatumWriter::new)) {
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        Thread appending = new Thread(() -> {
+          try {
+            for (long seq = 0; seq < 10; seq++) {
+              appender.append(record(thread, seq));
+            }
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+        appending.start();
+        appending.join();
+      }
+      // the producers of ended threads are dropped as new threads append
+      assertTrue(appender.numProducers() <= 32);
+      appender.flush();
+      assertEquals(0, appender.numProducers());
+    }
+
+    long[] next = new long[threads];
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (GenericRecord record : reader) {
+        int thread = (Integer) record.get("thread");
+        assertEquals(next[thread]++, (long) (Long) record.get("seq"));
+      }
+    }
+    for (int t = 0; t < threads; t++) {
+      assertEquals(10, next[t]);
+    }
+  }
+
+  @Test
+  public void testFlush() throws IOException {
+    File file = DIR.newFile();
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())
+        .setCodec(codec);
+    writer.create(SCHEMA, file);
+    try (ConcurrentAppender<GenericRecord> appender = new ConcurrentAppender<>(writer, GenericDatumWriter::new)) {
+      appender.append(record(0, 0));
+      appender.append(record(0, 1));
+      appender.flush();
+      try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+        assertEquals(record(0, 0), reader.next());
+        assertEquals(record(0, 1), reader.next());
+      }
+    }
+  }
+}
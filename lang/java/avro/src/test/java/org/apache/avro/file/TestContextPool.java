@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestContextPool {
+
+  @Test
+  public void testReuse() {
+    AtomicInteger created = new AtomicInteger();
+    ContextPool<Object> pool = new ContextPool<>(() -> created.incrementAndGet(), c -> {
+    }, 2);
+    Object first = pool.acquire();
+    Object second = pool.acquire();
+    assertNotSame(first, second);
+    pool.release(first);
+    assertSame(first, pool.acquire());
+    assertEquals(2, created.get());
+  }
+
+  @Test
+  public void testBounded() {
+    List<Object> disposed = new ArrayList<>();
+    ContextPool<Object> pool = new ContextPool<>(Object::new, disposed::add, 2);
+    Object[] contexts = { pool.acquire(), pool.acquire(), pool.acquire() };
+    for (Object context : contexts) {
+      pool.release(context);
+    }
+    assertEquals(1, disposed.size());
+    assertSame(contexts[2], disposed.get(0));
+  }
+}
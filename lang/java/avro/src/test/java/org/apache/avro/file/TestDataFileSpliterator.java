@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDataFileSpliterator {
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+          + "{\"name\":\"stringField\", \"type\":\"string\"}," + "{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  private List<Object> data() {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 2000, 17).forEach(data::add);
+    return data;
+  }
+
+  private File write(List<Object> data) throws IOException {
+    File file = DIR.newFile();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(1000)) {
+      writer.create(SCHEMA, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  // splits the way a parallel stream does, until no range splits further
+  private static int countRanges(Spliterator<?> spliterator) {
+    Spliterator<?> prefix = spliterator.trySplit();
+    return prefix == null ? 1 : countRanges(prefix) + countRanges(spliterator);
+  }
+
+  @Test
+  public void testSplits() throws IOException {
+    File file = write(data());
+    try (SeekableFileInput in = new SeekableFileInput(file);
+        DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (int splits : new int[] { 1, 2, 3, 5, 7, 16 }) {
+        assertEquals(splits,
+            countRanges(new DataFileSpliterator<>(in, reader.getHeader(), GenericDatumReader::new, splits)));
+      }
+    }
+  }
+
+  @Test
+  public void testScan() throws IOException {
+    List<Object> data = data();
+    File file = write(data);
+    // a file is read with positional reads, any other input under its lock
+    try (SeekableFileInput in = new SeekableFileInput(file)) {
+      assertEquals(data, DataFileReader.parallelScan(in, GenericDatumReader::new, 7).collect(Collectors.toList()));
+    }
+    try (SeekableByteArrayInput in = new SeekableByteArrayInput(Files.readAllBytes(file.toPath()))) {
+      assertEquals(data, DataFileReader.parallelScan(in, GenericDatumReader::new, 7).collect(Collectors.toList()));
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestMappedSeekableInput {
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final CodecFactory codec;
+
+  public TestMappedSeekableInput(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(1) });
+    r.add(new Object[] { CodecFactory.snappyCodec() });
+    r.add(new Object[] { CodecFactory.xzCodec(1) });
+    r.add(new Object[] { CodecFactory.bzip2Codec() });
+    r.add(new Object[] { CodecFactory.zstandardCodec(3) });
+    return r;
+  }
+
+  private static final int COUNT = 500;
+  private static final long SEED = System.currentTimeMillis();
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+          + "{\"name\":\"stringField\", \"type\":\"string\"}," + "{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  private static List<Object> data() {
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+      data.add(datum);
+    }
+    return data;
+  }
+
+  private File write(List<Object> data) throws IOException {
+    File file = DIR.newFile();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setSyncInterval(1000)
+        .setCodec(codec)) {
+      writer.create(SCHEMA, file);
+      for (Object datum : data) {
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  // map in small chunks, so that some blocks span chunks
+  private static MappedSeekableInput map(File file) throws IOException {
+    return new MappedSeekableInput(FileChannel.open(file.toPath(), StandardOpenOption.READ), 4096, 512);
+  }
+
+  private static List<Object> readAll(DataFileReader<Object> reader) {
+    List<Object> read = new ArrayList<>();
+    for (Object datum : reader) {
+      read.add(datum);
+    }
+    return read;
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    List<Object> data = data();
+    File file = write(data);
+    try (DataFileReader<Object> reader = new DataFileReader<>(new MappedSeekableInput(file),
+        new GenericDatumReader<>())) {
+      assertEquals(data, readAll(reader));
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(map(file), new GenericDatumReader<>())) {
+      assertEquals(data, readAll(reader));
+    }
+  }
+
+  @Test
+  public void testNullCodecReadInPlace() throws IOException {
+    Assume.assumeTrue(codec.createInstance() instanceof NullCodec);
+    List<Object> data = data();
+    File file = write(data);
+    try (DataFileReader<Object> reader = new DataFileReader<>(map(file), new GenericDatumReader<>())) {
+      List<Object> read = new ArrayList<>();
+      while (reader.hasNext()) {
+        read.add(reader.next());
+        // blocks are mapped, so are decoded from the mapping, not as a stream
+        assertEquals("ByteBufferDecoder", reader.datumIn.getClass().getSimpleName());
+      }
+      assertEquals(data, read);
+    }
+  }
+
+  @Test
+  public void testReadAhead() throws IOException {
+    List<Object> data = data();
+    File file = write(data);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try (DataFileReader<Object> reader = new DataFileReader<>(map(file), new GenericDatumReader<>())) {
+      reader.setDecompressionExecutor(executor, 3);
+      assertEquals(data, readAll(reader));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSync() throws IOException {
+    File file = write(data());
+    long length = file.length();
+    try (DataFileReader<Object> mapped = new DataFileReader<>(map(file), new GenericDatumReader<>());
+        DataFileReader<Object> read = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (long position = 0; position < length; position += length / 7) {
+        mapped.sync(position);
+        read.sync(position);
+        assertEquals(read.previousSync(), mapped.previousSync());
+        assertEquals(read.hasNext(), mapped.hasNext());
+        if (read.hasNext()) {
+          assertEquals(read.next(), mapped.next());
+          assertEquals(read.previousSync(), mapped.previousSync());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testAppendAllFrom() throws IOException {
+    List<Object> data = data();
+    File from = write(data);
+    File file = DIR.newFile();
+    try (DataFileWriter<Object> writer = new DataFileWriter<>(new GenericDatumWriter<>()).setCodec(codec);
+        DataFileReader<Object> in = new DataFileReader<>(map(from), new GenericDatumReader<>())) {
+      writer.create(SCHEMA, file);
+      writer.appendAllFrom(in, false);
+    }
+    try (DataFileReader<Object> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals(data, readAll(reader));
+    }
+  }
+
+  @Test
+  public void testGetBuffer() throws IOException {
+    File file = write(data());
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    try (MappedSeekableInput in = map(file)) {
+      assertEquals(bytes.length, in.length());
+      ByteBuffer slice = in.getBuffer(100, 200);
+      assertTrue(slice.isDirect());
+      assertTrue(slice.isReadOnly());
+      assertArrayEquals(Arrays.copyOfRange(bytes, 100, 300), toArray(slice));
+      // spans a chunk boundary past the overlap
+      ByteBuffer copy = in.getBuffer(4000, 1000);
+      assertFalse(copy.isDirect());
+      assertArrayEquals(Arrays.copyOfRange(bytes, 4000, 5000), toArray(copy));
+      assertEquals(0, in.tell());
+
+      in.seek(bytes.length - 10);
+      byte[] tail = new byte[20];
+      assertEquals(10, in.read(tail, 0, tail.length));
+      assertEquals(-1, in.read(tail, 0, tail.length));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testGetBufferPastEnd() throws IOException {
+    File file = write(data());
+    try (MappedSeekableInput in = map(file)) {
+      in.getBuffer(in.length() - 1, 2);
+    }
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+}
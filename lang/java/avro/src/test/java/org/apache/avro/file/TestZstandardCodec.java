@@ -17,14 +17,72 @@
  */
 package org.apache.avro.file;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class TestZstandardCodec {
 
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Event\", \"fields\": ["
+          + "{\"name\":\"host\", \"type\":\"string\"}," + "{\"name\":\"path\", \"type\":\"string\"},"
+          + "{\"name\":\"status\", \"type\":\"int\"}]}");
+
+  private static GenericRecord event(int i) {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("host", "host-" + (i % 7) + ".example.com");
+    record.put("path", "/api/v1/resources/" + (i % 13) + "/items?page=" + i);
+    record.put("status", i % 5 == 0 ? 404 : 200);
+    return record;
+  }
+
+  // writes small blocks of events
+  private File write(CodecFactory codec, int count) throws IOException {
+    File file = DIR.newFile();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())
+        .setCodec(codec).setSyncInterval(256)) {
+      writer.create(SCHEMA, file);
+      for (int i = 0; i < count; i++) {
+        writer.append(event(i));
+      }
+    }
+    return file;
+  }
+
+  private static byte[] train(File file) throws IOException {
+    List<ByteBuffer> samples = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      while (reader.hasNext()) {
+        ByteBuffer block = reader.nextBlock();
+        ByteBuffer copy = ByteBuffer.allocate(block.remaining());
+        copy.put(block.duplicate()).flip();
+        samples.add(copy);
+      }
+    }
+    return ZstandardCodec.trainDictionary(samples, 4096);
+  }
+
   @Test
   public void testZstandardToStringAndName() throws IOException {
     Codec codec = CodecFactory.zstandardCodec(3).createInstance();
@@ -32,4 +90,73 @@ public class TestZstandardCodec {
     assertTrue(codec.getName().equals("zstandard"));
     assertTrue(codec.toString().equals("zstandard[3]"));
   }
+
+  @Test
+  public void testDictionary() throws IOException {
+    byte[] dictionary = train(write(CodecFactory.nullCodec(), 5000));
+    assertTrue(dictionary.length > 0 && dictionary.length <= 4096);
+
+    File plain = write(CodecFactory.zstandardCodec(1), 2000);
+    File file = write(CodecFactory.zstandardCodec(1, dictionary), 2000);
+    assertTrue(file.length() < plain.length());
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      assertEquals("zstandard-dictionary", reader.getMetaString(DataFileConstants.CODEC));
+      assertArrayEquals(dictionary, reader.getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
+      assertEquals("1", reader.getMetaString(DataFileConstants.ZSTANDARD_LEVEL));
+      for (int i = 0; i < 2000; i++) {
+        assertEquals(event(i), reader.next());
+      }
+    }
+
+    // appending keeps using the dictionary, at the same level
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())
+        .appendTo(file)) {
+      assertTrue(writer.getCodecFactory().createInstance().toString().startsWith("zstandard-dictionary[1, "));
+      writer.append(event(2000));
+    }
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+      int count = 0;
+      for (GenericRecord record : reader) {
+        assertEquals(event(count++), record);
+      }
+      assertEquals(2001, count);
+    }
+  }
+
+  @Test
+  public void testDictionaryCodec() throws IOException {
+    byte[] dictionary = train(write(CodecFactory.nullCodec(), 5000));
+    Codec codec = CodecFactory.zstandardCodec(3, dictionary).createInstance();
+    assertEquals(codec, CodecFactory.zstandardCodec(5, dictionary).createInstance());
+    assertNotEquals(codec, CodecFactory.zstandardCodec(3).createInstance());
+    assertEquals("zstandard-dictionary", codec.getName());
+    assertTrue(codec.toString().startsWith("zstandard-dictionary[3, dictionary "));
+
+    byte[] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) ("/api/v1/resources/".charAt(i % 18));
+    }
+    ByteBuffer compressed = codec.compress(ByteBuffer.wrap(data));
+    assertEquals(ByteBuffer.wrap(data), codec.decompress(compressed));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(compressed.remaining());
+    direct.put(compressed.duplicate()).flip();
+    ByteBuffer out = ByteBuffer.allocateDirect(data.length);
+    assertEquals(data.length, codec.decompress(direct, out));
+    out.flip();
+    assertEquals(ByteBuffer.wrap(data), out);
+
+    // room past the limit of the buffer is left alone
+    ByteBuffer slack = ByteBuffer.allocate(2 * data.length);
+    slack.limit(data.length - 1);
+    try {
+      codec.decompress(compressed, slack);
+      fail("Expected BufferOverflowException");
+    } catch (BufferOverflowException e) {
+      assertEquals(0, slack.position());
+    }
+    for (int i = data.length - 1; i < slack.capacity(); i++) {
+      assertEquals(0, slack.array()[i]);
+    }
+  }
 }
@@ -238,6 +238,22 @@ public class TestGenericData {
     }
   }
 
+  @Test
+  public void testArrayEnsureCapacity() {
+    Schema schema = Schema.createArray(Schema.create(Schema.Type.INT));
+    GenericData.Array<Integer> array = new GenericData.Array<>(0, schema);
+    array.ensureCapacity(0);
+    array.add(1);
+    array.ensureCapacity(100);
+    assertEquals(1, array.size());
+    for (int i = 2; i <= 100; ++i)
+      array.add(i);
+    array.ensureCapacity(10);
+    assertEquals(100, array.size());
+    assertEquals(Integer.valueOf(1), array.get(0));
+    assertEquals(Integer.valueOf(100), array.get(99));
+  }
+
   @Test
   public void testArrayRemove() {
     Schema schema = Schema.createArray(Schema.create(Schema.Type.INT));
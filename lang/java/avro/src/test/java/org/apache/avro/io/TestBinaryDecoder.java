@@ -18,10 +18,13 @@
 package org.apache.avro.io;
 
 import java.io.*;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -212,6 +215,67 @@ public class TestBinaryDecoder {
     }
   }
 
+  @Test
+  public void testDecodeFromByteBuffers() throws IOException {
+    GenericDatumReader<Object> reader = new GenericDatumReader<>();
+    reader.setSchema(schema);
+
+    ByteBuffer heap = ByteBuffer.allocate(data.length + 30);
+    ((Buffer) heap.position(15)).mark();
+    heap.put(data).limit(15 + data.length).reset();
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    ((Buffer) direct.put(data)).flip();
+    // a prime chunk size, so that values span buffers at different points
+    List<ByteBuffer> chain = new ArrayList<>();
+    for (int i = 0; i < data.length; i += 7) {
+      ByteBuffer chunk = ByteBuffer.allocateDirect(Math.min(7, data.length - i));
+      ((Buffer) chunk.put(data, i, chunk.capacity())).flip();
+      chain.add(chunk);
+    }
+
+    BinaryDecoder fromHeap = factory.binaryDecoder(heap, null);
+    BinaryDecoder fromDirect = factory.binaryDecoder(direct, null);
+    BinaryDecoder fromReadOnly = factory.binaryDecoder(heap.asReadOnlyBuffer(), null);
+    BinaryDecoder fromChain = factory.binaryDecoder(chain, null);
+    BinaryDecoder reused = factory.binaryDecoder(Collections.singletonList(ByteBuffer.allocateDirect(1)), null);
+    reused = factory.binaryDecoder(direct, reused);
+
+    for (Object datum : records) {
+      Assert.assertEquals(datum, reader.read(null, fromHeap));
+      Assert.assertEquals(datum, reader.read(null, fromDirect));
+      Assert.assertEquals(datum, reader.read(null, fromReadOnly));
+      Assert.assertEquals(datum, reader.read(null, fromChain));
+      Assert.assertEquals(datum, reader.read(null, reused));
+    }
+    Assert.assertTrue(fromDirect.isEnd());
+    Assert.assertTrue(fromChain.isEnd());
+    // the buffers are not changed
+    Assert.assertEquals(15, heap.position());
+    Assert.assertEquals(0, direct.position());
+    Assert.assertEquals(7, chain.get(0).remaining());
+  }
+
+  @Test
+  public void testByteBufferInputStream() throws IOException {
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    ((Buffer) direct.put(data)).flip();
+    BinaryDecoder d = factory.binaryDecoder(direct, null);
+    d.skipFixed(10);
+    InputStream test = d.inputStream();
+    InputStream check = new ByteArrayInputStream(data);
+    check.skip(10);
+    validateInputStreamReads(test, check);
+    Assert.assertTrue(d.isEnd());
+  }
+
+  @Test(expected = EOFException.class)
+  public void testByteBufferEOF() throws IOException {
+    List<ByteBuffer> chain = new ArrayList<>();
+    chain.add(ByteBuffer.allocateDirect(0));
+    chain.add(ByteBuffer.allocateDirect(0));
+    factory.binaryDecoder(chain, null).readInt();
+  }
+
   @Test
   public void testInputStreamProxy() throws IOException {
     Decoder d = newDecoder(data);
@@ -338,6 +402,88 @@ public class TestBinaryDecoder {
     Assert.assertEquals("Invalid long encoding", message);
   }
 
+  @Test
+  public void testBulkVarintWidths() throws IOException {
+    // runs of one-byte values, which are decoded a word at a time, then values
+    // of every varint width, each with and without its sign
+    int[] ints = new int[100];
+    long[] longs = new long[200];
+    for (int i = 0; i < 20; i++) {
+      ints[i] = i - 10;
+      longs[i] = i - 10;
+    }
+    for (int i = 20; i < ints.length; i++) {
+      int v = 1 << ((i - 20) % 32);
+      ints[i] = i % 2 == 0 ? v : -v;
+    }
+    for (int i = 20; i < longs.length; i++) {
+      long v = 1L << ((i - 20) % 64);
+      longs[i] = i % 2 == 0 ? v : ~v;
+    }
+    ints[ints.length - 1] = Integer.MIN_VALUE;
+    longs[longs.length - 1] = Long.MIN_VALUE;
+    longs[longs.length - 2] = Long.MAX_VALUE;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    BinaryEncoder e = e_factory.binaryEncoder(baos, null);
+    e.writeInts(ints, 0, ints.length);
+    e.writeLongs(longs, 0, longs.length);
+    e.flush();
+    byte[] bytes = baos.toByteArray();
+
+    List<Decoder> decoders = new ArrayList<>();
+    decoders.add(newDecoder(bytes));
+    decoders.add(newDecoder(new ByteArrayInputStream(bytes)));
+    decoders.add(factory.binaryDecoder(direct(bytes), null));
+    for (Decoder d : decoders) {
+      int[] readInts = new int[ints.length];
+      d.readInts(readInts, 0, readInts.length);
+      Assert.assertArrayEquals(ints, readInts);
+      long[] readLongs = new long[longs.length];
+      d.readLongs(readLongs, 0, readLongs.length);
+      Assert.assertArrayEquals(longs, readLongs);
+    }
+  }
+
+  private static ByteBuffer direct(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+    ((Buffer) buffer.put(bytes)).flip();
+    return buffer;
+  }
+
+  @Test
+  public void testBadBulkIntEncoding() throws IOException {
+    // long enough that the ints are decoded a word at a time
+    byte[] badint = new byte[32];
+    Arrays.fill(badint, (byte) 0xff);
+    for (Decoder bd : Arrays.asList(factory.binaryDecoder(badint, null),
+        factory.binaryDecoder(direct(badint), null))) {
+      String message = "";
+      try {
+        bd.readInts(new int[4], 0, 4);
+      } catch (IOException ioe) {
+        message = ioe.getMessage();
+      }
+      Assert.assertEquals("Invalid int encoding", message);
+    }
+  }
+
+  @Test
+  public void testBadBulkLongEncoding() throws IOException {
+    byte[] badlong = new byte[32];
+    Arrays.fill(badlong, (byte) 0xff);
+    for (Decoder bd : Arrays.asList(factory.binaryDecoder(badlong, null),
+        factory.binaryDecoder(direct(badlong), null))) {
+      String message = "";
+      try {
+        bd.readLongs(new long[2], 0, 2);
+      } catch (IOException ioe) {
+        message = ioe.getMessage();
+      }
+      Assert.assertEquals("Invalid long encoding", message);
+    }
+  }
+
   @Test
   public void testNegativeLengthEncoding() throws IOException {
     byte[] bad = new byte[] { (byte) 1 };
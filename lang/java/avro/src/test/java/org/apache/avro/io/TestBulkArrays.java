@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Checks that the bulk array writes of each encoder produce the same bytes as
+ * writing the items one at a time, and that bulk reads of the decoders read
+ * them back.
+ */
+@RunWith(Parameterized.class)
+public class TestBulkArrays {
+
+  private static final Schema SCHEMA = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Arrays\", \"fields\": ["
+          + "{\"name\":\"ints\", \"type\":{\"type\":\"array\", \"items\":\"int\"}},"
+          + "{\"name\":\"longs\", \"type\":{\"type\":\"array\", \"items\":\"long\"}},"
+          + "{\"name\":\"floats\", \"type\":{\"type\":\"array\", \"items\":\"float\"}},"
+          + "{\"name\":\"doubles\", \"type\":{\"type\":\"array\", \"items\":\"double\"}}]}");
+
+  // each array promoted to the type of the next
+  private static final Schema PROMOTED = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Arrays\", \"fields\": ["
+          + "{\"name\":\"ints\", \"type\":{\"type\":\"array\", \"items\":\"long\"}},"
+          + "{\"name\":\"longs\", \"type\":{\"type\":\"array\", \"items\":\"float\"}},"
+          + "{\"name\":\"floats\", \"type\":{\"type\":\"array\", \"items\":\"double\"}},"
+          + "{\"name\":\"doubles\", \"type\":{\"type\":\"array\", \"items\":\"double\"}}]}");
+
+  private final String kind;
+  private final int length;
+
+  public TestBulkArrays(String kind, int length) {
+    this.kind = kind;
+    this.length = length;
+  }
+
+  @Parameters(name = "{0} {1}")
+  public static List<Object[]> data() {
+    List<Object[]> r = new ArrayList<>();
+    for (String kind : new String[] { "direct", "buffered", "blocking", "validating", "heap", "off-heap" }) {
+      for (int length : new int[] { 0, 1, 15, 16, 17, 1000 }) {
+        r.add(new Object[] { kind, length });
+      }
+    }
+    return r;
+  }
+
+  private Encoder encoder(ByteArrayOutputStream out) throws IOException {
+    switch (kind) {
+    case "direct":
+      return EncoderFactory.get().directBinaryEncoder(out, null);
+    case "buffered":
+      return new EncoderFactory().configureBufferSize(64).binaryEncoder(out, null);
+    case "blocking":
+      // small blocks, so that arrays are split and overflow
+      return new EncoderFactory().configureBlockSize(64).blockingBinaryEncoder(out, null);
+    case "heap":
+      // small buffers, so that they grow part way through arrays
+      return EncoderFactory.get().byteBufferEncoder(ByteBuffer.allocate(16), null);
+    case "off-heap":
+      return EncoderFactory.get().byteBufferEncoder(ByteBuffer.allocateDirect(16), null);
+    default:
+      return EncoderFactory.get().validatingEncoder(SCHEMA, EncoderFactory.get().binaryEncoder(out, null));
+    }
+  }
+
+  private int[] ints;
+  private long[] longs;
+  private float[] floats;
+  private double[] doubles;
+
+  private void randomArrays() {
+    Random random = new Random(length);
+    ints = new int[length];
+    longs = new long[length];
+    floats = new float[length];
+    doubles = new double[length];
+    for (int i = 0; i < length; i++) {
+      // mix small and large values, so that varints vary in size
+      ints[i] = i % 3 == 0 ? random.nextInt() : random.nextInt(100);
+      longs[i] = i % 3 == 0 ? random.nextLong() : random.nextInt(100);
+      floats[i] = random.nextFloat();
+      doubles[i] = random.nextDouble();
+    }
+  }
+
+  private byte[] write(boolean bulk) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = encoder(out);
+    e.writeArrayStart();
+    e.setItemCount(length);
+    if (bulk) {
+      e.writeInts(ints, 0, length);
+    } else {
+      for (int i : ints) {
+        e.startItem();
+        e.writeInt(i);
+      }
+    }
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(length);
+    if (bulk) {
+      e.writeLongs(longs, 0, length);
+    } else {
+      for (long l : longs) {
+        e.startItem();
+        e.writeLong(l);
+      }
+    }
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(length);
+    if (bulk) {
+      e.writeFloats(floats, 0, length);
+    } else {
+      for (float f : floats) {
+        e.startItem();
+        e.writeFloat(f);
+      }
+    }
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(length);
+    if (bulk) {
+      e.writeDoubles(doubles, 0, length);
+    } else {
+      for (double d : doubles) {
+        e.startItem();
+        e.writeDouble(d);
+      }
+    }
+    e.writeArrayEnd();
+    e.flush();
+    return toByteArray(e, out);
+  }
+
+  private static byte[] toByteArray(Encoder e, ByteArrayOutputStream out) {
+    if (e instanceof ByteBufferEncoder) {
+      ByteBuffer buffer = ((ByteBufferEncoder) e).getBuffer();
+      ((Buffer) buffer).flip();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return bytes;
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testWrite() throws IOException {
+    randomArrays();
+    byte[] bulk = write(true);
+    assertArrayEquals(write(false), bulk);
+
+    Decoder in = DecoderFactory.get().binaryDecoder(bulk, null);
+    int i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(ints[i++], in.readInt());
+      }
+    }
+    assertEquals(length, i);
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(longs[i++], in.readLong());
+      }
+    }
+    assertEquals(length, i);
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(floats[i++], in.readFloat(), 0);
+      }
+    }
+    assertEquals(length, i);
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(doubles[i++], in.readDouble(), 0);
+      }
+    }
+    assertEquals(length, i);
+  }
+
+  @Test
+  public void testWriteRange() throws IOException {
+    randomArrays();
+    int off = length / 3;
+    int len = length - 2 * off;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder e = encoder(out);
+    e.writeArrayStart();
+    e.setItemCount(len);
+    e.writeInts(ints, off, len);
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(len);
+    e.writeLongs(longs, off, len);
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(len);
+    e.writeFloats(floats, off, len);
+    e.writeArrayEnd();
+    e.writeArrayStart();
+    e.setItemCount(len);
+    e.writeDoubles(doubles, off, len);
+    e.writeArrayEnd();
+    e.flush();
+
+    Decoder in = DecoderFactory.get().binaryDecoder(toByteArray(e, out), null);
+    int i = off;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(ints[i++], in.readInt());
+      }
+    }
+    assertEquals(off + len, i);
+    i = off;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(longs[i++], in.readLong());
+      }
+    }
+    assertEquals(off + len, i);
+    i = off;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(floats[i++], in.readFloat(), 0);
+      }
+    }
+    assertEquals(off + len, i);
+    i = off;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      for (long j = 0; j < n; j++) {
+        assertEquals(doubles[i++], in.readDouble(), 0);
+      }
+    }
+    assertEquals(off + len, i);
+  }
+
+  @Test
+  public void testRead() throws IOException {
+    randomArrays();
+    byte[] bytes = write(true);
+    checkRead(DecoderFactory.get().binaryDecoder(bytes, null));
+    // a small buffer, so that runs are split across refills
+    checkRead(new DecoderFactory().configureDecoderBufferSize(32).binaryDecoder(new ByteArrayInputStream(bytes),
+        null));
+    checkRead(DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(bytes), null));
+    checkRead(
+        DecoderFactory.get().resolvingDecoder(SCHEMA, SCHEMA, DecoderFactory.get().binaryDecoder(bytes, null)));
+    // direct buffers, with runs split across them
+    List<ByteBuffer> chain = new ArrayList<>();
+    for (int i = 0; i < bytes.length; i += 101) {
+      ByteBuffer chunk = ByteBuffer.allocateDirect(Math.min(101, bytes.length - i));
+      ((Buffer) chunk.put(bytes, i, chunk.capacity())).flip();
+      chain.add(chunk);
+    }
+    checkRead(DecoderFactory.get().binaryDecoder(chain, null));
+  }
+
+  private void checkRead(Decoder in) throws IOException {
+    int[] readInts = new int[length];
+    int i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readInts(readInts, i, (int) n);
+      i += n;
+    }
+    assertArrayEquals(ints, readInts);
+    long[] readLongs = new long[length];
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readLongs(readLongs, i, (int) n);
+      i += n;
+    }
+    assertArrayEquals(longs, readLongs);
+    float[] readFloats = new float[length];
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readFloats(readFloats, i, (int) n);
+      i += n;
+    }
+    assertArrayEquals(floats, readFloats, 0);
+    double[] readDoubles = new double[length];
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readDoubles(readDoubles, i, (int) n);
+      i += n;
+    }
+    assertArrayEquals(doubles, readDoubles, 0);
+  }
+
+  @Test
+  public void testReadPromoted() throws IOException {
+    randomArrays();
+    Decoder in = DecoderFactory.get().resolvingDecoder(SCHEMA, PROMOTED,
+        DecoderFactory.get().binaryDecoder(write(true), null));
+    long[] readLongs = new long[length];
+    int i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readLongs(readLongs, i, (int) n);
+      i += n;
+    }
+    float[] readFloats = new float[length];
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readFloats(readFloats, i, (int) n);
+      i += n;
+    }
+    double[] readDoubles = new double[length];
+    i = 0;
+    for (long n = in.readArrayStart(); n != 0; n = in.arrayNext()) {
+      in.readDoubles(readDoubles, i, (int) n);
+      i += n;
+    }
+    for (int j = 0; j < length; j++) {
+      assertEquals(ints[j], readLongs[j]);
+      assertEquals((float) longs[j], readFloats[j], 0);
+      assertEquals(floats[j], readDoubles[j], 0);
+    }
+  }
+
+  @Test
+  public void testFastReader() throws IOException {
+    randomArrays();
+    byte[] bytes = write(true);
+    GenericData data = new GenericData().setFastReaderEnabled(true);
+    GenericRecord slow = new GenericDatumReader<GenericRecord>(SCHEMA, PROMOTED)
+        .read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    GenericRecord fast = new GenericDatumReader<GenericRecord>(SCHEMA, PROMOTED, data).read(null,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+    assertEquals(slow, fast);
+    slow = new GenericDatumReader<GenericRecord>(SCHEMA).read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+    fast = new GenericDatumReader<GenericRecord>(SCHEMA, SCHEMA, data).read(null,
+        DecoderFactory.get().binaryDecoder(bytes, null));
+    assertEquals(slow, fast);
+    // read again, reusing the arrays
+    assertEquals(slow, new GenericDatumReader<GenericRecord>(SCHEMA, SCHEMA, data).read(fast,
+        DecoderFactory.get().binaryDecoder(bytes, null)));
+  }
+}
@@ -27,6 +27,7 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Type;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -35,7 +36,9 @@ import org.junit.rules.TemporaryFolder;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
@@ -43,6 +46,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.equalTo;
@@ -256,6 +261,87 @@ public class TestEncoders {
     testWithBuffer(buffer);
   }
 
+  private static final Schema RECORD = new Schema.Parser()
+      .parse("{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+          + "{\"name\":\"stringField\", \"type\":\"string\"}," + "{\"name\":\"bytesField\", \"type\":\"bytes\"},"
+          + "{\"name\":\"floatField\", \"type\":\"float\"}," + "{\"name\":\"doubleField\", \"type\":\"double\"},"
+          + "{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  private static List<Object> records() {
+    List<Object> records = new ArrayList<>();
+    for (Object datum : new RandomData(RECORD, 200, 42)) {
+      records.add(datum);
+    }
+    return records;
+  }
+
+  @Test
+  public void testByteBufferEncoderGrows() throws IOException {
+    List<Object> records = records();
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(RECORD);
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(RECORD);
+    for (ByteBuffer initial : asList(ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16),
+        ByteBuffer.allocateDirect(16).order(ByteOrder.LITTLE_ENDIAN))) {
+      // bytes before the position are kept as the buffer grows
+      initial.put((byte) 7);
+      ByteBufferEncoder encoder = factory.byteBufferEncoder(initial, null);
+      for (Object datum : records) {
+        writer.write(datum, encoder);
+      }
+      ByteBuffer written = encoder.getBuffer();
+      Assert.assertEquals(initial.isDirect(), written.isDirect());
+      ((Buffer) written).flip();
+      Assert.assertEquals(7, written.get());
+      Decoder decoder = DecoderFactory.get().binaryDecoder(written, null);
+      for (Object datum : records) {
+        Assert.assertEquals(datum, reader.read(null, decoder));
+      }
+    }
+  }
+
+  @Test
+  public void testByteBufferEncoderProvider() throws IOException {
+    List<Object> records = records();
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(RECORD);
+    // hand off each full buffer, and continue in a new one
+    List<ByteBuffer> full = new ArrayList<>();
+    ByteBufferEncoder encoder = factory.byteBufferEncoder(ByteBuffer.allocateDirect(64), (buffer, required) -> {
+      ((Buffer) buffer).flip();
+      full.add(buffer);
+      return ByteBuffer.allocateDirect(Math.max(64, required));
+    }, null);
+    for (Object datum : records) {
+      writer.write(datum, encoder);
+    }
+    ((Buffer) encoder.getBuffer()).flip();
+    full.add(encoder.getBuffer());
+    Assert.assertTrue(full.size() > 1);
+
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(RECORD);
+    Decoder decoder = DecoderFactory.get().binaryDecoder(full, null);
+    for (Object datum : records) {
+      Assert.assertEquals(datum, reader.read(null, decoder));
+    }
+  }
+
+  @Test
+  public void testByteBufferEncoderMatches() throws IOException {
+    List<Object> records = records();
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(RECORD);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = factory.binaryEncoder(out, null);
+    ByteBufferEncoder bufferEncoder = factory.byteBufferEncoder(ByteBuffer.allocateDirect(1024), null);
+    Assert.assertSame(bufferEncoder, factory.byteBufferEncoder(ByteBuffer.allocate(1024), bufferEncoder));
+    for (Object datum : records) {
+      writer.write(datum, encoder);
+      writer.write(datum, bufferEncoder);
+    }
+    encoder.flush();
+    ByteBuffer written = bufferEncoder.getBuffer();
+    ((Buffer) written).flip();
+    Assert.assertEquals(ByteBuffer.wrap(out.toByteArray()), written);
+  }
+
   private void testWithBuffer(ByteBuffer buffer) throws IOException {
     assertThat(asList(buffer.position(), buffer.remaining()), is(asList(0, EXAMPLE_DATA_SIZE)));
 
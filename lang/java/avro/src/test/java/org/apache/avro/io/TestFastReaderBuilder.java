@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.TestRecordWithoutLogicalTypes;
+import org.apache.avro.util.RandomData;
+import org.junit.Test;
+
+/**
+ * Checks that compiled record readers run their steps in order, and read what
+ * the uncompiled ones read.
+ */
+public class TestFastReaderBuilder {
+
+  private static final int COUNT = 20;
+
+  /** A record with a few hundred fields of every kind, and a nested record. */
+  private static Schema wideSchema(String name) {
+    Schema nested = SchemaBuilder.record("Nested").fields().requiredInt("i").optionalString("s").endRecord();
+    SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record(name).fields();
+    for (int i = 0; i < 30; i++) {
+      fields = fields.requiredBoolean("b" + i).requiredInt("i" + i).requiredLong("l" + i).requiredFloat("f" + i)
+          .requiredDouble("d" + i).requiredString("s" + i).optionalLong("o" + i);
+      fields = fields.name("a" + i).type().array().items().intType().noDefault();
+    }
+    return fields.name("nested").type(nested).noDefault().endRecord();
+  }
+
+  private static byte[] write(Schema schema, List<Object> data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<Object> read(FastReaderBuilder builder, Schema writer, Schema reader, byte[] bytes, boolean reuse)
+      throws IOException {
+    DatumReader<Object> datumReader = builder.createDatumReader(writer, reader);
+    Decoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    List<Object> read = new ArrayList<>();
+    Object datum = null;
+    for (int i = 0; i < COUNT; i++) {
+      datum = datumReader.read(reuse ? datum : null, decoder);
+      read.add(GenericData.get().deepCopy(reader, datum));
+    }
+    return read;
+  }
+
+  @Test
+  public void testCompile() throws IOException {
+    assumeTrue(RecordReaderCompiler.isSupported());
+    for (int n : new int[] { 1, 6, 7, RecordReaderCompiler.MAX_STEPS }) {
+      List<Integer> run = new ArrayList<>();
+      FastReaderBuilder.ExecutionStep[] steps = new FastReaderBuilder.ExecutionStep[n];
+      List<Integer> expected = new ArrayList<>();
+      for (int i = 0; i < n; i++) {
+        int step = i;
+        steps[i] = (record, decoder) -> run.add(step);
+        expected.add(i);
+      }
+      FastReaderBuilder.ExecutionStep compiled = RecordReaderCompiler.compile(steps);
+      assertNotNull(compiled);
+      compiled.execute(null, null);
+      compiled.execute(null, null);
+      expected.addAll(new ArrayList<>(expected));
+      assertEquals(expected, run);
+    }
+    assertNull(RecordReaderCompiler.compile(new FastReaderBuilder.ExecutionStep[0]));
+    assertNull(RecordReaderCompiler.compile(new FastReaderBuilder.ExecutionStep[RecordReaderCompiler.MAX_STEPS + 1]));
+  }
+
+  @Test
+  public void testRecursiveRecord() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+        + "{\"name\":\"value\",\"type\":\"long\"},"
+        + "{\"name\":\"next\",\"type\":[\"null\",\"Node\"],\"default\":null}]}");
+    List<Object> data = new ArrayList<>();
+    new RandomData(schema, COUNT, 3).forEach(data::add);
+    byte[] bytes = write(schema, data);
+
+    assertEquals(data,
+        read(new FastReaderBuilder(GenericData.get()).withCompilationEnabled(true), schema, schema, bytes, true));
+  }
+
+  @Test
+  public void testWideRecord() throws IOException {
+    Schema schema = wideSchema("Wide");
+    List<Object> data = new ArrayList<>();
+    new RandomData(schema, COUNT, 42).forEach(data::add);
+    byte[] bytes = write(schema, data);
+
+    for (boolean reuse : new boolean[] { false, true }) {
+      assertEquals(data, read(new FastReaderBuilder(GenericData.get()), schema, schema, bytes, reuse));
+      assertEquals(data,
+          read(new FastReaderBuilder(GenericData.get()).withCompilationEnabled(true), schema, schema, bytes, reuse));
+    }
+  }
+
+  @Test
+  public void testPromotionsAndSkips() throws IOException {
+    Schema writer = SchemaBuilder.record("R").fields().requiredInt("a").requiredLong("b").requiredFloat("c")
+        .requiredInt("skipped").requiredInt("d").requiredString("e").endRecord();
+    Schema reader = SchemaBuilder.record("R").fields().requiredLong("a").requiredFloat("b").requiredDouble("c")
+        .requiredDouble("d").requiredString("e").name("added").type().intType().intDefault(7).endRecord();
+    List<Object> data = new ArrayList<>();
+    new RandomData(writer, COUNT, 7).forEach(data::add);
+    byte[] bytes = write(writer, data);
+
+    List<Object> expected = read(new FastReaderBuilder(GenericData.get()), writer, reader, bytes, false);
+    assertEquals(expected,
+        read(new FastReaderBuilder(GenericData.get()).withCompilationEnabled(true), writer, reader, bytes, false));
+    assertEquals(7, ((GenericData.Record) expected.get(0)).get("added"));
+  }
+
+  @Test
+  public void testSpecificRecord() throws IOException {
+    Schema schema = TestRecordWithoutLogicalTypes.SCHEMA$;
+    SpecificData model = new SpecificData();
+    List<TestRecordWithoutLogicalTypes> data = new ArrayList<>();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    SpecificDatumWriter<TestRecordWithoutLogicalTypes> writer = new SpecificDatumWriter<>(schema, model);
+    for (int i = 0; i < COUNT; i++) {
+      // the string is left null, as this class's schema reads it as a Utf8
+      TestRecordWithoutLogicalTypes record = new TestRecordWithoutLogicalTypes(i % 2 == 0, i, -i * 1000000007L,
+          i / 3f, i / 7d, null, i, 2 * i, 3L * i, ByteBuffer.wrap(new byte[] { (byte) i }));
+      data.add(record);
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+
+    DatumReader<Object> reader = new FastReaderBuilder(model).withCompilationEnabled(true).createDatumReader(schema);
+    Decoder decoder = DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    Object reused = null;
+    for (TestRecordWithoutLogicalTypes expected : data) {
+      Object read = reader.read(reused, decoder);
+      if (reused != null) {
+        assertSame(reused, read);
+      }
+      assertEquals(expected, read);
+      reused = read;
+    }
+  }
+}
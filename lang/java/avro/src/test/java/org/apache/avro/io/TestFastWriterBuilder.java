@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.apache.avro.specific.TestRecordWithLogicalTypes;
+import org.apache.avro.util.RandomData;
+import org.junit.Test;
+
+/**
+ * Checks that the writers built by {@link FastWriterBuilder} write what the
+ * generic and specific datum writers write.
+ */
+public class TestFastWriterBuilder {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"All\",\"fields\":["
+      + "{\"name\":\"n\",\"type\":\"null\"}," + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"}," + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"}," + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"}," + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":3}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"ai\",\"type\":{\"type\":\"array\",\"items\":\"int\"}},"
+      + "{\"name\":\"al\",\"type\":{\"type\":\"array\",\"items\":\"long\"}},"
+      + "{\"name\":\"af\",\"type\":{\"type\":\"array\",\"items\":\"float\"}},"
+      + "{\"name\":\"ad\",\"type\":{\"type\":\"array\",\"items\":\"double\"}},"
+      + "{\"name\":\"as\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"long\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"E\",\"F\"]},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"All\"]}]}");
+
+  private static GenericData slowData() {
+    return new GenericData().setFastWriterEnabled(false);
+  }
+
+  private static byte[] write(DatumWriter<Object> writer, Iterable<Object> data) throws IOException {
+    return write(writer, data, false);
+  }
+
+  private static byte[] write(DatumWriter<Object> writer, Iterable<Object> data, boolean blocking)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = blocking ? EncoderFactory.get().blockingBinaryEncoder(out, null)
+        : EncoderFactory.get().binaryEncoder(out, null);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testGeneric() throws IOException {
+    List<Object> data = new ArrayList<>();
+    new RandomData(SCHEMA, 50, 17).forEach(data::add);
+    byte[] expected = write(new GenericDatumWriter<>(SCHEMA, slowData()), data);
+    assertArrayEquals(expected, write(new FastWriterBuilder(slowData()).createDatumWriter(SCHEMA), data));
+    // and through GenericDatumWriter
+    GenericData fast = new GenericData().setFastWriterEnabled(true);
+    assertArrayEquals(expected, write(new GenericDatumWriter<>(SCHEMA, fast), data));
+    // to a blocking encoder, which relies on the array items being counted
+    assertArrayEquals(write(new GenericDatumWriter<>(SCHEMA, slowData()), data, true),
+        write(FastWriterBuilder.get().createDatumWriter(SCHEMA), data, true));
+  }
+
+  @Test
+  public void testConversions() throws IOException {
+    Schema decimal = LogicalTypes.decimal(9, 2).addToSchema(Schema.create(Schema.Type.BYTES));
+    Schema schema = SchemaBuilder.record("R").fields().name("dec").type(decimal).noDefault().name("opt").type()
+        .unionOf().nullType().and().type(decimal).endUnion().noDefault().endRecord();
+    GenericData.Record record = new GenericData.Record(schema);
+    record.put("dec", new BigDecimal("123.45"));
+    record.put("opt", new BigDecimal("-0.01"));
+    GenericData.Record empty = new GenericData.Record(schema);
+    empty.put("dec", new BigDecimal("1.00"));
+    List<Object> data = Arrays.asList(record, empty);
+
+    GenericData slow = slowData();
+    slow.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    GenericData fast = new GenericData();
+    fast.addLogicalTypeConversion(new Conversions.DecimalConversion());
+    assertArrayEquals(write(new GenericDatumWriter<>(schema, slow), data),
+        write(new FastWriterBuilder(fast).createDatumWriter(schema), data));
+  }
+
+  @Test
+  public void testSpecific() throws IOException {
+    Schema schema = TestRecordWithLogicalTypes.SCHEMA$;
+    List<Object> data = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      data.add(new TestRecordWithLogicalTypes(i % 2 == 0, i, 35L * i, 3.14F * i, 3019.34 / (i + 1), "s" + i,
+          LocalDate.ofEpochDay(i), LocalTime.ofSecondOfDay(i).truncatedTo(ChronoUnit.MILLIS),
+          Instant.ofEpochMilli(1000L * i), new BigDecimal("123.45").add(BigDecimal.valueOf(i))));
+    }
+    SpecificData slow = new SpecificData();
+    slow.setFastWriterEnabled(false);
+    SpecificData fast = new SpecificData();
+    fast.setFastWriterEnabled(true);
+    byte[] expected = write(new SpecificDatumWriter<>(schema, slow), data);
+    assertArrayEquals(expected, write(new FastWriterBuilder(fast).createDatumWriter(schema), data));
+    assertArrayEquals(expected, write(new SpecificDatumWriter<>(schema, fast), data));
+  }
+
+  @Test
+  public void testErrors() throws IOException {
+    GenericData.Record record = new GenericData.Record(SchemaBuilder.record("R").fields().requiredInt("x")
+        .name("u").type().unionOf().nullType().and().intType().endUnion().noDefault().endRecord());
+    DatumWriter<Object> writer = FastWriterBuilder.get().createDatumWriter(record.getSchema());
+    Encoder encoder = EncoderFactory.get().binaryEncoder(new ByteArrayOutputStream(), null);
+    try {
+      writer.write(record, encoder);
+      fail("Expected a NullPointerException");
+    } catch (NullPointerException e) {
+      assertTrue(e.getMessage(), e.getMessage().endsWith(" of int in field x of R"));
+    }
+    record.put("x", 1);
+    record.put("u", "not an int");
+    try {
+      writer.write(record, encoder);
+      fail("Expected an UnresolvedUnionException");
+    } catch (UnresolvedUnionException e) {
+      assertEquals("not an int", e.getUnresolvedDatum());
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Test;
+
+public class TestResolverCache {
+
+  private static final String JSON = "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      + "{\"name\":\"a\",\"type\":\"int\"},{\"name\":\"b\",\"type\":\"string\"}]}";
+
+  @Test
+  public void testEqualWritersShareResolver() throws IOException {
+    Schema writer = new Schema.Parser().parse(JSON);
+    Schema reader = SchemaBuilder.record("R").fields().requiredInt("a").endRecord();
+    Object resolver = ResolvingDecoder.resolveShared(writer, reader);
+    assertSame(resolver, ResolvingDecoder.resolveShared(new Schema.Parser().parse(JSON), reader));
+    // a default changes the grammar, so must not share it
+    Schema withDefault = SchemaBuilder.record("R").fields().requiredInt("a").name("c").type().intType().intDefault(1)
+        .endRecord();
+    assertNotSame(resolver, ResolvingDecoder.resolveShared(writer, withDefault));
+    // the reader's own fields are handed out, so equal readers must not share
+    Schema equalReader = SchemaBuilder.record("R").fields().requiredInt("a").endRecord();
+    assertNotSame(resolver, ResolvingDecoder.resolveShared(writer, equalReader));
+  }
+
+  @Test
+  public void testBounded() throws IOException {
+    Schema reader = SchemaBuilder.record("R").fields().requiredInt("a").endRecord();
+    for (int i = 0; i < ResolverCache.DEFAULT_MAX_ENTRIES + 10; i++) {
+      Schema writer = SchemaBuilder.record("R").fields().requiredInt("a").requiredInt("x" + i).endRecord();
+      ResolvingDecoder.resolveShared(writer, reader);
+    }
+    assertTrue(ResolverCache.size() <= ResolverCache.DEFAULT_MAX_ENTRIES);
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    Schema schema = new Schema.Parser().parse(JSON);
+    List<Object> data = new ArrayList<>();
+    new RandomData(schema, 100, 11).forEach(data::add);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    byte[] bytes = out.toByteArray();
+
+    GenericData model = new GenericData().setFastReaderEnabled(false);
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(schema, schema, model);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<Object>>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(() -> {
+          Decoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+          List<Object> read = new ArrayList<>();
+          for (int i = 0; i < data.size(); i++) {
+            read.add(reader.read(null, decoder));
+          }
+          return read;
+        }));
+      }
+      for (Future<List<Object>> result : results) {
+        assertEquals(data, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
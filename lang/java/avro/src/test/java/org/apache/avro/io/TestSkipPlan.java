@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.RandomData;
+import org.junit.Test;
+
+/**
+ * Checks that skip plans skip exactly the values of their schemas, and that
+ * readers that drop fields read the rest.
+ */
+public class TestSkipPlan {
+
+  private static final Schema SCHEMA = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"All\",\"fields\":["
+      + "{\"name\":\"n\",\"type\":\"null\"}," + "{\"name\":\"b\",\"type\":\"boolean\"},"
+      + "{\"name\":\"i\",\"type\":\"int\"}," + "{\"name\":\"l\",\"type\":\"long\"},"
+      + "{\"name\":\"f\",\"type\":\"float\"}," + "{\"name\":\"d\",\"type\":\"double\"},"
+      + "{\"name\":\"s\",\"type\":\"string\"}," + "{\"name\":\"by\",\"type\":\"bytes\"},"
+      + "{\"name\":\"fx\",\"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":3}},"
+      + "{\"name\":\"e\",\"type\":{\"type\":\"enum\",\"name\":\"E\",\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"ad\",\"type\":{\"type\":\"array\",\"items\":\"double\"}},"
+      + "{\"name\":\"as\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":[\"null\",\"long\"]}},"
+      + "{\"name\":\"u\",\"type\":[\"null\",\"string\",\"E\",\"F\"]},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"All\"]}]}");
+
+  private static final int COUNT = 50;
+  private static final long END = 0x0123456789ABCDEFL;
+
+  /** Writes the data, then {@link #END}. */
+  private static byte[] write(Schema schema, List<Object> data, boolean blocking) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = blocking ? EncoderFactory.get().blockingBinaryEncoder(out, null)
+        : EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    for (Object datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.writeLong(END);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<Object> data(Schema schema) {
+    List<Object> data = new ArrayList<>();
+    new RandomData(schema, COUNT, 23).forEach(data::add);
+    return data;
+  }
+
+  @Test
+  public void testSkip() throws IOException {
+    SkipPlan plan = SkipPlan.of(SCHEMA.getFields().get(0).schema(), SCHEMA);
+    Schema pair = SchemaBuilder.record("Pair").fields().name("n").type().nullType().noDefault().name("all")
+        .type(SCHEMA).noDefault().endRecord();
+    List<Object> data = new ArrayList<>();
+    for (Object datum : data(SCHEMA)) {
+      GenericData.Record record = new GenericData.Record(pair);
+      record.put("all", datum);
+      data.add(record);
+    }
+    for (boolean blocking : new boolean[] { false, true }) {
+      byte[] bytes = write(pair, data, blocking);
+      List<BinaryDecoder> decoders = new ArrayList<>();
+      decoders.add(DecoderFactory.get().binaryDecoder(bytes, null));
+      decoders.add(DecoderFactory.get().directBinaryDecoder(new ByteArrayInputStream(bytes), null));
+      decoders.add(DecoderFactory.get().binaryDecoder(ByteBuffer.wrap(bytes), null));
+      for (BinaryDecoder decoder : decoders) {
+        for (int i = 0; i < COUNT; i++) {
+          plan.skip(decoder);
+        }
+        assertEquals(decoder.getClass().getName(), END, decoder.readLong());
+      }
+    }
+  }
+
+  @Test
+  public void testProjection() throws IOException {
+    List<Object> data = data(SCHEMA);
+    byte[] bytes = write(SCHEMA, data, false);
+    Schema reader = SchemaBuilder.record("All").fields().requiredLong("l").requiredString("s").endRecord();
+
+    for (boolean fast : new boolean[] { false, true }) {
+      GenericData model = new GenericData().setFastReaderEnabled(fast);
+      GenericDatumReader<GenericRecord> datumReader = new GenericDatumReader<>(SCHEMA, reader, model);
+      Decoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+      for (Object datum : data) {
+        GenericRecord expected = (GenericRecord) datum;
+        GenericRecord read = datumReader.read(null, decoder);
+        assertEquals(expected.get("l"), read.get("l"));
+        assertEquals(expected.get("s").toString(), read.get("s").toString());
+      }
+      assertEquals(END, decoder.readLong());
+    }
+  }
+}
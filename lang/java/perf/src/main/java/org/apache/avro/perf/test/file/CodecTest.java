@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the codecs of data files: appends pre-encoded records, so that the
+ * time to write is mostly that of compression, and reads blocks without
+ * decoding them, so that the time to read is mostly that of decompression.
+ */
+public class CodecTest {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"name\", \"type\": \"string\" },\n" + "{ \"name\": \"count\", \"type\": \"long\" },\n"
+      + "{ \"name\": \"score\", \"type\": \"double\" }\n" + "] }";
+
+  private static final String[] NAMES = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel" };
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void compress(final TestState state) throws Exception {
+    state.out.reset();
+    try (DataFileWriter<GenericRecord> writer = state.newWriter()) {
+      writer.create(state.schema, state.out);
+      writer.appendEncodedBatch(state.encoded);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decompress(final Blackhole blackhole, final TestState state) throws Exception {
+    try (DataFileStream<GenericRecord> in = new DataFileStream<>(new ByteArrayInputStream(state.file),
+        new GenericDatumReader<>())) {
+      while (in.hasNext()) {
+        blackhole.consume(in.nextBlock());
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends BasicState {
+
+    @Param({ "snappy", "zstandard-1", "lz4", "lz4-hc" })
+    public String codec;
+
+    private final Schema schema;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private ByteBuffer[] encoded;
+    private byte[] file;
+
+    public TestState() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+    }
+
+    private CodecFactory codecFactory() {
+      switch (codec) {
+      case "snappy":
+        return CodecFactory.snappyCodec();
+      case "zstandard-1":
+        return CodecFactory.zstandardCodec(1);
+      case "lz4":
+        return CodecFactory.lz4Codec();
+      case "lz4-hc":
+        return CodecFactory.lz4Codec(9);
+      default:
+        throw new IllegalArgumentException("Unknown codec: " + codec);
+      }
+    }
+
+    private DataFileWriter<GenericRecord> newWriter() {
+      return new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema)).setCodec(codecFactory());
+    }
+
+    /**
+     * Encode the records and write them to a file for reading.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      GenericDatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(schema);
+      BinaryEncoder encoder = null;
+      Random r = super.getRandom();
+      encoded = new ByteBuffer[getBatchSize()];
+      for (int i = 0; i < encoded.length; i++) {
+        GenericRecord rec = new GenericData.Record(schema);
+        rec.put(0, NAMES[r.nextInt(NAMES.length)] + "-" + r.nextInt(100));
+        rec.put(1, (long) r.nextInt(1000000));
+        rec.put(2, Math.round(r.nextDouble() * 100) / 100.0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        encoder = EncoderFactory.get().binaryEncoder(bytes, encoder);
+        datumWriter.write(rec, encoder);
+        encoder.flush();
+        encoded[i] = ByteBuffer.wrap(bytes.toByteArray());
+      }
+
+      try (DataFileWriter<GenericRecord> writer = newWriter()) {
+        writer.create(schema, out);
+        writer.appendEncodedBatch(encoded);
+      }
+      file = out.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes records with the fast reader, whose record readers run their steps
+ * in turn or, compiled, from a class of their own. The fields are of five
+ * kinds, so that the readers are called from a megamorphic call site when run
+ * in turn, and of small values, so that reading them allocates little.
+ */
+public class GenericCompiledRecordTest {
+
+  private static final Schema ENUM = SchemaBuilder.enumeration("E").symbols("A", "B", "C");
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decode(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    final Decoder d = state.decoder;
+    Object reuse = null;
+    for (int i = 0; i < state.getBatchSize(); i++) {
+      reuse = state.reader.read(reuse, d);
+      blackhole.consume(reuse);
+    }
+  }
+
+  private static Schema schema(int fields) {
+    SchemaBuilder.FieldAssembler<Schema> assembler = SchemaBuilder.record("R").fields();
+    for (int i = 0; i < fields; i++) {
+      String name = "f" + i;
+      switch (i % 5) {
+      case 0:
+        assembler = assembler.requiredInt(name);
+        break;
+      case 1:
+        assembler = assembler.requiredBoolean(name);
+        break;
+      case 2:
+        assembler = assembler.requiredLong(name);
+        break;
+      case 3:
+        assembler = assembler.name(name).type(ENUM).noDefault();
+        break;
+      default:
+        assembler = assembler.optionalInt(name);
+      }
+    }
+    return assembler.endRecord();
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateDecode extends BasicState {
+
+    @Param({ "10", "30", "60" })
+    public int fields;
+
+    @Param({ "false", "true" })
+    public boolean compile;
+
+    private byte[] testData;
+    private Decoder decoder;
+    private GenericDatumReader<Object> reader;
+
+    /**
+     * Generate test data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      Schema schema = schema(fields);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Encoder encoder = super.newEncoder(true, baos);
+      GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+
+      final Random r = super.getRandom();
+      for (int i = 0; i < getBatchSize(); i++) {
+        GenericRecord rec = new GenericData.Record(schema);
+        for (int j = 0; j < fields; j++) {
+          switch (j % 5) {
+          case 0:
+            rec.put(j, r.nextInt(100));
+            break;
+          case 1:
+            rec.put(j, r.nextBoolean());
+            break;
+          case 2:
+            rec.put(j, (long) r.nextInt(100));
+            break;
+          case 3:
+            rec.put(j, new GenericData.EnumSymbol(ENUM, ENUM.getEnumSymbols().get(r.nextInt(3))));
+            break;
+          default:
+            rec.put(j, r.nextBoolean() ? null : r.nextInt(100));
+          }
+        }
+        writer.write(rec, encoder);
+      }
+
+      this.testData = baos.toByteArray();
+
+      GenericData data = new GenericData().setFastReaderEnabled(true);
+      data.getFastReaderBuilder().withCompilationEnabled(compile);
+      this.reader = new GenericDatumReader<>(schema, schema, data);
+    }
+
+    @Setup(Level.Invocation)
+    public void doSetupInvocation() throws Exception {
+      this.decoder = super.newDecoder(this.testData);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicArrayState;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes arrays of primitives into generic arrays, one item at a time with
+ * the default reader and a block at a time with the fast reader.
+ */
+public class GenericPrimitiveArrayTest {
+
+  private static final int ARRAY_SIZE = 100;
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decode(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    read(blackhole, state, new GenericDatumReader<>(state.schema));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decodeFast(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    read(blackhole, state, new GenericDatumReader<>(state.schema, state.schema, state.fastData));
+  }
+
+  private static void read(final Blackhole blackhole, final TestStateDecode state,
+      final GenericDatumReader<Object> reader) throws IOException {
+    final Decoder d = state.decoder;
+    Object reuse = null;
+    for (int i = 0; i < state.getBatchSize(); i++) {
+      reuse = reader.read(state.reuse ? reuse : null, d);
+      blackhole.consume(reuse);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateDecode extends BasicArrayState {
+
+    @Param({ "int", "long", "double" })
+    public String type;
+
+    @Param({ "false", "true" })
+    public boolean reuse;
+
+    private Schema schema;
+    private final GenericData fastData = new GenericData().setFastReaderEnabled(true);
+
+    private byte[] testData;
+    private Decoder decoder;
+
+    public TestStateDecode() {
+      super(ARRAY_SIZE);
+    }
+
+    /**
+     * Generate test data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      this.schema = Schema.createArray(Schema.create(Schema.Type.valueOf(type.toUpperCase())));
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Encoder encoder = super.newEncoder(true, baos);
+
+      final Random r = super.getRandom();
+      for (int i = 0; i < getBatchSize(); i++) {
+        encoder.writeArrayStart();
+        encoder.setItemCount(getArraySize());
+        for (int j = 0; j < getArraySize(); j++) {
+          encoder.startItem();
+          switch (schema.getElementType().getType()) {
+          case INT:
+            encoder.writeInt(r.nextInt());
+            break;
+          case LONG:
+            encoder.writeLong(r.nextLong());
+            break;
+          default:
+            encoder.writeDouble(r.nextDouble());
+          }
+        }
+        encoder.writeArrayEnd();
+      }
+
+      this.testData = baos.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void doSetupInvocation() throws Exception {
+      this.decoder = super.newDecoder(this.testData);
+    }
+  }
+}
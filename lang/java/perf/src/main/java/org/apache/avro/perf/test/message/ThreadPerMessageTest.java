@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.perf.test.message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes each message on a thread of its own, as servers that hand every
+ * message to a new virtual thread do. Such threads live too briefly for
+ * anything they cache in a {@link ThreadLocal} to be used twice.
+ * <p/>
+ * The {@code virtual} executor needs Java 21 or later; on older JVMs it falls
+ * back to starting a platform thread per message, as {@code thread} does. The
+ * {@code pool} executor reuses a few threads, for comparison.
+ */
+public class ThreadPerMessageTest {
+
+  private static final Schema WRITER = SchemaBuilder.record("R").fields().requiredLong("id").requiredString("name")
+      .requiredDouble("value").name("tags").type().array().items().stringType().noDefault().endRecord();
+
+  private static final Schema READER = SchemaBuilder.record("R").fields().requiredLong("id").requiredString("name")
+      .requiredDouble("value").name("tags").type().array().items().stringType().noDefault().name("added").type()
+      .intType().intDefault(0).endRecord();
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decode(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    final CountDownLatch done = new CountDownLatch(state.messages.length);
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    for (final ByteBuffer message : state.messages) {
+      state.executor.execute(() -> {
+        try {
+          blackhole.consume(state.decoder.decode(message.duplicate()));
+        } catch (Exception e) {
+          failure.set(e);
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    done.await();
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class TestStateDecode extends BasicState {
+
+    @Param({ "virtual", "thread", "pool" })
+    public String executorKind;
+
+    @Param({ "true", "false" })
+    public boolean fastReader;
+
+    private ByteBuffer[] messages;
+    private BinaryMessageDecoder<GenericRecord> decoder;
+    private Executor executor;
+
+    /**
+     * Encode the messages and start the executor.
+     *
+     * @throws Exception Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws Exception {
+      GenericData model = new GenericData().setFastReaderEnabled(fastReader);
+      BinaryMessageEncoder<GenericRecord> encoder = new BinaryMessageEncoder<>(model, WRITER);
+      this.decoder = new BinaryMessageDecoder<>(model, READER);
+      this.decoder.addSchema(WRITER);
+
+      final Random r = super.getRandom();
+      this.messages = new ByteBuffer[getBatchSize()];
+      for (int i = 0; i < messages.length; i++) {
+        GenericRecord rec = new GenericData.Record(WRITER);
+        rec.put("id", r.nextLong());
+        rec.put("name", "name" + r.nextInt(1000));
+        rec.put("value", r.nextDouble());
+        rec.put("tags", new GenericData.Array<>(WRITER.getField("tags").schema(),
+            Arrays.asList("a" + r.nextInt(10), "b" + r.nextInt(10))));
+        messages[i] = encoder.encode(rec);
+      }
+
+      this.executor = newExecutor(executorKind);
+    }
+
+    @TearDown(Level.Trial)
+    public void doTearDownTrial() {
+      if (executor instanceof ExecutorService) {
+        ((ExecutorService) executor).shutdown();
+      }
+    }
+
+    private static Executor newExecutor(String kind) {
+      switch (kind) {
+      case "virtual":
+        try {
+          return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+          return task -> new Thread(task).start();
+        }
+      case "thread":
+        return task -> new Thread(task).start();
+      case "pool":
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      default:
+        throw new IllegalArgumentException("Unknown executor: " + kind);
+      }
+    }
+  }
+}
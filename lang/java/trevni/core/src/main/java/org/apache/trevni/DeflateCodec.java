@@ -21,22 +21,35 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterOutputStream;
 
-/** Implements DEFLATE (RFC1951) compression and decompression. */
+/**
+ * Implements DEFLATE (RFC1951) compression and decompression. Inflaters and
+ * deflaters are pooled, so that the codecs of every column share a few.
+ */
 class DeflateCodec extends Codec {
+  private static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+  private static final ArrayDeque<Deflater> DEFLATERS = new ArrayDeque<>();
+  private static final ArrayDeque<Inflater> INFLATERS = new ArrayDeque<>();
+
   private ByteArrayOutputStream outputBuffer;
-  private Deflater deflater;
-  private Inflater inflater;
 
   @Override
   ByteBuffer compress(ByteBuffer data) throws IOException {
     ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
+    Deflater deflater = acquire(DEFLATERS);
+    if (deflater == null)
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try (OutputStream outputStream = new DeflaterOutputStream(baos, deflater)) {
       outputStream.write(data.array(), computeOffset(data), data.remaining());
+    } finally {
+      deflater.reset();
+      if (!release(DEFLATERS, deflater))
+        deflater.end();
     }
     return ByteBuffer.wrap(baos.toByteArray());
   }
@@ -44,24 +57,33 @@ class DeflateCodec extends Codec {
   @Override
   ByteBuffer decompress(ByteBuffer data) throws IOException {
     ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
+    Inflater inflater = acquire(INFLATERS);
+    if (inflater == null)
+      inflater = new Inflater(true);
+    try (OutputStream outputStream = new InflaterOutputStream(baos, inflater)) {
       outputStream.write(data.array(), computeOffset(data), data.remaining());
+    } finally {
+      inflater.reset();
+      if (!release(INFLATERS, inflater))
+        inflater.end();
     }
     return ByteBuffer.wrap(baos.toByteArray());
   }
 
-  private Inflater getInflater() {
-    if (null == inflater)
-      inflater = new Inflater(true);
-    inflater.reset();
-    return inflater;
+  private static <T> T acquire(ArrayDeque<T> pool) {
+    synchronized (pool) {
+      return pool.pollFirst();
+    }
   }
 
-  private Deflater getDeflater() {
-    if (null == deflater)
-      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-    deflater.reset();
-    return deflater;
+  // returns false if the pool is full
+  private static <T> boolean release(ArrayDeque<T> pool, T context) {
+    synchronized (pool) {
+      if (pool.size() >= MAX_POOLED)
+        return false;
+      pool.addFirst(context);
+      return true;
+    }
   }
 
   private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
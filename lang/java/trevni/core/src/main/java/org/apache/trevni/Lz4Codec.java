@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.trevni;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements <a href="https://lz4.github.io/lz4/">LZ4</a> codec. Each block is
+ * preceded by its uncompressed length, as a four-byte big-endian integer.
+ */
+final class Lz4Codec extends Codec {
+
+  private final LZ4Compressor compressor;
+  private final LZ4SafeDecompressor decompressor;
+
+  Lz4Codec() {
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = factory.fastCompressor();
+    this.decompressor = factory.safeDecompressor();
+  }
+
+  @Override
+  ByteBuffer compress(ByteBuffer in) throws IOException {
+    ByteBuffer out = ByteBuffer.allocate(compressor.maxCompressedLength(in.remaining()) + 4);
+    out.putInt(in.remaining());
+    int size = compressor.compress(in, in.position(), in.remaining(), out, 4, out.remaining());
+    ((Buffer) out).limit(size + 4);
+    ((Buffer) out).position(0);
+    return out;
+  }
+
+  @Override
+  ByteBuffer decompress(ByteBuffer in) throws IOException {
+    int length = in.getInt(in.position());
+    ByteBuffer out = ByteBuffer.allocate(length);
+    try {
+      int size = decompressor.decompress(in, in.position() + 4, in.remaining() - 4, out, 0, length);
+      ((Buffer) out).limit(size);
+    } catch (LZ4Exception e) {
+      throw new IOException("Invalid LZ4 block", e);
+    }
+    return out;
+  }
+
+}
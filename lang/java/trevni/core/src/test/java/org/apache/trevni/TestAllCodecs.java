@@ -35,7 +35,7 @@ import static org.junit.Assert.assertTrue;
 public class TestAllCodecs {
   @Parameterized.Parameters(name = "{index}: codec={0}")
   public static Collection<Object[]> data() {
-    return Arrays.asList(new Object[][] { { "bzip2" }, { "null" }, { "snappy" }, { "deflate" }, });
+    return Arrays.asList(new Object[][] { { "bzip2" }, { "null" }, { "snappy" }, { "deflate" }, { "lz4" }, });
   }
 
   @Parameterized.Parameter(0)
@@ -47,7 +47,7 @@ public class TestColumnFile {
 
   @Parameters
   public static Collection<Object[]> codecs() {
-    Object[][] data = new Object[][] { { "null", "null" }, { "snappy", "crc32" }, { "deflate", "crc32" } };
+    Object[][] data = new Object[][] { { "null", "null" }, { "snappy", "crc32" }, { "deflate", "crc32" }, { "lz4", "crc32" } };
     return Arrays.asList(data);
   }
 